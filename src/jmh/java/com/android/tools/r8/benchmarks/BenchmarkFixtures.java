@@ -0,0 +1,142 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.R8;
+import com.android.tools.r8.R8Command;
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Timing;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Inputs shared by the JMH benchmarks.
+ *
+ * <p>The program used by the benchmarks is the Kotlin standard library, which is a sizable library
+ * of real world code, compiled against the android.jar of API level 28. Both are third party
+ * dependencies of the project, such that the benchmarks can run without network access once the
+ * dependencies have been downloaded. The benchmarks are run from the root of the checkout.
+ */
+public class BenchmarkFixtures {
+
+  public static final Path PROGRAM_JAR =
+      Paths.get("third_party/kotlin/kotlinc/lib/kotlin-stdlib.jar");
+  public static final Path LIBRARY_JAR =
+      Paths.get("third_party/android_jar/lib-v28/android.jar");
+
+  /** Format of the program given to the benchmarks that build IR. */
+  public enum InputFormat {
+    CF,
+    DEX
+  }
+
+  /** Compile the program to a single DEX file with D8. */
+  public static byte[] compileProgramToDex() throws CompilationFailedException {
+    List<byte[]> files = new ArrayList<>();
+    D8.run(
+        D8Command.builder()
+            .addProgramFiles(PROGRAM_JAR)
+            .addLibraryFiles(LIBRARY_JAR)
+            .setProgramConsumer(
+                new DexIndexedConsumer.ForwardingConsumer(null) {
+                  @Override
+                  public synchronized void accept(
+                      int fileIndex,
+                      ByteDataView data,
+                      Set<String> descriptors,
+                      DiagnosticsHandler handler) {
+                    files.add(data.copyByteData());
+                  }
+                })
+            .build());
+    if (files.size() != 1) {
+      throw new IllegalStateException("Expected a single DEX file, got " + files.size());
+    }
+    return files.get(0);
+  }
+
+  /**
+   * Compile the program with R8 and return the Proguard map. Everything is kept, but allowed to be
+   * renamed, such that the map has an entry for all classes and members of the program.
+   */
+  public static String compileProgramToProguardMap() throws CompilationFailedException {
+    StringBuilder map = new StringBuilder();
+    R8.run(
+        R8Command.builder()
+            .addProgramFiles(PROGRAM_JAR)
+            .addLibraryFiles(LIBRARY_JAR)
+            .addProguardConfiguration(
+                ImmutableList.of(
+                    "-keep,allowobfuscation class ** { *; }",
+                    "-dontoptimize",
+                    "-ignorewarnings"),
+                Origin.unknown())
+            .setProgramConsumer(DexIndexedConsumer.emptyConsumer())
+            .setProguardMapConsumer((string, handler) -> map.append(string))
+            .build());
+    return map.toString();
+  }
+
+  /** Read the program in the given format. DEX input is compiled from the class files first. */
+  public static DexApplication readProgram(InputFormat format, InternalOptions options)
+      throws CompilationFailedException, IOException, ExecutionException {
+    AndroidApp.Builder builder = AndroidApp.builder().addLibraryFiles(LIBRARY_JAR);
+    if (format == InputFormat.CF) {
+      builder.addProgramFiles(PROGRAM_JAR);
+    } else {
+      builder.addDexProgramData(compileProgramToDex(), Origin.unknown());
+    }
+    return new ApplicationReader(builder.build(), options, new Timing("BenchmarkFixtures"))
+        .read()
+        .toDirect();
+  }
+
+  public static AppView<AppInfo> createAppView(DexApplication application) {
+    return AppView.createForD8(new AppInfo(application), application.options);
+  }
+
+  /** Returns the methods of the program that have code, in a deterministic order. */
+  public static List<DexEncodedMethod> methodsWithCode(DexApplication application) {
+    List<DexEncodedMethod> methods = new ArrayList<>();
+    for (DexProgramClass clazz : application.classesWithDeterministicOrder()) {
+      clazz.forEachMethod(
+          method -> {
+            if (method.hasCode()) {
+              methods.add(method);
+            }
+          });
+    }
+    return methods;
+  }
+
+  /** Build the IR of the given methods, such that it can be handed to a pass under measure. */
+  public static List<IRCode> buildIR(AppView<?> appView, List<DexEncodedMethod> methods) {
+    List<IRCode> codes = new ArrayList<>(methods.size());
+    for (DexEncodedMethod method : methods) {
+      codes.add(method.buildIR(appView, Origin.unknown()));
+    }
+    return codes;
+  }
+}
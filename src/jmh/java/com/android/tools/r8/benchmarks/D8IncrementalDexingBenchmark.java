@@ -0,0 +1,96 @@
+// Copyright (c) 2017, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.CompilationMode;
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures dexing a small program with D8.
+ *
+ * <p>The cold benchmark measures the first compilation in a fresh JVM, which corresponds to a new
+ * compiler process per build. The warm benchmark measures compilations after warm-up, which
+ * corresponds to requests served by a resident compiler, see {@link
+ * com.android.tools.r8.CompilerServer}. This is the JMH counterpart of the timing loop in {@link
+ * IncrementalDexingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class D8IncrementalDexingBenchmark {
+
+  private ExecutorService executor;
+
+  @Setup
+  public void setup() {
+    int threads = Integer.min(Runtime.getRuntime().availableProcessors(), 16) / 2;
+    executor = ThreadUtils.getExecutorService(threads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  private void compile() throws CompilationFailedException {
+    D8.run(
+        D8Command.builder()
+            .addProgramFiles(Paths.get("build/test/examples/arithmetic.jar"))
+            .setMode(CompilationMode.DEBUG)
+            .setDisableDesugaring(true)
+            .setProgramConsumer(
+                new DexIndexedConsumer.ForwardingConsumer(null) {
+                  @Override
+                  public void accept(
+                      int fileIndex,
+                      ByteDataView data,
+                      Set<String> descriptors,
+                      DiagnosticsHandler handler) {
+                    if (fileIndex != 0) {
+                      throw new RuntimeException("Expected a single DEX file");
+                    }
+                  }
+                })
+            .build(),
+        executor);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  @Fork(10)
+  public void cold() throws CompilationFailedException {
+    compile();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @Warmup(iterations = 5)
+  @Measurement(iterations = 10)
+  @Fork(1)
+  public void warm() throws CompilationFailedException {
+    compile();
+  }
+}
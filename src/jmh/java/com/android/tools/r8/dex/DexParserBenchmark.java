@@ -0,0 +1,83 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import com.android.tools.r8.benchmarks.BenchmarkFixtures;
+import com.android.tools.r8.graph.ClassKind;
+import com.android.tools.r8.graph.DexClass;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing all classes of a DEX file, including their code, on a single thread and on a
+ * number of threads.
+ *
+ * <p>Each invocation uses a new item factory, as a compilation does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DexParserBenchmark {
+
+  @Param({"4"})
+  private int threads;
+
+  private byte[] dex;
+  private ExecutorService executor;
+
+  @Setup
+  public void setup() throws Exception {
+    dex = BenchmarkFixtures.compileProgramToDex();
+    executor = ThreadUtils.getExecutorService(threads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public List<DexClass> parse() {
+    DexReader reader = new DexReader(Origin.unknown(), dex);
+    DexParser parser = new DexParser(reader, ClassKind.PROGRAM, new InternalOptions());
+    parser.populateIndexTables();
+    List<DexClass> classes = new ArrayList<>();
+    parser.addClassDefsTo(classes::add);
+    return classes;
+  }
+
+  @Benchmark
+  public List<DexClass> parseInParallel() throws ExecutionException {
+    DexReader reader = new DexReader(Origin.unknown(), dex);
+    DexParser parser = new DexParser(reader, ClassKind.PROGRAM, new InternalOptions());
+    parser.populateIndexTables(executor);
+    List<DexClass> classes = new ArrayList<>();
+    List<Future<?>> futures = new ArrayList<>();
+    parser.addClassDefsTo(classes::add, executor, futures);
+    ThreadUtils.awaitFutures(futures);
+    return classes;
+  }
+}
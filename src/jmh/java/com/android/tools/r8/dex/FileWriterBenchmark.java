@@ -0,0 +1,71 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import com.android.tools.r8.ByteBufferProvider;
+import com.android.tools.r8.benchmarks.BenchmarkFixtures;
+import com.android.tools.r8.benchmarks.BenchmarkFixtures.InputFormat;
+import com.android.tools.r8.dex.FileWriter.ByteBufferResult;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.ObjectToOffsetMapping;
+import com.android.tools.r8.naming.NamingLens;
+import com.android.tools.r8.utils.InternalOptions;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures collecting the items of a DEX file and laying them out, once the contents of the file
+ * have been decided.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FileWriterBenchmark {
+
+  private final ByteBufferProvider provider = new ByteBufferProvider() {};
+
+  private DexApplication application;
+  private ObjectToOffsetMapping mapping;
+
+  @Setup
+  public void setup() throws Exception {
+    application = BenchmarkFixtures.readProgram(InputFormat.DEX, new InternalOptions());
+    VirtualFile file = new VirtualFile(0, NamingLens.getIdentityLens());
+    for (DexProgramClass clazz : application.classes()) {
+      // The writer expects these attributes to have been turned into annotations by the
+      // ApplicationWriter, which is not part of what is measured here.
+      clazz.clearEnclosingMethod();
+      clazz.clearInnerClasses();
+      file.addClass(clazz);
+      file.commitTransaction();
+    }
+    mapping = file.computeMapping(application);
+  }
+
+  @Benchmark
+  public ByteBufferResult write() {
+    FileWriter writer =
+        new FileWriter(
+            provider,
+            mapping,
+            MethodToCodeObjectMapping.fromMethodBacking(),
+            application,
+            application.options,
+            NamingLens.getIdentityLens());
+    return writer.collect().generate();
+  }
+}
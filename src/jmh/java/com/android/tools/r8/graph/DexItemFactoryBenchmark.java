@@ -0,0 +1,106 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures interning of types, protos, fields and methods in {@link DexItemFactory}.
+ *
+ * <p>The create benchmark interns items that are not yet in the factory. The lookup benchmark
+ * interns items that are already in the factory from all available threads, as happens when
+ * classes referencing the same library are processed concurrently.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DexItemFactoryBenchmark {
+  private static final int CLASSES = 2000;
+  private static final int MEMBERS = 20;
+
+  @State(Scope.Benchmark)
+  public static class Items {
+    DexItemFactory factory;
+    DexString[] descriptors;
+    DexString[] names;
+    final AtomicInteger nextOffset = new AtomicInteger();
+
+    void populate() {
+      factory = new DexItemFactory();
+      descriptors = new DexString[CLASSES];
+      for (int i = 0; i < CLASSES; i++) {
+        descriptors[i] = factory.createString("Lbenchmark/Class" + i + ";");
+      }
+      names = new DexString[MEMBERS];
+      for (int i = 0; i < MEMBERS; i++) {
+        names[i] = factory.createString("member" + i);
+      }
+    }
+  }
+
+  public static class NewItems extends Items {
+    @Setup(Level.Invocation)
+    public void setup() {
+      populate();
+    }
+  }
+
+  public static class ExistingItems extends Items {
+    @Setup
+    public void setup() {
+      populate();
+      intern(this, 0);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadOffset {
+    int offset;
+
+    @Setup
+    public void setup(ExistingItems items) {
+      // Start each thread at a different class, such that threads look up different items.
+      offset = items.nextOffset.getAndAdd(CLASSES / 8) % CLASSES;
+    }
+  }
+
+  private static void intern(Items items, int offset) {
+    DexItemFactory factory = items.factory;
+    for (int i = 0; i < CLASSES; i++) {
+      DexType holder = factory.createType(items.descriptors[(i + offset) % CLASSES]);
+      DexType other = factory.createType(items.descriptors[(i + offset + 1) % CLASSES]);
+      for (int j = 0; j < MEMBERS; j++) {
+        DexProto proto = factory.createProto(holder, other, factory.intType);
+        factory.createMethod(holder, proto, items.names[j]);
+        factory.createField(holder, other, items.names[j]);
+      }
+    }
+  }
+
+  @Benchmark
+  public void create(NewItems items) {
+    intern(items, 0);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public void lookup(ExistingItems items, ThreadOffset thread) {
+    intern(items, thread.offset);
+  }
+}
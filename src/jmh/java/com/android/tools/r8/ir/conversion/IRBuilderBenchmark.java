@@ -0,0 +1,59 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.conversion;
+
+import com.android.tools.r8.benchmarks.BenchmarkFixtures;
+import com.android.tools.r8.benchmarks.BenchmarkFixtures.InputFormat;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.InternalOptions;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Measures building the IR of all methods of the program from class file or DEX code. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class IRBuilderBenchmark {
+
+  @Param({"CF", "DEX"})
+  public InputFormat format;
+
+  private AppView<AppInfo> appView;
+  private List<DexEncodedMethod> methods;
+
+  @Setup
+  public void setup() throws Exception {
+    DexApplication application = BenchmarkFixtures.readProgram(format, new InternalOptions());
+    appView = BenchmarkFixtures.createAppView(application);
+    methods = BenchmarkFixtures.methodsWithCode(application);
+    // Class file code is parsed lazily. Build the IR once such that the parsing is not measured.
+    BenchmarkFixtures.buildIR(appView, methods);
+  }
+
+  @Benchmark
+  public void build(Blackhole blackhole) {
+    for (DexEncodedMethod method : methods) {
+      blackhole.consume(method.buildIR(appView, Origin.unknown()));
+    }
+  }
+}
@@ -0,0 +1,98 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.optimize;
+
+import com.android.tools.r8.benchmarks.BenchmarkFixtures;
+import com.android.tools.r8.benchmarks.BenchmarkFixtures.InputFormat;
+import com.android.tools.r8.errors.Unreachable;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.utils.InternalOptions;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures individual {@link CodeRewriter} passes over the IR of all methods of the program.
+ *
+ * <p>Only passes that do not depend on the result of tree shaking are included. The passes rewrite
+ * the IR in place, so the IR is rebuilt before each invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CodeRewriterBenchmark {
+
+  @Param({
+    "rewriteSwitch",
+    "simplifyIf",
+    "commonSubexpressionElimination",
+    "shortenLiveRanges",
+    "deadCodeRemoval"
+  })
+  public String pass;
+
+  private AppView<AppInfo> appView;
+  private CodeRewriter codeRewriter;
+  private DeadCodeRemover deadCodeRemover;
+  private List<DexEncodedMethod> methods;
+  private List<IRCode> codes;
+
+  @Setup
+  public void setup() throws Exception {
+    DexApplication application =
+        BenchmarkFixtures.readProgram(InputFormat.DEX, new InternalOptions());
+    appView = BenchmarkFixtures.createAppView(application);
+    codeRewriter = new CodeRewriter(appView, null);
+    deadCodeRemover = new DeadCodeRemover(appView, codeRewriter);
+    methods = BenchmarkFixtures.methodsWithCode(application);
+  }
+
+  @Setup(Level.Invocation)
+  public void buildIR() {
+    codes = BenchmarkFixtures.buildIR(appView, methods);
+  }
+
+  @Benchmark
+  public void rewrite() {
+    for (IRCode code : codes) {
+      switch (pass) {
+        case "rewriteSwitch":
+          codeRewriter.rewriteSwitch(code);
+          break;
+        case "simplifyIf":
+          codeRewriter.simplifyIf(code);
+          break;
+        case "commonSubexpressionElimination":
+          codeRewriter.commonSubexpressionElimination(code);
+          break;
+        case "shortenLiveRanges":
+          codeRewriter.shortenLiveRanges(code);
+          break;
+        case "deadCodeRemoval":
+          deadCodeRemover.run(code);
+          break;
+        default:
+          throw new Unreachable("Unexpected pass: " + pass);
+      }
+    }
+  }
+}
@@ -0,0 +1,100 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.regalloc;
+
+import com.android.tools.r8.benchmarks.BenchmarkFixtures;
+import com.android.tools.r8.benchmarks.BenchmarkFixtures.InputFormat;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.optimize.CodeRewriter;
+import com.android.tools.r8.ir.optimize.DeadCodeRemover;
+import com.android.tools.r8.utils.InternalOptions;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link LinearScanRegisterAllocator#allocateRegisters} for all methods of the program.
+ *
+ * <p>Register allocation takes the IR out of SSA form, so the IR is rebuilt before each invocation.
+ * The methods are grouped by the number of DEX instructions in their code, such that the
+ * allocation time can be compared across method sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RegisterAllocatorBenchmark {
+
+  /** Methods grouped by their number of DEX instructions, from inclusive to exclusive. */
+  public enum MethodSize {
+    SMALL(0, 32),
+    MEDIUM(32, 256),
+    LARGE(256, Integer.MAX_VALUE);
+
+    private final int from;
+    private final int to;
+
+    MethodSize(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    boolean contains(DexEncodedMethod method) {
+      int size = method.getCode().asDexCode().instructions.length;
+      return from <= size && size < to;
+    }
+  }
+
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  public MethodSize methodSize;
+
+  private AppView<AppInfo> appView;
+  private DeadCodeRemover deadCodeRemover;
+  private List<DexEncodedMethod> methods;
+  private List<IRCode> codes;
+
+  @Setup
+  public void setup() throws Exception {
+    DexApplication application =
+        BenchmarkFixtures.readProgram(InputFormat.DEX, new InternalOptions());
+    appView = BenchmarkFixtures.createAppView(application);
+    deadCodeRemover = new DeadCodeRemover(appView, new CodeRewriter(appView, null));
+    methods = BenchmarkFixtures.methodsWithCode(application);
+    methods.removeIf(method -> !methodSize.contains(method));
+  }
+
+  @Setup(Level.Invocation)
+  public void buildIR() {
+    codes = BenchmarkFixtures.buildIR(appView, methods);
+    // The register allocator does not allow dead code, see IRConverter.performRegisterAllocation.
+    codes.forEach(deadCodeRemover::run);
+  }
+
+  @Benchmark
+  public void allocateRegisters(Blackhole blackhole) {
+    for (IRCode code : codes) {
+      LinearScanRegisterAllocator allocator = new LinearScanRegisterAllocator(appView, code);
+      allocator.allocateRegisters();
+      blackhole.consume(allocator.registersUsed());
+    }
+  }
+}
@@ -0,0 +1,88 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.retrace;
+
+import com.android.tools.r8.benchmarks.BenchmarkFixtures;
+import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.naming.ClassNamingForNameMapper;
+import com.android.tools.r8.naming.ClassNamingForNameMapper.MappedRange;
+import com.android.tools.r8.naming.ClassNamingForNameMapper.MappedRangesOfName;
+import com.android.tools.r8.retrace.Retracer.RetracedFrame;
+import com.android.tools.r8.retrace.Retracer.StackFrame;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the number of stack frames retraced per second by a {@link Retracer}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RetracerBenchmark {
+
+  private static final int FRAMES = 100_000;
+
+  @Param({"1", "4"})
+  private int threads;
+
+  private Retracer retracer;
+  private List<StackFrame> frames;
+  private ExecutorService executor;
+
+  @Setup
+  public void setup() throws Exception {
+    ClassNameMapper mapper =
+        ClassNameMapper.mapperFromString(BenchmarkFixtures.compileProgramToProguardMap());
+    retracer = new Retracer(mapper);
+    // A frame for each mapped line of each method, and one without a line for each method.
+    List<StackFrame> mappedFrames = new ArrayList<>();
+    for (String className : mapper.getObfuscatedToOriginalMapping().original.keySet()) {
+      ClassNamingForNameMapper classNaming = mapper.getClassNaming(className);
+      for (Entry<String, MappedRangesOfName> entry :
+          classNaming.mappedRangesByRenamedName.entrySet()) {
+        mappedFrames.add(new StackFrame(className, entry.getKey(), -1));
+        for (MappedRange range : entry.getValue().getMappedRanges()) {
+          if (range.minifiedRange != null) {
+            mappedFrames.add(new StackFrame(className, entry.getKey(), range.minifiedRange.from));
+          }
+        }
+      }
+    }
+    frames = new ArrayList<>(FRAMES);
+    for (int i = 0; i < FRAMES; i++) {
+      frames.add(mappedFrames.get(i % mappedFrames.size()));
+    }
+    executor = ThreadUtils.getExecutorService(threads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(FRAMES)
+  public List<List<RetracedFrame>> retrace() throws ExecutionException {
+    return retracer.retrace(frames, executor);
+  }
+}
@@ -0,0 +1,82 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.ArchiveClassFileProvider;
+import com.android.tools.r8.benchmarks.BenchmarkFixtures;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares reading all class files of android.jar through {@link java.util.zip.ZipFile} (as done
+ * by {@link ArchiveClassFileProvider}) and through a {@link MappedZipArchive}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ArchiveReadingBenchmark {
+
+  @Setup
+  public void setup() throws Exception {
+    // Check that both ways of reading agree.
+    if (readWithMapping() != readWithZipFile()) {
+      throw new IllegalStateException(
+          "Mismatch in content read from " + BenchmarkFixtures.LIBRARY_JAR);
+    }
+  }
+
+  @Benchmark
+  public long readWithZipFile() throws Exception {
+    long bytes = 0;
+    ArchiveClassFileProvider provider =
+        new ArchiveClassFileProvider(BenchmarkFixtures.LIBRARY_JAR);
+    try {
+      for (String descriptor : provider.getClassDescriptors()) {
+        try (InputStream stream = provider.getProgramResource(descriptor).getByteStream()) {
+          bytes += ByteStreams.toByteArray(stream).length;
+        }
+      }
+    } finally {
+      provider.close();
+    }
+    return bytes;
+  }
+
+  @Benchmark
+  public long readWithMapping() throws IOException {
+    MappedZipArchive mapped = MappedZipArchive.open(BenchmarkFixtures.LIBRARY_JAR);
+    if (mapped == null) {
+      throw new IOException("Archive cannot be mapped: " + BenchmarkFixtures.LIBRARY_JAR);
+    }
+    List<Integer> entries = new ArrayList<>();
+    mapped.forEachEntry(
+        (name, entry) -> {
+          if (ZipUtils.isClassFile(name)) {
+            entries.add(entry);
+          }
+        });
+    long bytes = 0;
+    for (int entry : entries) {
+      bytes += mapped.read(entry).length;
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,44 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+/**
+ * Interface for receiving a String resource in parts.
+ *
+ * <p>Large resources, such as the Proguard map, are passed to a consumer that implements this
+ * interface as a sequence of chunks by calls to {@link #acceptChunk}, followed by a single call to
+ * {@link #finished}. The resource is the concatenation of the chunks in the order they are passed.
+ * This allows the consumer to write the resource as it is produced, without the compiler holding
+ * the entire resource in memory.
+ */
+@KeepForSubclassing
+public interface ChunkedStringConsumer extends StringConsumer {
+
+  /**
+   * Callback to receive the next part of a String resource.
+   *
+   * <p>The consumer is expected not to throw, but instead report any errors via the diagnostics
+   * {@param handler}. If an error is reported via {@param handler} and no exceptions are thrown,
+   * then the compiler guaranties to exit with an error.
+   *
+   * @param chunk Next part of the String resource.
+   * @param handler Diagnostics handler for reporting.
+   */
+  void acceptChunk(String chunk, DiagnosticsHandler handler);
+
+  /**
+   * Callback signaling that all parts of the String resource have been passed to {@link
+   * #acceptChunk}.
+   *
+   * @param handler Diagnostics handler for reporting.
+   */
+  void finished(DiagnosticsHandler handler);
+
+  /** Receives a String resource as a single chunk. */
+  @Override
+  default void accept(String string, DiagnosticsHandler handler) {
+    acceptChunk(string, handler);
+    finished(handler);
+  }
+}
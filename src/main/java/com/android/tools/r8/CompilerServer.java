@@ -0,0 +1,244 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+import com.android.tools.r8.origin.CommandLineOrigin;
+import com.android.tools.r8.utils.FileUtils;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.google.common.collect.ImmutableList;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Long-lived compiler process running D8 and R8 compilations read from standard input.
+ *
+ * <p>Keeping the compiler resident avoids paying for JVM start-up and JIT warm-up on every
+ * invocation. Library archives passed with {@code --lib} are opened once and the class-file
+ * content read from them is shared by all requests. All other compiler state, in particular the
+ * {@link com.android.tools.r8.graph.DexItemFactory} and the options, is created per request.
+ */
+public final class CompilerServer {
+
+  private static final String USAGE_MESSAGE =
+      String.join(
+          "\n",
+          ImmutableList.of(
+              "Usage: java -cp r8.jar com.android.tools.r8.CompilerServer",
+              "",
+              " Reads one compilation request per line from standard input. A request is the tool",
+              " name 'd8' or 'r8' followed by its command-line options, all separated by TAB",
+              " characters. For each request a line with the exit status and the elapsed time in",
+              " milliseconds, separated by a TAB character, is written to standard output.",
+              " The server exits on end of input or on the request 'exit'."));
+
+  public static final int STATUS_OK = 0;
+  public static final int STATUS_ERROR = 1;
+
+  /**
+   * Class-file provider for a library archive that retains the content of all classes read from
+   * it such that subsequent compilations do not read and inflate the archive entries again.
+   */
+  static class SharedLibraryProvider implements ClassFileResourceProvider {
+
+    private final ArchiveClassFileProvider archive;
+    private final FileTime lastModified;
+    private final Map<String, ProgramResource> resources = new ConcurrentHashMap<>();
+    private boolean closed = false;
+
+    SharedLibraryProvider(Path path) throws IOException {
+      this.lastModified = Files.getLastModifiedTime(path);
+      this.archive = new ArchiveClassFileProvider(path);
+    }
+
+    boolean isUpToDate(Path path) throws IOException {
+      return Files.getLastModifiedTime(path).equals(lastModified);
+    }
+
+    @Override
+    public Set<String> getClassDescriptors() {
+      return archive.getClassDescriptors();
+    }
+
+    @Override
+    public ProgramResource getProgramResource(String descriptor) {
+      ProgramResource resource = resources.get(descriptor);
+      if (resource == null) {
+        resource = archive.getProgramResource(descriptor);
+        if (resource != null) {
+          resources.put(descriptor, resource);
+        }
+      }
+      return resource;
+    }
+
+    void close() throws IOException {
+      closed = true;
+      archive.close();
+    }
+
+    boolean isClosed() {
+      return closed;
+    }
+  }
+
+  private final ExecutorService executor;
+  private final Map<Path, SharedLibraryProvider> libraries = new HashMap<>();
+
+  public CompilerServer(ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  private synchronized ClassFileResourceProvider getSharedLibrary(Path path) throws IOException {
+    Path key = path.toAbsolutePath().normalize();
+    SharedLibraryProvider provider = libraries.get(key);
+    if (provider != null && !provider.isUpToDate(key)) {
+      provider.close();
+      provider = null;
+    }
+    if (provider == null) {
+      provider = new SharedLibraryProvider(key);
+      libraries.put(key, provider);
+    }
+    return provider;
+  }
+
+  // Returns the shared providers by the absolute path of their archive, for testing.
+  synchronized Map<Path, SharedLibraryProvider> getSharedLibraries() {
+    return new HashMap<>(libraries);
+  }
+
+  /**
+   * Split off library archives from the command-line such that they can be served from the shared
+   * providers. Returns the remaining arguments.
+   */
+  private String[] extractLibraryArchives(String[] args, List<Path> libraryArchives) {
+    List<String> remaining = new ArrayList<>(args.length);
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--lib") && i + 1 < args.length) {
+        Path library = Paths.get(args[i + 1]);
+        if (FileUtils.isArchive(library) && Files.isRegularFile(library)) {
+          libraryArchives.add(library);
+          i++;
+          continue;
+        }
+      }
+      remaining.add(args[i]);
+    }
+    return remaining.toArray(new String[0]);
+  }
+
+  /**
+   * Run a single compilation request.
+   *
+   * @param tool Name of the tool, either "d8" or "r8".
+   * @param args Command-line arguments for the tool.
+   */
+  public void compile(String tool, String[] args) throws CompilationFailedException, IOException {
+    List<Path> libraryArchives = new ArrayList<>();
+    String[] remaining = extractLibraryArchives(args, libraryArchives);
+    switch (tool) {
+      case "d8":
+        {
+          D8Command.Builder builder = D8Command.parse(remaining, CommandLineOrigin.INSTANCE);
+          for (Path library : libraryArchives) {
+            builder.addLibraryResourceProvider(getSharedLibrary(library));
+          }
+          D8Command command = builder.build();
+          if (command.isPrintHelp() || command.isPrintVersion()) {
+            // Standard output is reserved for responses.
+            System.err.println(command.isPrintHelp() ? D8Command.USAGE_MESSAGE : Version.LABEL);
+            break;
+          }
+          D8.run(command, executor);
+          break;
+        }
+      case "r8":
+        {
+          R8Command.Builder builder = R8Command.parse(remaining, CommandLineOrigin.INSTANCE);
+          for (Path library : libraryArchives) {
+            builder.addLibraryResourceProvider(getSharedLibrary(library));
+          }
+          R8Command command = builder.build();
+          if (command.isPrintHelp() || command.isPrintVersion()) {
+            // Standard output is reserved for responses.
+            System.err.println(command.isPrintHelp() ? R8Command.USAGE_MESSAGE : Version.LABEL);
+            break;
+          }
+          R8.run(command, executor);
+          break;
+        }
+      default:
+        throw new IllegalArgumentException("Unknown tool: " + tool);
+    }
+  }
+
+  private int handleRequest(String[] request) {
+    try {
+      compile(request[0], Arrays.copyOfRange(request, 1, request.length));
+      return STATUS_OK;
+    } catch (CompilationFailedException e) {
+      // Details of the errors were already reported.
+      return STATUS_ERROR;
+    } catch (IOException | RuntimeException e) {
+      e.printStackTrace();
+      return STATUS_ERROR;
+    }
+  }
+
+  public void serve(BufferedReader input, PrintStream output) throws IOException {
+    String line;
+    while ((line = input.readLine()) != null) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      if (line.equals("exit")) {
+        break;
+      }
+      long start = System.nanoTime();
+      int status = handleRequest(line.split("\t"));
+      long elapsedMs = (System.nanoTime() - start) / 1000000;
+      output.println(status + "\t" + elapsedMs);
+      output.flush();
+    }
+  }
+
+  public synchronized void shutdown() throws IOException {
+    for (SharedLibraryProvider provider : libraries.values()) {
+      provider.close();
+    }
+    libraries.clear();
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 0) {
+      System.err.println(USAGE_MESSAGE);
+      System.exit(STATUS_ERROR);
+    }
+    ExecutorService executor = ThreadUtils.getExecutorService(ThreadUtils.NOT_SPECIFIED);
+    CompilerServer server = new CompilerServer(executor);
+    try {
+      server.serve(
+          new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+          System.out);
+    } finally {
+      server.shutdown();
+      executor.shutdown();
+    }
+  }
+}
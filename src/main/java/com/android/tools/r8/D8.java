@@ -8,6 +8,7 @@ import static com.android.tools.r8.utils.ExceptionUtils.unwrapExecutionException
 
 import com.android.tools.r8.dex.ApplicationReader;
 import com.android.tools.r8.dex.ApplicationWriter;
+import com.android.tools.r8.dex.DexingCache;
 import com.android.tools.r8.dex.Marker;
 import com.android.tools.r8.dex.Marker.Tool;
 import com.android.tools.r8.graph.AppInfo;
@@ -142,7 +143,7 @@ public final class D8 {
 
   private static void run(AndroidApp inputApp, InternalOptions options, ExecutorService executor)
       throws IOException {
-    Timing timing = new Timing("D8");
+    Timing timing = new Timing("D8", options.printMemory, options.printTimes);
     try {
       // Disable global optimizations.
       options.disableGlobalOptimizations();
@@ -150,10 +151,22 @@ public final class D8 {
       DexApplication app = new ApplicationReader(inputApp, options, timing).read(executor);
       AppInfo appInfo = new AppInfo(app);
 
+      DexingCache dexingCache = options.dexingCache;
+      if (dexingCache != null) {
+        timing.begin("Dexing cache lookup");
+        DexFilePerClassFileConsumer consumer = options.getDexFilePerClassFileConsumer();
+        dexingCache.lookup(app, consumer);
+        options.programConsumer = dexingCache.wrapConsumer(consumer);
+        timing.end();
+      }
+
       final CfgPrinter printer = options.printCfg ? new CfgPrinter() : null;
 
       IRConverter converter = new IRConverter(appInfo, options, timing, printer);
       app = converter.convert(app, executor);
+      if (dexingCache != null) {
+        app = dexingCache.removeCachedClasses(app);
+      }
 
       if (options.printCfg) {
         if (options.printCfgFile == null || options.printCfgFile.isEmpty()) {
@@ -203,6 +216,9 @@ public final class D8 {
                   options, converter.getAdditionalRewritePrefix()),
               null)
           .write(executor);
+      if (dexingCache != null) {
+        options.reporter.info(dexingCache.getDiagnostic());
+      }
       options.printWarnings();
     } catch (ExecutionException e) {
       throw unwrapExecutionException(e);
@@ -3,6 +3,7 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8;
 
+import com.android.tools.r8.dex.DexingCache;
 import com.android.tools.r8.errors.DexFileOverflowDiagnostic;
 import com.android.tools.r8.graph.DexItemFactory;
 import com.android.tools.r8.origin.Origin;
@@ -11,6 +12,7 @@ import com.android.tools.r8.utils.AndroidApp;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.function.BiPredicate;
@@ -65,6 +67,7 @@ public final class D8Command extends BaseCompilerCommand {
 
     private boolean intermediate = false;
     private DesugarGraphConsumer desugarGraphConsumer = null;
+    private Path dexingCacheDirectory = null;
 
     private Builder() {
       this(new DefaultD8DiagnosticsHandler());
@@ -128,6 +131,23 @@ public final class D8Command extends BaseCompilerCommand {
       return self();
     }
 
+    /** Get the directory used for caching the DEX output of unchanged class files. */
+    public Path getDexingCacheDirectory() {
+      return dexingCacheDirectory;
+    }
+
+    /**
+     * Set a directory for caching the DEX output of class files across compilations.
+     *
+     * <p>The cache is only supported when compiling to a DEX file per class file. Class files that
+     * are unchanged since a previous compilation with the same configuration are not compiled
+     * again, their DEX output is read from the cache instead.
+     */
+    public Builder setDexingCacheDirectory(Path dexingCacheDirectory) {
+      this.dexingCacheDirectory = dexingCacheDirectory;
+      return self();
+    }
+
     @Override
     Builder self() {
       return this;
@@ -166,6 +186,17 @@ public final class D8Command extends BaseCompilerCommand {
           && !getSpecialLibraryConfiguration().equals("default")) {
         reporter.error("D8 currently require special library configuration to be \"default\"");
       }
+      if (dexingCacheDirectory != null) {
+        if (!(getProgramConsumer() instanceof DexFilePerClassFileConsumer)
+            || !((DexFilePerClassFileConsumer) getProgramConsumer())
+                .combineSyntheticClassesWithPrimaryClass()) {
+          reporter.error("Option --dexing-cache requires --file-per-class");
+        }
+        if (Files.exists(dexingCacheDirectory) && !Files.isDirectory(dexingCacheDirectory)) {
+          reporter.error(
+              "Dexing cache '" + dexingCacheDirectory.toString() + "' is not a directory");
+        }
+      }
       super.validate();
     }
 
@@ -190,7 +221,8 @@ public final class D8Command extends BaseCompilerCommand {
           getSpecialLibraryConfiguration(),
           getIncludeClassesChecksum(),
           getDexClassChecksumFilter(),
-          getDesugarGraphConsumer());
+          getDesugarGraphConsumer(),
+          dexingCacheDirectory);
     }
   }
 
@@ -198,6 +230,7 @@ public final class D8Command extends BaseCompilerCommand {
 
   private final boolean intermediate;
   private final DesugarGraphConsumer desugarGraphConsumer;
+  private final Path dexingCacheDirectory;
 
   public static Builder builder() {
     return new Builder();
@@ -252,7 +285,8 @@ public final class D8Command extends BaseCompilerCommand {
       String specialLibraryConfiguration,
       boolean encodeChecksum,
       BiPredicate<String, Long> dexClassChecksumFilter,
-      DesugarGraphConsumer desugarGraphConsumer) {
+      DesugarGraphConsumer desugarGraphConsumer,
+      Path dexingCacheDirectory) {
     super(
         inputApp,
         mode,
@@ -267,12 +301,14 @@ public final class D8Command extends BaseCompilerCommand {
         dexClassChecksumFilter);
     this.intermediate = intermediate;
     this.desugarGraphConsumer = desugarGraphConsumer;
+    this.dexingCacheDirectory = dexingCacheDirectory;
   }
 
   private D8Command(boolean printHelp, boolean printVersion) {
     super(printHelp, printVersion);
     intermediate = false;
     desugarGraphConsumer = null;
+    dexingCacheDirectory = null;
   }
 
   private void configureLibraryDesugaring(InternalOptions options) {
@@ -330,6 +366,10 @@ public final class D8Command extends BaseCompilerCommand {
       configureLibraryDesugaring(internal);
     }
 
+    if (dexingCacheDirectory != null) {
+      internal.dexingCache = new DexingCache(dexingCacheDirectory, internal);
+    }
+
     return internal;
   }
 }
@@ -30,7 +30,8 @@ public class D8CommandParser extends BaseCompilerCommandParser {
           "--classpath",
           "--min-api",
           "--main-dex-list",
-          "--main-dex-list-output");
+          "--main-dex-list-output",
+          "--dexing-cache");
 
   private static final String APK_EXTENSION = ".apk";
   private static final String JAR_EXTENSION = ".jar";
@@ -124,6 +125,8 @@ public class D8CommandParser extends BaseCompilerCommandParser {
               "                          # merging.",
               "  --file-per-class        # Produce a separate dex file per input class",
               "  --no-desugaring         # Force disable desugaring.",
+              "  --dexing-cache <dir>    # Reuse the output of unchanged class files from <dir>.",
+              "                          # Requires --file-per-class.",
               "  --main-dex-list <file>  # List of classes to place in the primary dex file.",
               "  --main-dex-list-output <file>",
               "                          # Output resulting main dex list in <file>.",
@@ -245,6 +248,12 @@ public class D8CommandParser extends BaseCompilerCommandParser {
         builder.setIntermediate(true);
       } else if (arg.equals("--no-desugaring")) {
         builder.setDisableDesugaring(true);
+      } else if (arg.equals("--dexing-cache")) {
+        if (builder.getDexingCacheDirectory() != null) {
+          builder.error(new StringDiagnostic("Cannot set multiple --dexing-cache options", origin));
+          continue;
+        }
+        builder.setDexingCacheDirectory(Paths.get(nextArg));
       } else {
         if (arg.startsWith("--")) {
           builder.error(new StringDiagnostic("Unknown option: " + arg, origin));
@@ -16,6 +16,7 @@ import com.android.tools.r8.graph.AppInfoWithSubtyping;
 import com.android.tools.r8.graph.AppServices;
 import com.android.tools.r8.graph.AppView;
 import com.android.tools.r8.graph.AppliedGraphLens;
+import com.android.tools.r8.graph.CachingGraphLense;
 import com.android.tools.r8.graph.DexApplication;
 import com.android.tools.r8.graph.DexCallSite;
 import com.android.tools.r8.graph.DexClass;
@@ -144,7 +145,7 @@ public class R8 {
     if (options.printMemory) {
       System.gc();
     }
-    this.timing = new Timing("R8", options.printMemory);
+    this.timing = new Timing("R8", options.printMemory, options.printTimes);
     options.itemFactory.resetSortedIndices();
   }
 
@@ -529,6 +530,10 @@ public class R8 {
 
       appView.setAppServices(appView.appServices().rewrittenWithLens(appView.graphLense()));
 
+      // The code of all methods is rewritten with the graph lens during IR processing, so cache the
+      // results of looking up references in the chain of lenses from the optimizations above.
+      appView.setGraphLense(CachingGraphLense.create(appView.graphLense()));
+
       timing.begin("Create IR");
       Map<String, String> additionalRewritePrefix;
       Set<DexCallSite> desugaredCallSites;
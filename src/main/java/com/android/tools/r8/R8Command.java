@@ -17,6 +17,7 @@ import com.android.tools.r8.shaking.ProguardConfigurationSource;
 import com.android.tools.r8.shaking.ProguardConfigurationSourceBytes;
 import com.android.tools.r8.shaking.ProguardConfigurationSourceFile;
 import com.android.tools.r8.shaking.ProguardConfigurationSourceStrings;
+import com.android.tools.r8.shaking.TracingCache;
 import com.android.tools.r8.utils.AndroidApiLevel;
 import com.android.tools.r8.utils.AndroidApp;
 import com.android.tools.r8.utils.ExceptionDiagnostic;
@@ -825,6 +826,11 @@ public final class R8Command extends BaseCompilerCommand {
 
     internal.enableInheritanceClassInDexDistributor = isOptimizeMultidexForLinearAlloc();
 
+    if (internal.tracingCacheDirectory != null) {
+      internal.tracingCache =
+          new TracingCache(Paths.get(internal.tracingCacheDirectory), internal);
+    }
+
     // TODO(134732760): This is still work in progress.
     assert internal.rewritePrefix.isEmpty();
     assert internal.emulateLibraryInterface.isEmpty();
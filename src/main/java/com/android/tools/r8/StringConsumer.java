@@ -10,6 +10,7 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -36,7 +37,7 @@ public interface StringConsumer {
   }
 
   /** Empty consumer to request the production of the resource but ignore its value. */
-  class EmptyConsumer implements StringConsumer {
+  class EmptyConsumer implements ChunkedStringConsumer {
 
     private static final EmptyConsumer EMPTY_CONSUMER = new EmptyConsumer();
 
@@ -44,12 +45,24 @@ public interface StringConsumer {
     public void accept(String string, DiagnosticsHandler handler) {
       // Ignore content.
     }
+
+    @Override
+    public void acceptChunk(String chunk, DiagnosticsHandler handler) {
+      // Ignore content.
+    }
+
+    @Override
+    public void finished(DiagnosticsHandler handler) {
+      // Ignore content.
+    }
   }
 
   /** Forwarding consumer to delegate to an optional existing consumer. */
   class ForwardingConsumer implements StringConsumer {
 
     private final StringConsumer consumer;
+    // The chunks received so far, if the consumer to forward to does not accept chunks.
+    private StringBuilder pendingChunks;
 
     /** @param consumer Consumer to forward to, if null, nothing will be forwarded. */
     public ForwardingConsumer(StringConsumer consumer) {
@@ -62,14 +75,42 @@ public interface StringConsumer {
         consumer.accept(string, handler);
       }
     }
+
+    void forwardChunk(String chunk, DiagnosticsHandler handler) {
+      if (consumer instanceof ChunkedStringConsumer) {
+        ((ChunkedStringConsumer) consumer).acceptChunk(chunk, handler);
+      } else if (consumer != null) {
+        if (pendingChunks == null) {
+          pendingChunks = new StringBuilder();
+        }
+        pendingChunks.append(chunk);
+      }
+    }
+
+    void forwardFinished(DiagnosticsHandler handler) {
+      if (consumer instanceof ChunkedStringConsumer) {
+        ((ChunkedStringConsumer) consumer).finished(handler);
+      } else if (consumer != null) {
+        String string = pendingChunks == null ? "" : pendingChunks.toString();
+        pendingChunks = null;
+        consumer.accept(string, handler);
+      }
+    }
   }
 
-  /** File consumer to write contents to a file-system file. */
+  /**
+   * File consumer to write contents to a file-system file.
+   *
+   * <p>When the contents are given in chunks, each chunk is written to the file as it is received.
+   */
   @Keep // TODO(b/121121779) Extend keep-annotation to public inner classes and remove this.
-  class FileConsumer extends ForwardingConsumer {
+  class FileConsumer extends ForwardingConsumer implements ChunkedStringConsumer {
 
     private final Path outputPath;
     private Charset encoding = StandardCharsets.UTF_8;
+    // The writer for the file while chunks are received, null if writing the chunks failed.
+    private Writer writer;
+    private boolean receivingChunks = false;
 
     /** Consumer that writes to {@param outputPath}. */
     public FileConsumer(Path outputPath) {
@@ -112,6 +153,65 @@ public interface StringConsumer {
         handler.error(new ExceptionDiagnostic(e, origin));
       }
     }
+
+    @Override
+    public void acceptChunk(String chunk, DiagnosticsHandler handler) {
+      forwardChunk(chunk, handler);
+      openWriterForChunks(handler);
+      if (writer != null) {
+        try {
+          writer.write(chunk);
+        } catch (IOException e) {
+          failChunks(e, handler);
+        }
+      }
+    }
+
+    @Override
+    public void finished(DiagnosticsHandler handler) {
+      forwardFinished(handler);
+      // Without any chunks the file is still created, as for an empty string.
+      openWriterForChunks(handler);
+      receivingChunks = false;
+      if (writer != null) {
+        try {
+          writer.close();
+          writer = null;
+        } catch (IOException e) {
+          failChunks(e, handler);
+        }
+      }
+    }
+
+    private void openWriterForChunks(DiagnosticsHandler handler) {
+      if (receivingChunks) {
+        return;
+      }
+      receivingChunks = true;
+      try {
+        Path parent = outputPath.getParent();
+        if (parent != null && !parent.toFile().exists()) {
+          Files.createDirectories(parent);
+        }
+        writer =
+            new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(outputPath), encoding));
+      } catch (IOException e) {
+        failChunks(e, handler);
+      }
+    }
+
+    private void failChunks(IOException e, DiagnosticsHandler handler) {
+      if (writer != null) {
+        try {
+          writer.close();
+        } catch (IOException suppressed) {
+          e.addSuppressed(suppressed);
+        }
+        writer = null;
+      }
+      // The remaining chunks are ignored, such that the error is only reported once.
+      handler.error(new ExceptionDiagnostic(e, new PathOrigin(outputPath)));
+    }
   }
 
   /**
@@ -121,11 +221,13 @@ public interface StringConsumer {
    * the closing needs to happen outside of the compilation itself. If the stream is not one of the
    * standard streams, i.e., System.out or System.err, you should likely implement yor own consumer.
    */
-  class StreamConsumer extends ForwardingConsumer {
+  class StreamConsumer extends ForwardingConsumer implements ChunkedStringConsumer {
 
     private final Origin origin;
     private final OutputStream outputStream;
     private Charset encoding = StandardCharsets.UTF_8;
+    // The writer for the stream while chunks are received.
+    private BufferedWriter writer;
 
     /** Consumer that writes to {@param outputStream}. */
     public StreamConsumer(Origin origin, OutputStream outputStream) {
@@ -159,5 +261,32 @@ public interface StringConsumer {
         handler.error(new ExceptionDiagnostic(e, origin));
       }
     }
+
+    @Override
+    public void acceptChunk(String chunk, DiagnosticsHandler handler) {
+      forwardChunk(chunk, handler);
+      if (writer == null) {
+        // As above, this writer is flushed but never closed.
+        writer = new BufferedWriter(new OutputStreamWriter(outputStream, encoding.newEncoder()));
+      }
+      try {
+        writer.write(chunk);
+      } catch (IOException e) {
+        handler.error(new ExceptionDiagnostic(e, origin));
+      }
+    }
+
+    @Override
+    public void finished(DiagnosticsHandler handler) {
+      forwardFinished(handler);
+      if (writer != null) {
+        try {
+          writer.flush();
+        } catch (IOException e) {
+          handler.error(new ExceptionDiagnostic(e, origin));
+        }
+        writer = null;
+      }
+    }
   }
 }
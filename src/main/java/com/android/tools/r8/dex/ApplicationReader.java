@@ -230,7 +230,7 @@ public class ApplicationReader {
 
     private <T extends DexClass> void readDexSources(
         List<ProgramResource> dexSources, ClassKind classKind, Queue<T> classes)
-        throws IOException, ResourceException {
+        throws IOException, ResourceException, ExecutionException {
       if (dexSources.size() > 0) {
         List<DexParser> dexParsers = new ArrayList<>(dexSources.size());
         int computedMinApiLevel = options.minApiLevel;
@@ -243,16 +243,18 @@ public class ApplicationReader {
         }
 
         options.minApiLevel = computedMinApiLevel;
+        // The index tables of large files are populated in parallel.
         for (DexParser dexParser : dexParsers) {
-          dexParser.populateIndexTables();
+          dexParser.populateIndexTables(executorService);
         }
-        // Read the DexCode items and DexProgramClass items in parallel.
+        // Read the DexCode items and DexProgramClass items in parallel, both across files and
+        // within large files.
         if (!options.skipReadingDexCode) {
           for (DexParser dexParser : dexParsers) {
-            futures.add(executorService.submit(() -> {
-              dexParser.addClassDefsTo(
-                  classKind.bridgeConsumer(classes::add)); // Depends on Methods, Code items etc.
-            }));
+            dexParser.addClassDefsTo(
+                classKind.bridgeConsumer(classes::add), // Depends on Methods, Code items etc.
+                executorService,
+                futures);
           }
         }
       }
@@ -279,7 +281,7 @@ public class ApplicationReader {
       return reader;
     }
 
-    JarClassFileReader readSources() throws IOException, ResourceException {
+    JarClassFileReader readSources() throws IOException, ResourceException, ExecutionException {
       Collection<ProgramResource> resources = inputApp.computeAllProgramResources();
       List<ProgramResource> dexResources = new ArrayList<>(resources.size());
       List<ProgramResource> cfResources = new ArrayList<>(resources.size());
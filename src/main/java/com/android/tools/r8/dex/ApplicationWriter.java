@@ -49,8 +49,11 @@ import com.google.common.collect.ObjectArrays;
 import com.google.common.primitives.Longs;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.List;
@@ -181,7 +184,7 @@ public class ApplicationWriter {
     this.programConsumer = consumer;
   }
 
-  private Iterable<VirtualFile> distribute(ExecutorService executorService)
+  private Collection<VirtualFile> distribute(ExecutorService executorService)
       throws ExecutionException, IOException {
     // Distribute classes into dex files.
     VirtualFile.Distributor distributor;
@@ -197,7 +200,7 @@ public class ApplicationWriter {
       distributor = new VirtualFile.FillFilesDistributor(this, options, executorService);
     }
 
-    Iterable<VirtualFile> result = distributor.run();
+    Collection<VirtualFile> result = distributor.run();
     return result;
   }
 
@@ -277,8 +280,7 @@ public class ApplicationWriter {
       insertAttributeAnnotations();
 
       // Generate the dex file contents.
-      List<Future<Boolean>> dexDataFutures = new ArrayList<>();
-      Iterable<VirtualFile> virtualFiles = distribute(executorService);
+      Collection<VirtualFile> virtualFiles = distribute(executorService);
       if (options.encodeChecksums) {
         encodeChecksums(virtualFiles);
       }
@@ -291,57 +293,16 @@ public class ApplicationWriter {
       SortAnnotations sortAnnotations = new SortAnnotations();
       application.classes().forEach((clazz) -> clazz.addDependencies(sortAnnotations));
 
+      Deque<VirtualFile> pendingFiles = new ArrayDeque<>();
       for (VirtualFile virtualFile : virtualFiles) {
-        if (virtualFile.isEmpty()) {
-          continue;
+        if (!virtualFile.isEmpty()) {
+          pendingFiles.add(virtualFile);
         }
-        dexDataFutures.add(
-            executorService.submit(
-                () -> {
-                  ProgramConsumer consumer;
-                  ByteBufferProvider byteBufferProvider;
-                  if (programConsumer != null) {
-                    consumer = programConsumer;
-                    byteBufferProvider = programConsumer;
-                  } else if (virtualFile.getPrimaryClassDescriptor() != null) {
-                    consumer = options.getDexFilePerClassFileConsumer();
-                    byteBufferProvider = options.getDexFilePerClassFileConsumer();
-                  } else {
-                    consumer = options.getDexIndexedConsumer();
-                    byteBufferProvider = options.getDexIndexedConsumer();
-                  }
-                  ObjectToOffsetMapping objectMapping = virtualFile.computeMapping(application);
-                  MethodToCodeObjectMapping codeMapping =
-                      rewriteCodeWithJumboStrings(
-                          objectMapping, virtualFile.classes(), application);
-                  ByteBufferResult result =
-                      writeDexFile(objectMapping, codeMapping, byteBufferProvider);
-                  ByteDataView data =
-                      new ByteDataView(
-                          result.buffer.array(), result.buffer.arrayOffset(), result.length);
-                  if (consumer instanceof DexFilePerClassFileConsumer) {
-                    ((DexFilePerClassFileConsumer) consumer)
-                        .accept(
-                            virtualFile.getPrimaryClassDescriptor(),
-                            data,
-                            virtualFile.getClassDescriptors(),
-                            options.reporter);
-                  } else {
-                    ((DexIndexedConsumer) consumer)
-                        .accept(
-                            virtualFile.getId(),
-                            data,
-                            virtualFile.getClassDescriptors(),
-                            options.reporter);
-                  }
-                  // Release use of the backing buffer now that accept has returned.
-                  data.invalidate();
-                  byteBufferProvider.releaseByteBuffer(result.buffer.asByteBuffer());
-                  return true;
-                }));
       }
-      // Wait for all files to be processed before moving on.
-      ThreadUtils.awaitFutures(dexDataFutures);
+      // Drop the references held by the distribution, such that each file can be collected as soon
+      // as it has been written.
+      virtualFiles.clear();
+      writeVirtualFiles(pendingFiles, executorService);
       // Fail if there are pending errors, e.g., the program consumers may have reported errors.
       options.reporter.failIfPendingErrors();
       // Supply info to all additional resource consumers.
@@ -352,12 +313,79 @@ public class ApplicationWriter {
           namingLens,
           options,
           deadCode,
-          proguardMapAndId == null ? null : proguardMapAndId.map);
+          proguardMapAndId);
     } finally {
       application.timing.end();
     }
   }
 
+  /**
+   * Lay out each file and pass it to the program consumer on the executor.
+   *
+   * <p>The files are started in order and at most {@link InternalOptions#getMaxDexFilesInFlight}
+   * files are laid out or waiting to be accepted at any time. The buffer of a file is released as
+   * soon as the consumer has accepted it. As consumers writing archives must emit files in order,
+   * a new file is only started once the oldest file in flight is done. This bounds the number of
+   * files the consumer has to hold on to as well.
+   */
+  private void writeVirtualFiles(Deque<VirtualFile> pendingFiles, ExecutorService executorService)
+      throws ExecutionException {
+    int maxFilesInFlight = options.getMaxDexFilesInFlight();
+    Deque<Future<?>> filesInFlight = new ArrayDeque<>();
+    try {
+      while (!pendingFiles.isEmpty()) {
+        if (filesInFlight.size() >= maxFilesInFlight) {
+          ThreadUtils.awaitFutures(Collections.singletonList(filesInFlight.removeFirst()));
+        }
+        VirtualFile virtualFile = pendingFiles.removeFirst();
+        filesInFlight.addLast(
+            executorService.submit(
+                () -> {
+                  application.timing.scope("Write dex file", () -> writeVirtualFile(virtualFile));
+                  return null; // we want a Callable not a Runnable to be able to throw
+                }));
+      }
+    } finally {
+      // Wait for all files to be processed before moving on.
+      ThreadUtils.awaitFutures(filesInFlight);
+    }
+  }
+
+  private void writeVirtualFile(VirtualFile virtualFile) {
+    ProgramConsumer consumer;
+    ByteBufferProvider byteBufferProvider;
+    if (programConsumer != null) {
+      consumer = programConsumer;
+      byteBufferProvider = programConsumer;
+    } else if (virtualFile.getPrimaryClassDescriptor() != null) {
+      consumer = options.getDexFilePerClassFileConsumer();
+      byteBufferProvider = options.getDexFilePerClassFileConsumer();
+    } else {
+      consumer = options.getDexIndexedConsumer();
+      byteBufferProvider = options.getDexIndexedConsumer();
+    }
+    ObjectToOffsetMapping objectMapping = virtualFile.computeMapping(application);
+    MethodToCodeObjectMapping codeMapping =
+        rewriteCodeWithJumboStrings(objectMapping, virtualFile.classes(), application);
+    ByteBufferResult result = writeDexFile(objectMapping, codeMapping, byteBufferProvider);
+    ByteDataView data =
+        new ByteDataView(result.buffer.array(), result.buffer.arrayOffset(), result.length);
+    if (consumer instanceof DexFilePerClassFileConsumer) {
+      ((DexFilePerClassFileConsumer) consumer)
+          .accept(
+              virtualFile.getPrimaryClassDescriptor(),
+              data,
+              virtualFile.getClassDescriptors(),
+              options.reporter);
+    } else {
+      ((DexIndexedConsumer) consumer)
+          .accept(virtualFile.getId(), data, virtualFile.getClassDescriptors(), options.reporter);
+    }
+    // Release use of the backing buffer now that accept has returned.
+    data.invalidate();
+    byteBufferProvider.releaseByteBuffer(result.buffer.asByteBuffer());
+  }
+
   public static void supplyAdditionalConsumers(
       DexApplication application,
       AppView<?> appView,
@@ -365,7 +393,7 @@ public class ApplicationWriter {
       NamingLens namingLens,
       InternalOptions options,
       String deadCode,
-      String proguardMapContent) {
+      ProguardMapSupplier.ProguardMapAndId proguardMapAndId) {
     if (options.configurationConsumer != null) {
       ExceptionUtils.withConsumeResourceHandler(
           options.reporter, options.configurationConsumer,
@@ -375,10 +403,11 @@ public class ApplicationWriter {
       ExceptionUtils.withConsumeResourceHandler(
           options.reporter, options.usageInformationConsumer, deadCode);
     }
-    if (proguardMapContent != null) {
-      assert validateProguardMapParses(proguardMapContent);
+    if (proguardMapAndId != null) {
+      assert validateProguardMapParses(proguardMapAndId.getMap());
       ExceptionUtils.withConsumeResourceHandler(
-          options.reporter, options.proguardMapConsumer, proguardMapContent);
+          options.reporter,
+          handler -> proguardMapAndId.writeTo(options.proguardMapConsumer, handler));
     }
     if (options.mainDexListConsumer != null) {
       ExceptionUtils.withConsumeResourceHandler(
@@ -28,6 +28,12 @@ public abstract class BinaryReader {
     buffer = CompatByteBuffer.wrap(bytes);
   }
 
+  /** Creates a reader of the same content with its own position. */
+  protected BinaryReader(BinaryReader reader) {
+    this.origin = reader.origin;
+    buffer = reader.buffer.duplicate();
+  }
+
   public Origin getOrigin() {
     return origin;
   }
@@ -64,9 +64,9 @@ public class ClassesChecksum {
   // Returns null if parsing fails.
   public static ClassesChecksum parse(DexString dexString) {
     if (dexString.size > 2
-        && dexString.content[0] == PREFIX_CHAR0
-        && dexString.content[1] == PREFIX_CHAR1
-        && dexString.content[2] == PREFIX_CHAR2) {
+        && dexString.byteAt(0) == PREFIX_CHAR0
+        && dexString.byteAt(1) == PREFIX_CHAR1
+        && dexString.byteAt(2) == PREFIX_CHAR2) {
       String str = dexString.toString().substring(3);
       try {
         JsonElement result = new JsonParser().parse(str);
@@ -80,10 +80,10 @@ public class ClassesChecksum {
 
   public static boolean preceedChecksumMarker(DexString string) {
     return string.size < 1 ||
-        string.content[0] < PREFIX_CHAR0 ||
+        string.byteAt(0) < PREFIX_CHAR0 ||
         string.size < 2 ||
-        string.content[1] < PREFIX_CHAR1 ||
+        string.byteAt(1) < PREFIX_CHAR1 ||
         string.size < 3 ||
-        string.content[2] < PREFIX_CHAR2;
+        string.byteAt(2) < PREFIX_CHAR2;
   }
 }
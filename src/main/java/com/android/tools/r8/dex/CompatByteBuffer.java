@@ -93,6 +93,11 @@ public class CompatByteBuffer {
     asByteBuffer().order(bo);
   }
 
+  // Shares the content, but not the position, and unlike ByteBuffer.duplicate() keeps the order.
+  public CompatByteBuffer duplicate() {
+    return new CompatByteBuffer(asByteBuffer().duplicate().order(asByteBuffer().order()));
+  }
+
   public byte get() {
     return asByteBuffer().get();
   }
@@ -132,4 +137,8 @@ public class CompatByteBuffer {
   public void put(byte[] bytes) {
     asByteBuffer().put(bytes);
   }
+
+  public void put(byte[] bytes, int offset, int length) {
+    asByteBuffer().put(bytes, offset, length);
+  }
 }
@@ -12,6 +12,7 @@ import com.android.tools.r8.ProgramResource.Kind;
 import com.android.tools.r8.code.Instruction;
 import com.android.tools.r8.code.InstructionFactory;
 import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.errors.Unreachable;
 import com.android.tools.r8.graph.ClassAccessFlags;
 import com.android.tools.r8.graph.ClassKind;
 import com.android.tools.r8.graph.Descriptor;
@@ -60,10 +61,12 @@ import com.android.tools.r8.origin.Origin;
 import com.android.tools.r8.origin.PathOrigin;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.Pair;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.ByteStreams;
 import it.unimi.dsi.fastutil.ints.Int2IntArrayMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMaps;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -75,12 +78,20 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 public class DexParser {
 
   private final int NO_INDEX = -1;
+  // The number of items of an index table that are populated by a single task, and the number of
+  // class defs that are parsed by a single task, when a DEX file is parsed in parallel.
+  private static final int INDEX_SLICE_SIZE = 4096;
+  private static final int CLASS_DEF_SLICE_SIZE = 256;
   private final Origin origin;
   private DexReader dexReader;
   private final DexSection[] dexSections;
@@ -135,6 +146,25 @@ public class DexParser {
     this.options = options;
   }
 
+  /**
+   * Creates a parser that shares the index tables and the caches of {@param parser}, and reads the
+   * same content at its own position, such that the parsers can parse different parts of the file
+   * concurrently.
+   */
+  private DexParser(DexParser parser) {
+    this.origin = parser.origin;
+    this.dexReader = parser.dexReader.duplicate();
+    this.dexSections = parser.dexSections;
+    this.stringIDs = parser.stringIDs;
+    this.classKind = parser.classKind;
+    this.options = parser.options;
+    this.checksums = parser.checksums;
+    this.indexedItems = parser.indexedItems;
+    this.codes = parser.codes;
+    this.offsetMap = parser.offsetMap;
+    this.dexItemFactory = parser.dexItemFactory;
+  }
+
   private void ensureCodesInited(int offset) {
     if (offset == 0) {
       return;
@@ -158,7 +188,9 @@ public class DexParser {
       dexReader.position(offset);
       dexReader.align(4);
       DexCode code = parseCodeItem();
-      codes.put(offset, code);  // Update the file local offset to code mapping.
+      // Update the file local offset to code mapping. When parsing in parallel, another parser
+      // may have parsed the same code item, in which case its code is kept.
+      codes.putIfAbsent(offset, code);
       dexReader.position(currentPos);
     }
   }
@@ -403,10 +435,9 @@ public class DexParser {
     // Cache is empty so parse the structure.
     dexReader.position(offset);
     result = function.get();
-    // Update the map.
-    offsetMap.put(offset, result);
-    assert offsetMap.get(offset) == result;
-    return result;
+    // Update the map, unless another parser updated it for the same offset meanwhile.
+    Object previous = offsetMap.putIfAbsent(offset, result);
+    return previous == null ? result : previous;
   }
 
   private DexAnnotation parseAnnotation() {
@@ -650,120 +681,197 @@ public class DexParser {
     return methods;
   }
 
-  void addClassDefsTo(Consumer<DexClass> classCollection) {
+  // The fields of the class_def_items of a DEX file.
+  private static class ClassDefs {
+
+    private final int length;
+    private final int[] classIndices;
+    private final int[] accessFlags;
+    private final int[] superclassIndices;
+    private final int[] interfacesOffsets;
+    private final int[] sourceFileIndices;
+    private final int[] annotationsOffsets;
+    private final int[] classDataOffsets;
+    private final int[] staticValuesOffsets;
+
+    private ClassDefs(int length) {
+      this.length = length;
+      classIndices = new int[length];
+      accessFlags = new int[length];
+      superclassIndices = new int[length];
+      interfacesOffsets = new int[length];
+      sourceFileIndices = new int[length];
+      annotationsOffsets = new int[length];
+      classDataOffsets = new int[length];
+      staticValuesOffsets = new int[length];
+    }
+  }
+
+  private ClassDefs readClassDefs() {
     final DexSection dexSection = lookupSection(Constants.TYPE_CLASS_DEF_ITEM);
     final int length = dexSection.length;
     indexedItems.initializeClasses(length);
+    ClassDefs classDefs = new ClassDefs(length);
     if (length == 0) {
-      return;
+      return classDefs;
     }
     dexReader.position(dexSection.offset);
-
-    int[] classIndices = new int[length];
-    int[] accessFlags = new int[length];
-    int[] superclassIndices = new int[length];
-    int[] interfacesOffsets = new int[length];
-    int[] sourceFileIndices = new int[length];
-    int[] annotationsOffsets = new int[length];
-    int[] classDataOffsets = new int[length];
-    int[] staticValuesOffsets = new int[length];
-
     for (int i = 0; i < length; i++) {
       if (Log.ENABLED) {
         Log.verbose(getClass(), "Reading ClassDef @ 0x%08x.", dexReader.position());
       }
-      classIndices[i] = dexReader.getUint();
-      accessFlags[i] = dexReader.getUint();
-      superclassIndices[i] = dexReader.getInt();
-      interfacesOffsets[i] = dexReader.getUint();
-      sourceFileIndices[i] = dexReader.getInt();
-      annotationsOffsets[i] = dexReader.getUint();
-      classDataOffsets[i] = dexReader.getUint();
-      staticValuesOffsets[i] = dexReader.getUint();
-    }
+      classDefs.classIndices[i] = dexReader.getUint();
+      classDefs.accessFlags[i] = dexReader.getUint();
+      classDefs.superclassIndices[i] = dexReader.getInt();
+      classDefs.interfacesOffsets[i] = dexReader.getUint();
+      classDefs.sourceFileIndices[i] = dexReader.getInt();
+      classDefs.annotationsOffsets[i] = dexReader.getUint();
+      classDefs.classDataOffsets[i] = dexReader.getUint();
+      classDefs.staticValuesOffsets[i] = dexReader.getUint();
+    }
+    return classDefs;
+  }
 
-    for (int i = 0; i < length; i++) {
-      int superclassIdx = superclassIndices[i];
-      DexType superclass = superclassIdx == NO_INDEX ? null : indexedItems.getType(superclassIdx);
-      int srcIdx = sourceFileIndices[i];
-      DexString source = srcIdx == NO_INDEX ? null : indexedItems.getString(srcIdx);
-      DexType type = indexedItems.getType(classIndices[i]);
-      ClassAccessFlags flags = ClassAccessFlags.fromDexAccessFlags(accessFlags[i]);
-      // Check if constraints from
-      // https://docs.oracle.com/javase/specs/jvms/se7/html/jvms-4.html#jvms-4.1 are met.
-      if (!flags.areValid(Constants.CORRESPONDING_CLASS_FILE_VERSION, false)) {
-        throw new CompilationError("Class " + type.toSourceString()
-            + " has illegal access flags. Found: " + flags, origin);
-      }
-      DexEncodedField[] staticFields = DexEncodedField.EMPTY_ARRAY;
-      DexEncodedField[] instanceFields = DexEncodedField.EMPTY_ARRAY;
-      DexEncodedMethod[] directMethods = DexEncodedMethod.EMPTY_ARRAY;
-      DexEncodedMethod[] virtualMethods = DexEncodedMethod.EMPTY_ARRAY;
-      AnnotationsDirectory annotationsDirectory = annotationsDirectoryAt(annotationsOffsets[i]);
-
-      if (checksums != null && classDataOffsets[i] != 0) {
-        String desc = type.descriptor.toASCIIString();
-        Long checksum = checksums.get(desc);
-        if (!options.dexClassChecksumFilter.test(desc, checksum)) {
-          continue;
-        }
-      }
-      if (classDataOffsets[i] != 0) {
-        DexEncodedArray staticValues = encodedArrayAt(staticValuesOffsets[i]);
-
-        dexReader.position(classDataOffsets[i]);
-        int staticFieldsSize = dexReader.getUleb128();
-        int instanceFieldsSize = dexReader.getUleb128();
-        int directMethodsSize = dexReader.getUleb128();
-        int virtualMethodsSize = dexReader.getUleb128();
-
-        staticFields = readFields(staticFieldsSize, annotationsDirectory.fields,
-            staticValues != null ? staticValues.values : null);
-        instanceFields = readFields(instanceFieldsSize, annotationsDirectory.fields, null);
-        directMethods =
-            readMethods(
-                directMethodsSize,
-                annotationsDirectory.methods,
-                annotationsDirectory.parameters,
-                classKind != ClassKind.PROGRAM,
-                options.canHaveDalvikAbstractMethodOnNonAbstractClassVerificationBug()
-                    && !flags.isAbstract());
-        virtualMethods =
-            readMethods(
-                virtualMethodsSize,
-                annotationsDirectory.methods,
-                annotationsDirectory.parameters,
-                classKind != ClassKind.PROGRAM,
-                options.canHaveDalvikAbstractMethodOnNonAbstractClassVerificationBug()
-                    && !flags.isAbstract());
+  void addClassDefsTo(Consumer<DexClass> classCollection) {
+    ClassDefs classDefs = readClassDefs();
+    for (int i = 0; i < classDefs.length; i++) {
+      DexClass clazz = parseClassDef(classDefs, i);
+      if (clazz != null) {
+        classCollection.accept(clazz); // Update the application object.
       }
+    }
+  }
 
-      AttributesAndAnnotations attrs =
-          new AttributesAndAnnotations(type, annotationsDirectory.clazz, options.itemFactory);
-
-      DexClass clazz =
-          classKind.create(
-              type,
-              Kind.DEX,
-              origin,
-              flags,
-              superclass,
-              typeListAt(interfacesOffsets[i]),
-              source,
-              null,
-              Collections.emptyList(),
-              attrs.getEnclosingMethodAttribute(),
-              attrs.getInnerClasses(),
-              attrs.getAnnotations(),
-              staticFields,
-              instanceFields,
-              directMethods,
-              virtualMethods,
-              dexItemFactory.getSkipNameValidationForTesting());
-      classCollection.accept(clazz);  // Update the application object.
+  /**
+   * Parses the classes on {@param executorService}, adding the futures of the tasks to {@param
+   * futures}.
+   *
+   * <p>The class defs of a large file are split into slices that are parsed by separate tasks. The
+   * classes are passed to {@param classCollection} in the order of the class defs by the task that
+   * completes last, such that the result does not depend on the scheduling and no task waits for
+   * another. Requires the index tables to be populated.
+   */
+  void addClassDefsTo(
+      Consumer<DexClass> classCollection,
+      ExecutorService executorService,
+      List<Future<?>> futures) {
+    DexSection dexSection = lookupSection(Constants.TYPE_CLASS_DEF_ITEM);
+    if (dexSection.length <= CLASS_DEF_SLICE_SIZE) {
+      futures.add(executorService.submit(() -> addClassDefsTo(classCollection)));
+      return;
+    }
+    ClassDefs classDefs = readClassDefs();
+    // Items that are shared between classes, such as annotations and code, are parsed by the first
+    // task that needs them.
+    offsetMap = Int2ObjectMaps.synchronize(offsetMap);
+    codes = Int2ObjectMaps.synchronize(codes);
+    DexClass[] classes = new DexClass[classDefs.length];
+    int slices = (classDefs.length + CLASS_DEF_SLICE_SIZE - 1) / CLASS_DEF_SLICE_SIZE;
+    AtomicInteger remainingSlices = new AtomicInteger(slices);
+    for (int start = 0; start < classDefs.length; start += CLASS_DEF_SLICE_SIZE) {
+      int sliceStart = start;
+      int sliceEnd = Math.min(start + CLASS_DEF_SLICE_SIZE, classDefs.length);
+      DexParser parser = new DexParser(this);
+      futures.add(
+          executorService.submit(
+              () -> {
+                for (int i = sliceStart; i < sliceEnd; i++) {
+                  classes[i] = parser.parseClassDef(classDefs, i);
+                }
+                // The decrement orders the writes of all slices before the last one reads them.
+                if (remainingSlices.decrementAndGet() == 0) {
+                  for (DexClass clazz : classes) {
+                    if (clazz != null) {
+                      classCollection.accept(clazz); // Update the application object.
+                    }
+                  }
+                }
+              }));
     }
   }
 
+  // Returns the class of the class def at the given index, or null if it is filtered out.
+  private DexClass parseClassDef(ClassDefs classDefs, int i) {
+    int superclassIdx = classDefs.superclassIndices[i];
+    DexType superclass = superclassIdx == NO_INDEX ? null : indexedItems.getType(superclassIdx);
+    int srcIdx = classDefs.sourceFileIndices[i];
+    DexString source = srcIdx == NO_INDEX ? null : indexedItems.getString(srcIdx);
+    DexType type = indexedItems.getType(classDefs.classIndices[i]);
+    ClassAccessFlags flags = ClassAccessFlags.fromDexAccessFlags(classDefs.accessFlags[i]);
+    // Check if constraints from
+    // https://docs.oracle.com/javase/specs/jvms/se7/html/jvms-4.html#jvms-4.1 are met.
+    if (!flags.areValid(Constants.CORRESPONDING_CLASS_FILE_VERSION, false)) {
+      throw new CompilationError("Class " + type.toSourceString()
+          + " has illegal access flags. Found: " + flags, origin);
+    }
+    DexEncodedField[] staticFields = DexEncodedField.EMPTY_ARRAY;
+    DexEncodedField[] instanceFields = DexEncodedField.EMPTY_ARRAY;
+    DexEncodedMethod[] directMethods = DexEncodedMethod.EMPTY_ARRAY;
+    DexEncodedMethod[] virtualMethods = DexEncodedMethod.EMPTY_ARRAY;
+    AnnotationsDirectory annotationsDirectory =
+        annotationsDirectoryAt(classDefs.annotationsOffsets[i]);
+
+    int classDataOffset = classDefs.classDataOffsets[i];
+    if (checksums != null && classDataOffset != 0) {
+      String desc = type.descriptor.toASCIIString();
+      Long checksum = checksums.get(desc);
+      if (!options.dexClassChecksumFilter.test(desc, checksum)) {
+        return null;
+      }
+    }
+    if (classDataOffset != 0) {
+      DexEncodedArray staticValues = encodedArrayAt(classDefs.staticValuesOffsets[i]);
+
+      dexReader.position(classDataOffset);
+      int staticFieldsSize = dexReader.getUleb128();
+      int instanceFieldsSize = dexReader.getUleb128();
+      int directMethodsSize = dexReader.getUleb128();
+      int virtualMethodsSize = dexReader.getUleb128();
+
+      staticFields = readFields(staticFieldsSize, annotationsDirectory.fields,
+          staticValues != null ? staticValues.values : null);
+      instanceFields = readFields(instanceFieldsSize, annotationsDirectory.fields, null);
+      directMethods =
+          readMethods(
+              directMethodsSize,
+              annotationsDirectory.methods,
+              annotationsDirectory.parameters,
+              classKind != ClassKind.PROGRAM,
+              options.canHaveDalvikAbstractMethodOnNonAbstractClassVerificationBug()
+                  && !flags.isAbstract());
+      virtualMethods =
+          readMethods(
+              virtualMethodsSize,
+              annotationsDirectory.methods,
+              annotationsDirectory.parameters,
+              classKind != ClassKind.PROGRAM,
+              options.canHaveDalvikAbstractMethodOnNonAbstractClassVerificationBug()
+                  && !flags.isAbstract());
+    }
+
+    AttributesAndAnnotations attrs =
+        new AttributesAndAnnotations(type, annotationsDirectory.clazz, options.itemFactory);
+
+    return classKind.create(
+        type,
+        Kind.DEX,
+        origin,
+        flags,
+        superclass,
+        typeListAt(classDefs.interfacesOffsets[i]),
+        source,
+        null,
+        Collections.emptyList(),
+        attrs.getEnclosingMethodAttribute(),
+        attrs.getInnerClasses(),
+        attrs.getAnnotations(),
+        staticFields,
+        instanceFields,
+        directMethods,
+        virtualMethods,
+        dexItemFactory.getSkipNameValidationForTesting());
+  }
+
   private void parseStringIDs() {
     DexSection dexSection = lookupSection(Constants.TYPE_STRING_ID_ITEM);
     stringIDs = new int[dexSection.length];
@@ -884,22 +992,64 @@ public class DexParser {
   }
 
   void populateIndexTables() {
+    try {
+      populateIndexTables(null);
+    } catch (ExecutionException e) {
+      // Nothing is executed on an executor.
+      throw new Unreachable(e);
+    }
+  }
+
+  /**
+   * Populates the index tables, where the large tables are populated in slices on {@param
+   * executorService}, if it is not null.
+   */
+  void populateIndexTables(ExecutorService executorService) throws ExecutionException {
     // Populate structures that are already sorted upon read.
-    populateStrings();  // Depends on nothing.
+    populateStrings(executorService);  // Depends on nothing.
     populateChecksums(); // Depends on Strings.
-    populateTypes();  // Depends on Strings.
-    populateFields();  // Depends on Types, and Strings.
+    populateTypes(executorService);  // Depends on Strings.
+    populateFields(executorService);  // Depends on Types, and Strings.
+    // Protos are populated sequentially, as their parameter lists are cached by offset.
     populateProtos();  // Depends on Types and Strings.
-    populateMethods();  // Depends on Protos, Types, and Strings.
+    populateMethods(executorService);  // Depends on Protos, Types, and Strings.
     populateMethodHandles(); // Depends on Methods and Fields
     populateCallSites(); // Depends on MethodHandles
   }
 
-  private void populateStrings() {
-    indexedItems.initializeStrings(stringIDs.length);
-    for (int i = 0; i < stringIDs.length; i++) {
-      indexedItems.setString(i, stringAt(i));
+  private interface SlicePopulator {
+    void populate(DexParser parser, int start, int end);
+  }
+
+  // Populates the items [0, length) of an index table, in slices that are populated by separate
+  // parsers on the executor if there is more than one. Returns when all items are populated.
+  private void populateInSlices(
+      int length, ExecutorService executorService, SlicePopulator populator)
+      throws ExecutionException {
+    if (executorService == null || length <= INDEX_SLICE_SIZE) {
+      populator.populate(this, 0, length);
+      return;
+    }
+    List<Future<?>> futures = new ArrayList<>();
+    for (int start = 0; start < length; start += INDEX_SLICE_SIZE) {
+      int sliceStart = start;
+      int sliceEnd = Math.min(start + INDEX_SLICE_SIZE, length);
+      DexParser parser = new DexParser(this);
+      futures.add(executorService.submit(() -> populator.populate(parser, sliceStart, sliceEnd)));
     }
+    ThreadUtils.awaitFutures(futures);
+  }
+
+  private void populateStrings(ExecutorService executorService) throws ExecutionException {
+    indexedItems.initializeStrings(stringIDs.length);
+    populateInSlices(
+        stringIDs.length,
+        executorService,
+        (parser, start, end) -> {
+          for (int i = start; i < end; i++) {
+            indexedItems.setString(i, parser.stringAt(i));
+          }
+        });
   }
 
   private void populateMethodHandles() {
@@ -918,13 +1068,18 @@ public class DexParser {
     }
   }
 
-  private void populateTypes() {
+  private void populateTypes(ExecutorService executorService) throws ExecutionException {
     DexSection dexSection = lookupSection(Constants.TYPE_TYPE_ID_ITEM);
     assert verifyOrderOfTypeIds(dexSection);
     indexedItems.initializeTypes(dexSection.length);
-    for (int i = 0; i < dexSection.length; i++) {
-      indexedItems.setType(i, typeAt(i));
-    }
+    populateInSlices(
+        dexSection.length,
+        executorService,
+        (parser, start, end) -> {
+          for (int i = start; i < end; i++) {
+            indexedItems.setType(i, parser.typeAt(i));
+          }
+        });
   }
 
   private void populateChecksums() {
@@ -980,13 +1135,18 @@ public class DexParser {
     return true;
   }
 
-  private void populateFields() {
+  private void populateFields(ExecutorService executorService) throws ExecutionException {
     DexSection dexSection = lookupSection(Constants.TYPE_FIELD_ID_ITEM);
     assert verifyOrderOfFieldIds(dexSection);
     indexedItems.initializeFields(dexSection.length);
-    for (int i = 0; i < dexSection.length; i++) {
-      indexedItems.setField(i, fieldAt(i));
-    }
+    populateInSlices(
+        dexSection.length,
+        executorService,
+        (parser, start, end) -> {
+          for (int i = start; i < end; i++) {
+            indexedItems.setField(i, parser.fieldAt(i));
+          }
+        });
   }
 
   /**
@@ -1058,13 +1218,18 @@ public class DexParser {
     }
   }
 
-  private void populateMethods() {
+  private void populateMethods(ExecutorService executorService) throws ExecutionException {
     DexSection dexSection = lookupSection(Constants.TYPE_METHOD_ID_ITEM);
     assert verifyOrderOfMethodIds(dexSection);
     indexedItems.initializeMethods(dexSection.length);
-    for (int i = 0; i < dexSection.length; i++) {
-      indexedItems.setMethod(i, methodAt(i));
-    }
+    populateInSlices(
+        dexSection.length,
+        executorService,
+        (parser, start, end) -> {
+          for (int i = start; i < end; i++) {
+            indexedItems.setMethod(i, parser.methodAt(i));
+          }
+        });
   }
 
   /**
@@ -37,6 +37,19 @@ public class DexReader extends BinaryReader {
     version = parseMagic(buffer);
   }
 
+  private DexReader(DexReader reader) {
+    super(reader);
+    version = reader.version;
+  }
+
+  /**
+   * Returns a reader of the same content, with the same byte order and its own position, which can
+   * be used on another thread than this reader.
+   */
+  DexReader duplicate() {
+    return new DexReader(this);
+  }
+
   // Parse the magic header and determine the dex file version.
   private DexVersion parseMagic(CompatByteBuffer buffer) {
     try {
@@ -0,0 +1,255 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.DexFilePerClassFileConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.dex.Marker.Tool;
+import com.android.tools.r8.errors.DexingCacheDiagnostic;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.origin.PathOrigin;
+import com.android.tools.r8.utils.ExceptionDiagnostic;
+import com.android.tools.r8.utils.InternalOptions;
+import com.google.common.base.Suppliers;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Persistent on-disk cache of the DEX output of D8 when compiling to a DEX file per class file.
+ *
+ * <p>Entries are keyed by a hash of the class-file content together with the compiler
+ * configuration (the D8 {@link Marker}, which holds version, min API and compilation mode, as well
+ * as the desugaring options). On a hit the cached DEX data is handed directly to the program
+ * consumer and the class is neither converted to IR nor written again.
+ *
+ * <p>Only classes whose DEX output is fully determined by their own content are cached. When
+ * interface method desugaring is enabled the output of interfaces and classes implementing
+ * interfaces depends on other classes, and nest members always depend on their nest, so such
+ * classes are always compiled.
+ */
+public class DexingCache {
+
+  private static final String ENTRY_EXTENSION = ".dexcache";
+  private static final int ENTRY_MAGIC = 0xD8CAC4E1;
+
+  private final Path directory;
+  private final InternalOptions options;
+  private final Supplier<String> configuration;
+
+  // Cache keys for program class-file inputs, computed while reading the classes.
+  private final Map<DexType, String> classKeys = new ConcurrentHashMap<>();
+  // Classes that have been served from the cache and must not be compiled again.
+  private final Set<DexType> cachedClasses = ConcurrentHashMap.newKeySet();
+  // Cache keys for compiled classes keyed by the descriptor of the primary class of the output.
+  private final Map<String, String> pendingEntries = new ConcurrentHashMap<>();
+
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+  private final AtomicInteger uncacheable = new AtomicInteger();
+
+  public DexingCache(Path directory, InternalOptions options) {
+    this.directory = directory;
+    this.options = options;
+    // The configuration is computed on first use such that it reflects the final options.
+    this.configuration = Suppliers.memoize(this::computeConfiguration);
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  private String computeConfiguration() {
+    Marker marker = options.getMarker(Tool.D8);
+    StringBuilder builder = new StringBuilder();
+    builder.append(marker == null ? "" : marker.toString());
+    builder.append("|debug=").append(options.debug);
+    builder.append("|min-api=").append(options.minApiLevel);
+    builder.append("|desugaring=").append(options.enableDesugaring);
+    builder.append("|interface-methods=").append(options.isInterfaceMethodDesugaringEnabled());
+    builder.append("|intermediate=").append(options.intermediate);
+    builder.append("|checksums=").append(options.encodeChecksums);
+    builder.append("|rewrite-prefix=").append(options.rewritePrefix);
+    builder.append("|backport=").append(options.backportCoreLibraryMembers);
+    builder.append("|retarget=").append(options.retargetCoreLibMember);
+    builder.append("|emulate=").append(options.emulateLibraryInterface);
+    return builder.toString();
+  }
+
+  /** Record the content of a program class file. Called when reading the class. */
+  public void recordClassContent(DexType type, byte[] classFileContent) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(configuration.get(), StandardCharsets.UTF_8);
+    hasher.putBytes(classFileContent);
+    classKeys.put(type, hasher.hash().toString());
+  }
+
+  private boolean isCacheable(DexProgramClass clazz) {
+    if (!clazz.originatesFromClassResource() || !clazz.getSynthesizedFrom().isEmpty()) {
+      return false;
+    }
+    if (options.isInterfaceMethodDesugaringEnabled()
+        && (clazz.isInterface() || !clazz.interfaces.isEmpty())) {
+      return false;
+    }
+    return !clazz.isInANest();
+  }
+
+  /**
+   * Look up all program classes in the cache.
+   *
+   * <p>The DEX data of each hit is passed to {@param consumer} right away. Classes that are
+   * cacheable but not found are registered such that their output is stored when written through
+   * the consumer returned by {@link #wrapConsumer}.
+   */
+  public void lookup(DexApplication application, DexFilePerClassFileConsumer consumer) {
+    for (DexProgramClass clazz : application.classes()) {
+      String key = classKeys.get(clazz.type);
+      if (key == null || !isCacheable(clazz)) {
+        uncacheable.incrementAndGet();
+        continue;
+      }
+      if (readEntry(key, clazz.type.toDescriptorString(), consumer)) {
+        cachedClasses.add(clazz.type);
+        hits.incrementAndGet();
+      } else {
+        pendingEntries.put(clazz.type.toDescriptorString(), key);
+        misses.incrementAndGet();
+      }
+    }
+  }
+
+  /** True if the DEX output for {@param clazz} has already been supplied from the cache. */
+  public boolean isCached(DexProgramClass clazz) {
+    return cachedClasses.contains(clazz.type);
+  }
+
+  /** Remove the classes served from the cache such that they are not written again. */
+  public DexApplication removeCachedClasses(DexApplication application) {
+    if (cachedClasses.isEmpty()) {
+      return application;
+    }
+    List<DexProgramClass> remaining = new ArrayList<>();
+    for (DexProgramClass clazz : application.classes()) {
+      if (!isCached(clazz)) {
+        remaining.add(clazz);
+      }
+    }
+    return application.builder().replaceProgramClasses(remaining).build();
+  }
+
+  /** Create a consumer that stores the output of cacheable classes and forwards to consumer. */
+  public DexFilePerClassFileConsumer wrapConsumer(DexFilePerClassFileConsumer consumer) {
+    return new DexFilePerClassFileConsumer.ForwardingConsumer(consumer) {
+      @Override
+      public void accept(
+          String primaryClassDescriptor,
+          ByteDataView data,
+          Set<String> descriptors,
+          DiagnosticsHandler handler) {
+        String key = pendingEntries.remove(primaryClassDescriptor);
+        if (key != null) {
+          writeEntry(key, data, descriptors);
+        }
+        super.accept(primaryClassDescriptor, data, descriptors, handler);
+      }
+    };
+  }
+
+  public DexingCacheDiagnostic getDiagnostic() {
+    return new DexingCacheDiagnostic(directory, hits.get(), misses.get(), uncacheable.get());
+  }
+
+  private Path getEntryPath(String key) {
+    return directory.resolve(key + ENTRY_EXTENSION);
+  }
+
+  private boolean readEntry(
+      String key, String primaryClassDescriptor, DexFilePerClassFileConsumer consumer) {
+    Path entry = getEntryPath(key);
+    if (!Files.isRegularFile(entry)) {
+      return false;
+    }
+    Set<String> descriptors = new LinkedHashSet<>();
+    byte[] data;
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+      if (input.readInt() != ENTRY_MAGIC) {
+        return false;
+      }
+      int descriptorCount = input.readInt();
+      for (int i = 0; i < descriptorCount; i++) {
+        descriptors.add(input.readUTF());
+      }
+      data = new byte[input.readInt()];
+      input.readFully(data);
+    } catch (IOException e) {
+      // A truncated or otherwise unreadable entry is treated as a miss and will be rewritten.
+      return false;
+    }
+    if (!descriptors.contains(primaryClassDescriptor)) {
+      return false;
+    }
+    ByteDataView view = new ByteDataView(data, 0, data.length);
+    consumer.accept(primaryClassDescriptor, view, descriptors, options.reporter);
+    view.invalidate();
+    return true;
+  }
+
+  private void writeEntry(String key, ByteDataView data, Set<String> descriptors) {
+    Path entry = getEntryPath(key);
+    Path temp = null;
+    try {
+      Files.createDirectories(directory);
+      // Write to a temporary file first such that concurrent builds never observe partial
+      // entries.
+      temp = Files.createTempFile(directory, key, ".tmp");
+      try (DataOutputStream output =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        output.writeInt(ENTRY_MAGIC);
+        output.writeInt(descriptors.size());
+        for (String descriptor : descriptors) {
+          output.writeUTF(descriptor);
+        }
+        output.writeInt(data.getLength());
+        output.write(data.getBuffer(), data.getOffset(), data.getLength());
+      }
+      try {
+        Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      // Failing to populate the cache does not invalidate the compilation.
+      options.reporter.warning(new ExceptionDiagnostic(e, new PathOrigin(entry)));
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (IOException ignored) {
+          // Nothing more to do.
+        }
+      }
+    }
+  }
+}
@@ -520,7 +520,7 @@ public class FileWriter {
   private void writeStringData(DexString string) {
     mixedSectionOffsets.setOffsetFor(string, dest.position());
     dest.putUleb128(string.size);
-    dest.putBytes(string.content);
+    string.writeContent(dest);
   }
 
   private void writeAnnotation(DexAnnotation annotation) {
@@ -146,8 +146,8 @@ public class Marker {
   // Returns null if parsing fails.
   public static Marker parse(DexString dexString) {
     if (dexString.size > 2
-        && dexString.content[0] == PREFIX_CHAR
-        && dexString.content[1] == PREFIX_CHAR) {
+        && dexString.byteAt(0) == PREFIX_CHAR
+        && dexString.byteAt(1) == PREFIX_CHAR) {
       String str = dexString.toString();
       if (str.startsWith(D8_PREFIX)) {
         return internalParse(Tool.D8, str.substring(D8_PREFIX.length() - 1));
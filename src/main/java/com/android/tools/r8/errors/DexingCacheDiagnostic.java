@@ -0,0 +1,67 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.errors;
+
+import com.android.tools.r8.Diagnostic;
+import com.android.tools.r8.Keep;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.origin.PathOrigin;
+import com.android.tools.r8.position.Position;
+import java.nio.file.Path;
+
+/**
+ * Diagnostic information about the use of the D8 dexing cache.
+ *
+ * <p>Reported as info at the end of each D8 compilation that uses a dexing cache directory.
+ */
+@Keep
+public class DexingCacheDiagnostic implements Diagnostic {
+  private final Path directory;
+  private final int hits;
+  private final int misses;
+  private final int uncacheable;
+
+  public DexingCacheDiagnostic(Path directory, int hits, int misses, int uncacheable) {
+    this.directory = directory;
+    this.hits = hits;
+    this.misses = misses;
+    this.uncacheable = uncacheable;
+  }
+
+  /** The number of classes for which the DEX output was taken from the cache. */
+  public int getHitCount() {
+    return hits;
+  }
+
+  /** The number of cacheable classes that were compiled and added to the cache. */
+  public int getMissCount() {
+    return misses;
+  }
+
+  /** The number of classes that were compiled without consulting the cache. */
+  public int getUncacheableCount() {
+    return uncacheable;
+  }
+
+  @Override
+  public Origin getOrigin() {
+    return new PathOrigin(directory);
+  }
+
+  @Override
+  public Position getPosition() {
+    return Position.UNKNOWN;
+  }
+
+  @Override
+  public String getDiagnosticMessage() {
+    return "Dexing cache: "
+        + hits
+        + " hit(s), "
+        + misses
+        + " miss(es), "
+        + uncacheable
+        + " uncacheable class(es)";
+  }
+}
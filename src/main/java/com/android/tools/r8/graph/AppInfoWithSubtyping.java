@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -108,6 +109,30 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
     }
   }
 
+  /**
+   * The supertypes of a type, used for answering subtype queries in constant time.
+   *
+   * <p>The superclasses of a class are indexed by their hierarchy level, such that a class at level
+   * n is a subclass of the class at level n in this array and of no other class at that level. The
+   * interfaces include all interfaces implemented by the class and its superclasses, or extended by
+   * the interface, including interfaces without a definition.
+   */
+  private static class Supertypes {
+    static final Supertypes NONE = new Supertypes(new DexType[0], Collections.emptySet());
+
+    final DexType[] superclasses;
+    final Set<DexType> interfaces;
+
+    Supertypes(DexType[] superclasses, Set<DexType> interfaces) {
+      this.superclasses = superclasses;
+      this.interfaces = interfaces;
+    }
+
+    boolean hasSuperclass(DexType type, int level) {
+      return level < superclasses.length && superclasses[level] == type;
+    }
+  }
+
   // Set of missing classes, discovered during subtypeMap computation.
   private final Set<DexType> missingClasses = Sets.newIdentityHashSet();
 
@@ -117,6 +142,10 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
   // Map from types to their subtyping information.
   private final Map<DexType, TypeInfo> typeInfo;
 
+  // Map from types to their supertypes. This is computed on demand and not shared with copies of
+  // this app info, since the hierarchy may have been changed in between, e.g., by class merging.
+  private final Map<DexType, Supertypes> supertypes = new ConcurrentHashMap<>();
+
   public AppInfoWithSubtyping(DexApplication application) {
     super(application);
     typeInfo = Collections.synchronizedMap(new IdentityHashMap<>());
@@ -491,7 +520,9 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
   @Override
   public void registerNewType(DexType newType, DexType superType) {
     assert checkIfObsolete();
-    // Register the relationship between this type and its superType.
+    // Register the relationship between this type and its superType. The supertypes of the new
+    // type are computed from its definition when first needed. It has no subtypes yet, so the
+    // cached supertypes of other types remain valid.
     getTypeInfo(superType).addDirectSubtype(getTypeInfo(newType));
   }
 
@@ -550,44 +581,92 @@ public class AppInfoWithSubtyping extends AppInfo implements ClassHierarchy {
     }
     TypeInfo subInfo = getTypeInfo(subtype);
     if (subInfo.hierarchyLevel == INTERFACE_LEVEL) {
-      return isInterfaceSubtypeOf(subtype, supertype);
+      return getSupertypes(subInfo).interfaces.contains(supertype);
     }
     TypeInfo superInfo = getTypeInfo(supertype);
     if (superInfo.hierarchyLevel == INTERFACE_LEVEL) {
-      return superInfo.directSubtypes.stream()
-          .anyMatch(superSubtype -> isSubtype(subtype, superSubtype));
+      return getSupertypes(subInfo).interfaces.contains(supertype);
+    }
+    if (superInfo.hierarchyLevel == UNKNOWN_LEVEL) {
+      // We have no definition for this class, hence it is not part of the hierarchy.
+      return orElse;
     }
-    return isSubtypeOfClass(subInfo, superInfo, orElse);
+    return getSupertypes(subInfo).hasSuperclass(supertype, superInfo.hierarchyLevel);
   }
 
-  private boolean isInterfaceSubtypeOf(DexType candidate, DexType other) {
-    if (candidate == other || other == dexItemFactory().objectType) {
-      return true;
-    }
-    DexClass candidateHolder = definitionFor(candidate);
-    if (candidateHolder == null) {
-      return false;
+  private Supertypes getSupertypes(TypeInfo info) {
+    if (info.hierarchyLevel == UNKNOWN_LEVEL) {
+      return Supertypes.NONE;
     }
-    for (DexType iface : candidateHolder.interfaces.values) {
-      assert getTypeInfo(iface).hierarchyLevel == INTERFACE_LEVEL;
-      if (isInterfaceSubtypeOf(iface, other)) {
-        return true;
+    Supertypes result = supertypes.get(info.type);
+    if (result == null) {
+      DexClass holder = definitionFor(info.type);
+      if (holder == null) {
+        // Only interfaces and the root of the hierarchy can be missing. The result is not cached,
+        // such that the cache only holds supertypes computed from definitions.
+        assert info.hierarchyLevel == INTERFACE_LEVEL || info.hierarchyLevel == ROOT_LEVEL;
+        return computeSupertypes(info, null);
+      }
+      // The supertypes are computed from the supertypes of the direct supertypes, so this cannot
+      // use computeIfAbsent. Racing threads compute the same result, so either result can be kept.
+      result = computeSupertypes(info, holder);
+      Supertypes existing = supertypes.putIfAbsent(info.type, result);
+      if (existing != null) {
+        result = existing;
       }
     }
-    return false;
+    return result;
   }
 
-  private boolean isSubtypeOfClass(TypeInfo subInfo, TypeInfo superInfo, boolean orElse) {
-    if (superInfo.hierarchyLevel == UNKNOWN_LEVEL) {
-      // We have no definition for this class, hence it is not part of the hierarchy.
-      return orElse;
+  private Supertypes computeSupertypes(TypeInfo info, DexClass holder) {
+    if (info.hierarchyLevel == INTERFACE_LEVEL) {
+      return new Supertypes(
+          Supertypes.NONE.superclasses, collectInterfaces(holder, Collections.emptySet()));
+    }
+    int level = info.hierarchyLevel;
+    DexType[] superclasses = new DexType[level + 1];
+    superclasses[level] = info.type;
+    if (level == ROOT_LEVEL || holder.superType == null) {
+      return new Supertypes(superclasses, collectInterfaces(holder, Collections.emptySet()));
+    }
+    assert !holder.isInterface();
+    TypeInfo superInfo = getTypeInfo(holder.superType);
+    Supertypes superSupertypes =
+        superInfo.hierarchyLevel < level ? getSupertypes(superInfo) : Supertypes.NONE;
+    System.arraycopy(
+        superSupertypes.superclasses,
+        0,
+        superclasses,
+        0,
+        Math.min(superSupertypes.superclasses.length, level));
+    return new Supertypes(superclasses, collectInterfaces(holder, superSupertypes.interfaces));
+  }
+
+  /**
+   * Removes the cached supertypes of {@param type} and its subtypes. Must be called when the
+   * superclass or the interfaces of {@param type} are changed in place.
+   */
+  public void unsetCachedSupertypes(DexType type) {
+    assert checkIfObsolete();
+    supertypes.remove(type);
+    for (DexType subtype : subtypes(type)) {
+      supertypes.remove(subtype);
     }
-    while (superInfo.hierarchyLevel < subInfo.hierarchyLevel) {
-      DexClass holder = definitionFor(subInfo.type);
-      assert holder != null && !holder.isInterface();
-      subInfo = getTypeInfo(holder.superType);
+  }
+
+  private Set<DexType> collectInterfaces(DexClass holder, Set<DexType> inheritedInterfaces) {
+    if (holder == null || holder.interfaces.isEmpty()) {
+      return inheritedInterfaces;
+    }
+    Set<DexType> interfaces = Sets.newIdentityHashSet();
+    interfaces.addAll(inheritedInterfaces);
+    for (DexType iface : holder.interfaces.values) {
+      assert getTypeInfo(iface).hierarchyLevel == INTERFACE_LEVEL;
+      if (interfaces.add(iface)) {
+        interfaces.addAll(getSupertypes(getTypeInfo(iface)).interfaces);
+      }
     }
-    return subInfo.type == superInfo.type;
+    return interfaces;
   }
 
   /**
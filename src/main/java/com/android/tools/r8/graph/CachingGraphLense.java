@@ -0,0 +1,165 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.graph;
+
+import com.android.tools.r8.ir.code.Invoke.Type;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A graph lens that caches the results of looking up references in another graph lens.
+ *
+ * <p>After the whole-program optimizations, the graph lens is a chain of nested lenses, and each
+ * lookup visits every lens in the chain. The result of a lookup only depends on its arguments, so
+ * this lens memoizes the composed results. Each reference, and each method in each context and
+ * invocation type, is therefore only mapped through the chain once, after which the lookup is a
+ * single hash map lookup from the original reference to the final one. This includes the composed
+ * {@link RewrittenPrototypeDescription} of a method.
+ *
+ * <p>The caches are thread safe, such that the lens can be used during concurrent IR processing.
+ */
+public class CachingGraphLense extends GraphLense {
+
+  private static class MethodLookupKey {
+
+    private final DexMethod method;
+    private final DexMethod context;
+    private final Type type;
+
+    private MethodLookupKey(DexMethod method, DexMethod context, Type type) {
+      this.method = method;
+      this.context = context;
+      this.type = type;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof MethodLookupKey)) {
+        return false;
+      }
+      MethodLookupKey key = (MethodLookupKey) other;
+      return method == key.method && context == key.context && type == key.type;
+    }
+
+    @Override
+    public int hashCode() {
+      return (method.hashCode() * 31 + (context == null ? 0 : context.hashCode())) * 31
+          + (type == null ? 0 : type.ordinal());
+    }
+  }
+
+  private final GraphLense lense;
+  private final boolean isContextFreeForMethods;
+
+  private final Map<DexType, DexType> types = new ConcurrentHashMap<>();
+  private final Map<DexField, DexField> fields = new ConcurrentHashMap<>();
+  private final Map<MethodLookupKey, GraphLenseLookupResult> methods = new ConcurrentHashMap<>();
+  private final Map<DexMethod, RewrittenPrototypeDescription> prototypeChanges =
+      new ConcurrentHashMap<>();
+
+  private final Map<DexType, DexType> originalTypes = new ConcurrentHashMap<>();
+  private final Map<DexField, DexField> originalFieldSignatures = new ConcurrentHashMap<>();
+  private final Map<DexMethod, DexMethod> originalMethodSignatures = new ConcurrentHashMap<>();
+
+  private CachingGraphLense(GraphLense lense) {
+    this.lense = lense;
+    this.isContextFreeForMethods = lense.isContextFreeForMethods();
+  }
+
+  /**
+   * Returns a lens that maps references as the given lens does, caching the results. The identity
+   * lens, and lenses that already cache their results, are returned as is.
+   */
+  public static GraphLense create(GraphLense lense) {
+    if (lense.isIdentityLense() || lense instanceof CachingGraphLense) {
+      return lense;
+    }
+    return new CachingGraphLense(lense);
+  }
+
+  @Override
+  public DexType getOriginalType(DexType type) {
+    return originalTypes.computeIfAbsent(type, lense::getOriginalType);
+  }
+
+  @Override
+  public DexField getOriginalFieldSignature(DexField field) {
+    return originalFieldSignatures.computeIfAbsent(field, lense::getOriginalFieldSignature);
+  }
+
+  @Override
+  public DexMethod getOriginalMethodSignature(DexMethod method) {
+    return originalMethodSignatures.computeIfAbsent(method, lense::getOriginalMethodSignature);
+  }
+
+  @Override
+  public DexField getRenamedFieldSignature(DexField originalField) {
+    return lense.getRenamedFieldSignature(originalField);
+  }
+
+  @Override
+  public DexMethod getRenamedMethodSignature(DexMethod originalMethod) {
+    return lense.getRenamedMethodSignature(originalMethod);
+  }
+
+  @Override
+  public DexType lookupType(DexType type) {
+    return types.computeIfAbsent(type, lense::lookupType);
+  }
+
+  @Override
+  public GraphLenseLookupResult lookupMethod(DexMethod method, DexMethod context, Type type) {
+    // When the result does not depend on the context, share the result between all contexts.
+    MethodLookupKey key =
+        new MethodLookupKey(method, isContextFreeForMethods ? null : context, type);
+    GraphLenseLookupResult result = methods.get(key);
+    if (result == null) {
+      result = lense.lookupMethod(method, context, type);
+      methods.putIfAbsent(key, result);
+    }
+    return result;
+  }
+
+  @Override
+  public RewrittenPrototypeDescription lookupPrototypeChanges(DexMethod method) {
+    return prototypeChanges.computeIfAbsent(method, lense::lookupPrototypeChanges);
+  }
+
+  @Override
+  public Set<DexMethod> lookupMethodInAllContexts(DexMethod method) {
+    return lense.lookupMethodInAllContexts(method);
+  }
+
+  @Override
+  public DexField lookupField(DexField field) {
+    return fields.computeIfAbsent(field, lense::lookupField);
+  }
+
+  @Override
+  public DexMethod lookupGetFieldForMethod(DexField field, DexMethod context) {
+    return lense.lookupGetFieldForMethod(field, context);
+  }
+
+  @Override
+  public DexMethod lookupPutFieldForMethod(DexField field, DexMethod context) {
+    return lense.lookupPutFieldForMethod(field, context);
+  }
+
+  @Override
+  public boolean isContextFreeForMethods() {
+    return isContextFreeForMethods;
+  }
+
+  @Override
+  public boolean isContextFreeForMethod(DexMethod method) {
+    return lense.isContextFreeForMethod(method);
+  }
+
+  @Override
+  public String toString() {
+    return lense.toString();
+  }
+}
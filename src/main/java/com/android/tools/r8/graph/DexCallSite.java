@@ -172,7 +172,7 @@ public final class DexCallSite extends IndexedDexItem implements Comparable<DexC
 
     private void write(DexString string) throws IOException {
       out.writeInt(string.size); // To avoid same-prefix problem
-      out.write(string.content);
+      string.writeContent(out);
     }
 
     private void write(DexType type) throws IOException {
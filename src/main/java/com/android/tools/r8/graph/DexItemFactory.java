@@ -21,6 +21,7 @@ import com.android.tools.r8.graph.DexDebugEvent.SetPrologueEnd;
 import com.android.tools.r8.graph.DexMethodHandle.MethodHandleType;
 import com.android.tools.r8.ir.analysis.type.ArrayTypeLatticeElement;
 import com.android.tools.r8.ir.analysis.type.ClassTypeLatticeElement;
+import com.android.tools.r8.ir.analysis.type.ClassTypeLatticeJoinCache;
 import com.android.tools.r8.ir.analysis.type.Nullability;
 import com.android.tools.r8.ir.analysis.type.ReferenceTypeLatticeElement;
 import com.android.tools.r8.ir.analysis.type.TypeLatticeElement;
@@ -63,10 +64,91 @@ public class DexItemFactory {
   public static final String throwableDescriptorString = "Ljava/lang/Throwable;";
 
   private final ConcurrentHashMap<DexString, DexString> strings = new ConcurrentHashMap<>();
-  private final ConcurrentHashMap<DexString, DexType> types = new ConcurrentHashMap<>();
-  private final ConcurrentHashMap<DexField, DexField> fields = new ConcurrentHashMap<>();
-  private final ConcurrentHashMap<DexProto, DexProto> protos = new ConcurrentHashMap<>();
-  private final ConcurrentHashMap<DexMethod, DexMethod> methods = new ConcurrentHashMap<>();
+  // When set, the content of new canonical strings is stored in shared slabs.
+  private DexStringPool stringPool = null;
+  // Types, fields, protos and methods are looked up by their components, such that looking up an
+  // existing item does not allocate.
+  private final InterningTable<DexType, DexString, Void, Void> types =
+      new InterningTable<DexType, DexString, Void, Void>() {
+        @Override
+        int hash(DexString descriptor, Void unused1, Void unused2) {
+          return descriptor.hashCode();
+        }
+
+        @Override
+        boolean matches(DexType type, DexString descriptor, Void unused1, Void unused2) {
+          return type.descriptor.equals(descriptor);
+        }
+
+        @Override
+        DexType create(DexString descriptor, Void unused1, Void unused2) {
+          DexType result = new DexType(descriptor);
+          assert result.isArrayType() || result.isClassType() || result.isPrimitiveType() ||
+              result.isVoidType();
+          assert !isInternalSentinel(result);
+          return result;
+        }
+      };
+  private final InterningTable<DexField, DexType, DexType, DexString> fields =
+      new InterningTable<DexField, DexType, DexType, DexString>() {
+        @Override
+        int hash(DexType holder, DexType type, DexString name) {
+          return DexField.computeHashCode(holder, type, name);
+        }
+
+        @Override
+        boolean matches(DexField field, DexType holder, DexType type, DexString name) {
+          return field.holder.equals(holder) && field.type.equals(type) && field.name.equals(name);
+        }
+
+        @Override
+        DexField create(DexType holder, DexType type, DexString name) {
+          return new DexField(holder, type, name, skipNameValidationForTesting);
+        }
+      };
+  // Protos are keyed by return and parameter types. The shorty is only supplied when it is known
+  // already, e.g., when reading DEX, and is otherwise created along with the proto.
+  private final InterningTable<DexProto, DexType, DexType[], DexString> protos =
+      new InterningTable<DexProto, DexType, DexType[], DexString>() {
+        @Override
+        int hash(DexType returnType, DexType[] parameters, DexString shorty) {
+          return DexProto.computeHashCode(returnType, parameters);
+        }
+
+        @Override
+        boolean matches(
+            DexProto proto, DexType returnType, DexType[] parameters, DexString shorty) {
+          return proto.returnType.equals(returnType)
+              && Arrays.equals(proto.parameters.values, parameters);
+        }
+
+        @Override
+        DexProto create(DexType returnType, DexType[] parameters, DexString shorty) {
+          return new DexProto(
+              shorty == null ? createShorty(returnType, parameters) : shorty,
+              returnType,
+              parameters.length == 0 ? DexTypeList.empty() : new DexTypeList(parameters));
+        }
+      };
+  private final InterningTable<DexMethod, DexType, DexProto, DexString> methods =
+      new InterningTable<DexMethod, DexType, DexProto, DexString>() {
+        @Override
+        int hash(DexType holder, DexProto proto, DexString name) {
+          return DexMethod.computeHashCode(holder, proto, name);
+        }
+
+        @Override
+        boolean matches(DexMethod method, DexType holder, DexProto proto, DexString name) {
+          return method.holder.equals(holder)
+              && method.proto.equals(proto)
+              && method.name.equals(name);
+        }
+
+        @Override
+        DexMethod create(DexType holder, DexProto proto, DexString name) {
+          return new DexMethod(holder, proto, name, skipNameValidationForTesting);
+        }
+      };
   private final ConcurrentHashMap<DexMethodHandle, DexMethodHandle> methodHandles =
       new ConcurrentHashMap<>();
 
@@ -86,8 +168,13 @@ public class DexItemFactory {
       referenceTypeLatticeElements = new ConcurrentHashMap<>();
   private final ConcurrentHashMap<DexType, Set<DexType>>
       classTypeLatticeInterfaces = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<
+          DexType, ConcurrentHashMap<Set<DexType>, ClassTypeLatticeElement>>
+      classTypeLatticeElements = new ConcurrentHashMap<>();
   public final LRUCacheTable<Set<DexType>, Set<DexType>, Set<DexType>>
       leastUpperBoundOfInterfacesTable = LRUCacheTable.create(8, 8);
+  public final ClassTypeLatticeJoinCache classTypeLatticeJoinCache =
+      new ClassTypeLatticeJoinCache();
 
   boolean sorted = false;
 
@@ -1116,14 +1203,41 @@ public class DexItemFactory {
     return previous == null ? item : previous;
   }
 
+  /**
+   * Store the content of strings created from now on in a {@link DexStringPool} instead of in a
+   * separate array per string.
+   */
+  public void enableStringPool() {
+    if (stringPool == null) {
+      stringPool = new DexStringPool();
+    }
+  }
+
+  public boolean isStringPoolEnabled() {
+    return stringPool != null;
+  }
+
   public DexString createString(int size, byte[] content) {
     assert !sorted;
-    return canonicalize(strings, new DexString(size, content));
+    return canonicalizeString(new DexString(size, content));
   }
 
   public DexString createString(String source) {
     assert !sorted;
-    return canonicalize(strings, new DexString(source));
+    return canonicalizeString(new DexString(source));
+  }
+
+  private DexString canonicalizeString(DexString string) {
+    if (stringPool == null) {
+      return canonicalize(strings, string);
+    }
+    // Only move the content into the pool when the string is new, such that the temporary array
+    // is all that is allocated for a string that already exists.
+    DexString existing = strings.get(string);
+    if (existing != null) {
+      return existing;
+    }
+    return canonicalize(strings, stringPool.intern(string));
   }
 
   public DexString lookupString(String source) {
@@ -1162,18 +1276,10 @@ public class DexItemFactory {
         .reduce(null, (s1, s2) -> s1 == null ? s2 : s1.merge(s2));
   }
 
-  synchronized public DexType createType(DexString descriptor) {
+  public DexType createType(DexString descriptor) {
     assert !sorted;
     assert descriptor != null;
-    DexType result = types.get(descriptor);
-    if (result == null) {
-      result = new DexType(descriptor);
-      assert result.isArrayType() || result.isClassType() || result.isPrimitiveType() ||
-          result.isVoidType();
-      assert !isInternalSentinel(result);
-      types.put(descriptor, result);
-    }
-    return result;
+    return types.intern(descriptor, null, null);
   }
 
   public DexType createType(String descriptor) {
@@ -1181,7 +1287,7 @@ public class DexItemFactory {
   }
 
   public DexType lookupType(DexString descriptor) {
-    return types.get(descriptor);
+    return types.lookup(descriptor, null, null);
   }
 
   public DexType createArrayType(int nesting, DexType baseType) {
@@ -1191,8 +1297,7 @@ public class DexItemFactory {
 
   public DexField createField(DexType clazz, DexType type, DexString name) {
     assert !sorted;
-    DexField field = new DexField(clazz, type, name, skipNameValidationForTesting);
-    return canonicalize(fields, field);
+    return fields.intern(clazz, type, name);
   }
 
   public DexField createField(DexType clazz, DexType type, String name) {
@@ -1201,14 +1306,14 @@ public class DexItemFactory {
 
   public DexProto createProto(DexType returnType, DexString shorty, DexTypeList parameters) {
     assert !sorted;
-    DexProto proto = new DexProto(shorty, returnType, parameters);
-    return canonicalize(protos, proto);
+    DexProto proto = protos.intern(returnType, parameters.values, shorty);
+    assert proto.shorty.equals(shorty);
+    return proto;
   }
 
   public DexProto createProto(DexType returnType, DexType... parameters) {
     assert !sorted;
-    return createProto(returnType, createShorty(returnType, parameters),
-        parameters.length == 0 ? DexTypeList.empty() : new DexTypeList(parameters));
+    return protos.intern(returnType, parameters, null);
   }
 
   public DexProto protoWithDifferentFirstParameter(DexProto proto, DexType firstParameter) {
@@ -1279,8 +1384,7 @@ public class DexItemFactory {
 
   public DexMethod createMethod(DexType holder, DexProto proto, DexString name) {
     assert !sorted;
-    DexMethod method = new DexMethod(holder, proto, name, skipNameValidationForTesting);
-    return canonicalize(methods, method);
+    return methods.intern(holder, proto, name);
   }
 
   public DexMethod createMethod(DexType holder, DexProto proto, String name) {
@@ -1385,13 +1489,17 @@ public class DexItemFactory {
   public void clearTypeLatticeElementsCache() {
     referenceTypeLatticeElements.clear();
     classTypeLatticeInterfaces.clear();
+    classTypeLatticeElements.clear();
     leastUpperBoundOfInterfacesTable.clear();
+    classTypeLatticeJoinCache.clear();
   }
 
   public boolean verifyNoCachedTypeLatticeElements() {
     assert referenceTypeLatticeElements.isEmpty();
     assert classTypeLatticeInterfaces.isEmpty();
+    assert classTypeLatticeElements.isEmpty();
     assert leastUpperBoundOfInterfacesTable.isEmpty();
+    assert classTypeLatticeJoinCache.isEmpty();
     return true;
   }
 
@@ -1429,11 +1537,11 @@ public class DexItemFactory {
               if (type.isClassType()) {
                 if (!appView.enableWholeProgramOptimizations()) {
                   // Don't reason at the level of interfaces in D8.
-                  return ClassTypeLatticeElement.create(type, nullability, Collections.emptySet());
+                  return createClassTypeLatticeElement(type, nullability, Collections.emptySet());
                 }
                 assert appView.appInfo().hasSubtyping();
                 if (appView.isInterface(type).isTrue()) {
-                  return ClassTypeLatticeElement.create(
+                  return createClassTypeLatticeElement(
                       objectType, nullability, Collections.singleton(type));
                 }
                 // In theory, `interfaces` is the least upper bound of implemented interfaces.
@@ -1449,6 +1557,26 @@ public class DexItemFactory {
         .getOrCreateVariant(nullability);
   }
 
+  /**
+   * Returns the canonical class type lattice element for the given class type, nullability and set
+   * of interfaces. The given set must not be modified afterwards.
+   */
+  public ClassTypeLatticeElement createClassTypeLatticeElement(
+      DexType type, Nullability nullability, Set<DexType> interfaces) {
+    ConcurrentHashMap<Set<DexType>, ClassTypeLatticeElement> elements =
+        classTypeLatticeElements.get(type);
+    if (elements == null) {
+      elements = classTypeLatticeElements.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+    }
+    ClassTypeLatticeElement element = elements.get(interfaces);
+    if (element == null) {
+      element =
+          elements.computeIfAbsent(
+              interfaces, i -> ClassTypeLatticeElement.create(type, nullability, i));
+    }
+    return element.getOrCreateVariant(nullability).asClassTypeLatticeElement();
+  }
+
   public Set<DexType> getOrComputeLeastUpperBoundOfImplementedInterfaces(
       DexType type, AppView<? extends AppInfoWithSubtyping> appView) {
     return classTypeLatticeInterfaces
@@ -1495,6 +1623,6 @@ public class DexItemFactory {
   }
 
   synchronized public void forAllTypes(Consumer<DexType> f) {
-    new ArrayList<>(types.values()).forEach(f);
+    types.values().forEach(f);
   }
 }
@@ -5,6 +5,7 @@ package com.android.tools.r8.graph;
 
 import com.android.tools.r8.dex.IndexedItemCollection;
 import com.android.tools.r8.naming.NamingLens;
+import java.util.Arrays;
 
 public class DexProto extends IndexedDexItem implements PresortedComparable<DexProto> {
 
@@ -22,9 +23,13 @@ public class DexProto extends IndexedDexItem implements PresortedComparable<DexP
 
   @Override
   public int computeHashCode() {
-    return shorty.hashCode()
-        + returnType.hashCode() * 7
-        + parameters.hashCode() * 31;
+    return computeHashCode(returnType, parameters.values);
+  }
+
+  // The shorty is determined by the return and parameter types, so it is not part of the hash.
+  // This allows looking up a proto without creating its shorty.
+  static int computeHashCode(DexType returnType, DexType[] parameters) {
+    return returnType.hashCode() * 7 + Arrays.hashCode(parameters) * 31;
   }
 
   @Override
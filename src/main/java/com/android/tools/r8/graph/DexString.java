@@ -4,11 +4,14 @@
 package com.android.tools.r8.graph;
 
 import com.android.tools.r8.dex.Constants;
+import com.android.tools.r8.dex.DexOutputBuffer;
 import com.android.tools.r8.dex.IndexedItemCollection;
 import com.android.tools.r8.naming.NamingLens;
 import com.android.tools.r8.utils.IdentifierUtils;
 import com.android.tools.r8.utils.StringUtils;
 import com.android.tools.r8.utils.ThrowingCharIterator;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UTFDataFormatException;
 import java.util.Arrays;
 import java.util.NoSuchElementException;
@@ -18,22 +21,58 @@ public class DexString extends IndexedDexItem implements PresortedComparable<Dex
   public static final DexString[] EMPTY_ARRAY = {};
 
   public final int size;  // size of this string, in UTF-16
-  public final byte[] content;
+  // The MUTF-8 encoded content including the terminating zero byte. The array is shared between
+  // strings when the content is stored in a DexStringPool, see offset() and contentLength().
+  private final byte[] content;
 
+  // The content must be the MUTF-8 encoding including the terminating zero byte and nothing else,
+  // unless it is a slab of a DexStringPool.
   DexString(int size, byte[] content) {
     this.size = size;
     this.content = content;
   }
 
   DexString(String string) {
-    this.size = string.length();
-    this.content = encodeToMutf8(string);
+    this(string.length(), encodeToMutf8(string));
+  }
+
+  /** Returns the start of the MUTF-8 encoded content in the content array. */
+  int offset() {
+    return 0;
+  }
+
+  /** Returns the byte at {@param index} of the MUTF-8 encoded content. */
+  public byte byteAt(int index) {
+    return content[offset() + index];
+  }
+
+  /** Returns the number of bytes of the MUTF-8 encoded content including the terminating zero. */
+  public int contentLength() {
+    return content.length;
+  }
+
+  /** Returns a copy of the MUTF-8 encoded content from {@param from} including the terminator. */
+  public byte[] copyContent(int from) {
+    return Arrays.copyOfRange(content, offset() + from, offset() + contentLength());
+  }
+
+  /** Copies the MUTF-8 encoded content including the terminator into {@param dest}. */
+  public void copyContentTo(byte[] dest, int destOffset) {
+    System.arraycopy(content, offset(), dest, destOffset, contentLength());
+  }
+
+  public void writeContent(OutputStream out) throws IOException {
+    out.write(content, offset(), contentLength());
+  }
+
+  public void writeContent(DexOutputBuffer dest) {
+    dest.putBytes(content, offset(), contentLength());
   }
 
   public ThrowingCharIterator<UTFDataFormatException> iterator() {
     return new ThrowingCharIterator<UTFDataFormatException>() {
 
-      private int i = 0;
+      private int i = offset();
 
       @Override
       public char nextChar() throws UTFDataFormatException {
@@ -72,14 +111,33 @@ public class DexString extends IndexedDexItem implements PresortedComparable<Dex
 
   @Override
   public int computeHashCode() {
-    return size * 7 + Arrays.hashCode(content);
+    // Same as Arrays.hashCode on the content, but independent of how the content is stored.
+    int result = 1;
+    int index = offset();
+    byte b;
+    do {
+      b = content[index++];
+      result = 31 * result + b;
+    } while (b != 0);
+    return size * 7 + result;
   }
 
   @Override
   public boolean computeEquals(Object other) {
     if (other instanceof DexString) {
       DexString o = (DexString) other;
-      return size == o.size && Arrays.equals(content, o.content);
+      if (size != o.size) {
+        return false;
+      }
+      for (int i = offset(), j = o.offset(); ; i++, j++) {
+        byte b = content[i];
+        if (b != o.content[j]) {
+          return false;
+        }
+        if (b == 0) {
+          return true;
+        }
+      }
     }
     return false;
   }
@@ -103,7 +161,7 @@ public class DexString extends IndexedDexItem implements PresortedComparable<Dex
 
   public int numberOfLeadingSquareBrackets() {
     int result = 0;
-    while (content.length > result && content[result] == ((byte) '[')) {
+    while (content.length > offset() + result && content[offset() + result] == ((byte) '[')) {
       result++;
     }
     return result;
@@ -112,7 +170,7 @@ public class DexString extends IndexedDexItem implements PresortedComparable<Dex
   // Inspired from /dex/src/main/java/com/android/dex/Mutf8.java
   private String decode() throws UTFDataFormatException {
     int s = 0;
-    int p = 0;
+    int p = offset();
     char[] out = new char[size];
     while (true) {
       char a = (char) (content[p++] & 0xff);
@@ -143,7 +201,7 @@ public class DexString extends IndexedDexItem implements PresortedComparable<Dex
 
   public int decodedHashCode() throws UTFDataFormatException {
     int h = 0;
-    int p = 0;
+    int p = offset();
     while (true) {
       char a = (char) (content[p++] & 0xff);
       if (a == 0) {
@@ -245,8 +303,8 @@ public class DexString extends IndexedDexItem implements PresortedComparable<Dex
     // surrogate pairs and are compared using UTF-16 code units as per Java string semantics.
     int index = 0;
     while (true) {
-      char b1 = (char) (content[index] & 0xff);
-      char b2 = (char) (other.content[index] & 0xff);
+      char b1 = (char) (byteAt(index) & 0xff);
+      char b2 = (char) (other.byteAt(index) & 0xff);
       int diff = b1 - b2;
       if (diff != 0) {
         // Check if either string ends here.
@@ -255,9 +313,9 @@ public class DexString extends IndexedDexItem implements PresortedComparable<Dex
         }
         // If either of the strings have the null character starting here, the null character
         // sort lowest.
-        if ((b1 == 0xc0 && (content[index + 1] & 0xff) == 0x80) ||
-            (b2 == 0xc0 && (other.content[index + 1] & 0xff) == 0x80)) {
-          return b1 == 0xc0 && (content[index + 1] & 0xff) == 0x80 ? -1 : 1;
+        if ((b1 == 0xc0 && (byteAt(index + 1) & 0xff) == 0x80) ||
+            (b2 == 0xc0 && (other.byteAt(index + 1) & 0xff) == 0x80)) {
+          return b1 == 0xc0 && (byteAt(index + 1) & 0xff) == 0x80 ? -1 : 1;
         }
         return diff;
       } else if (b1 == 0) {
@@ -373,22 +431,25 @@ public class DexString extends IndexedDexItem implements PresortedComparable<Dex
     StringBuilder builder = new StringBuilder();
     builder.append(toString());
     builder.append(" [");
-    for (int i = 0; i < content.length; i++) {
+    int length = contentLength();
+    for (int i = 0; i < length; i++) {
       if (i > 0) {
         builder.append(" ");
       }
-      builder.append(Integer.toHexString(content[i] & 0xff));
+      builder.append(Integer.toHexString(byteAt(i) & 0xff));
     }
     builder.append("]");
     return builder.toString();
   }
 
   public boolean startsWith(DexString prefix) {
-    if (content.length < prefix.content.length) {
+    int length = contentLength();
+    int prefixLength = prefix.contentLength();
+    if (length < prefixLength) {
       return false;
     }
-    for (int i = 0; i < prefix.content.length - 1; i++) {
-      if (content[i] != prefix.content[i]) {
+    for (int i = 0; i < prefixLength - 1; i++) {
+      if (byteAt(i) != prefix.byteAt(i)) {
         return false;
       }
     }
@@ -396,11 +457,13 @@ public class DexString extends IndexedDexItem implements PresortedComparable<Dex
   }
 
   public boolean endsWith(DexString suffix) {
-    if (content.length < suffix.content.length) {
+    int length = contentLength();
+    int suffixLength = suffix.contentLength();
+    if (length < suffixLength) {
       return false;
     }
-    for (int i = content.length - suffix.content.length, j = 0; i < content.length; i++, j++) {
-      if (content[i] != suffix.content[j]) {
+    for (int i = length - suffixLength, j = 0; i < length; i++, j++) {
+      if (byteAt(i) != suffix.byteAt(j)) {
         return false;
       }
     }
@@ -0,0 +1,77 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Storage for the MUTF-8 content of canonical {@link DexString} instances.
+ *
+ * <p>Instead of a separate byte array per string the content is appended to large shared slabs and
+ * the {@link DexString} only holds the slab and the position of its content. This saves the array
+ * header and alignment padding of each string, which is a significant part of the heap for
+ * applications with millions of strings.
+ *
+ * <p>Space for the content is reserved in the current slab by atomically bumping its position, such
+ * that strings can be created concurrently without locking. The current slab belongs to the pool of
+ * a single {@link DexItemFactory}, and full slabs are only kept alive by the strings in them. Slabs
+ * are never reused, so strings must only be moved into the pool once they are known to be
+ * canonical.
+ */
+final class DexStringPool {
+
+  private static final int SLAB_SIZE = 64 * 1024;
+  // Strings larger than this keep their own array to limit the space wasted at the end of slabs.
+  private static final int MAX_POOLED_LENGTH = SLAB_SIZE / 16;
+
+  private static final class Slab {
+    private final byte[] data = new byte[SLAB_SIZE];
+    private final AtomicInteger position = new AtomicInteger();
+  }
+
+  /** A string with its content stored in a slab shared with other strings. */
+  private static final class PooledDexString extends DexString {
+
+    private final int offset;
+    private final int contentLength;
+
+    PooledDexString(int size, byte[] slab, int offset, int contentLength) {
+      super(size, slab);
+      assert slab[offset + contentLength - 1] == 0;
+      this.offset = offset;
+      this.contentLength = contentLength;
+    }
+
+    @Override
+    int offset() {
+      return offset;
+    }
+
+    @Override
+    public int contentLength() {
+      return contentLength;
+    }
+  }
+
+  private final AtomicReference<Slab> currentSlab = new AtomicReference<>(new Slab());
+
+  /** Returns a string with the same content as {@param string} stored in this pool. */
+  DexString intern(DexString string) {
+    int length = string.contentLength();
+    if (length > MAX_POOLED_LENGTH) {
+      return string;
+    }
+    while (true) {
+      Slab slab = currentSlab.get();
+      int offset = slab.position.getAndAdd(length);
+      if (offset + length <= SLAB_SIZE) {
+        string.copyContentTo(slab.data, offset);
+        return new PooledDexString(string.size, slab.data, offset, length);
+      }
+      // The slab is full. Replace it, unless another thread already did.
+      currentSlab.compareAndSet(slab, new Slab());
+    }
+  }
+}
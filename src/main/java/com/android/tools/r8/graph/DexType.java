@@ -108,7 +108,7 @@ public class DexType extends DexReference implements PresortedComparable<DexType
   }
 
   public char toShorty() {
-    char c = (char) descriptor.content[0];
+    char c = (char) descriptor.byteAt(0);
     return c == '[' ? 'L' : c;
   }
 
@@ -177,7 +177,7 @@ public class DexType extends DexReference implements PresortedComparable<DexType
   }
 
   public boolean isPrimitiveType() {
-    return isPrimitiveType((char) descriptor.content[0]);
+    return isPrimitiveType((char) descriptor.byteAt(0));
   }
 
   private boolean isPrimitiveType(char c) {
@@ -186,48 +186,48 @@ public class DexType extends DexReference implements PresortedComparable<DexType
   }
 
   public boolean isVoidType() {
-    return (char) descriptor.content[0] == 'V';
+    return (char) descriptor.byteAt(0) == 'V';
   }
 
   public boolean isBooleanType() {
-    return descriptor.content[0] == 'Z';
+    return descriptor.byteAt(0) == 'Z';
   }
 
   public boolean isByteType() {
-    return descriptor.content[0] == 'B';
+    return descriptor.byteAt(0) == 'B';
   }
 
   public boolean isCharType() {
-    return descriptor.content[0] == 'C';
+    return descriptor.byteAt(0) == 'C';
   }
 
   public boolean isShortType() {
-    return descriptor.content[0] == 'S';
+    return descriptor.byteAt(0) == 'S';
   }
 
   public boolean isIntType() {
-    return descriptor.content[0] == 'I';
+    return descriptor.byteAt(0) == 'I';
   }
 
   public boolean isFloatType() {
-    return descriptor.content[0] == 'F';
+    return descriptor.byteAt(0) == 'F';
   }
 
   public boolean isLongType() {
-    return descriptor.content[0] == 'J';
+    return descriptor.byteAt(0) == 'J';
   }
 
   public boolean isDoubleType() {
-    return descriptor.content[0] == 'D';
+    return descriptor.byteAt(0) == 'D';
   }
 
   public boolean isArrayType() {
-    char firstChar = (char) descriptor.content[0];
+    char firstChar = (char) descriptor.byteAt(0);
     return firstChar == '[';
   }
 
   public boolean isClassType() {
-    char firstChar = (char) descriptor.content[0];
+    char firstChar = (char) descriptor.byteAt(0);
     return firstChar == 'L';
   }
 
@@ -241,7 +241,7 @@ public class DexType extends DexReference implements PresortedComparable<DexType
     if (!isArrayType()) {
       return false;
     }
-    return isPrimitiveType((char) descriptor.content[1]);
+    return isPrimitiveType((char) descriptor.byteAt(1));
   }
 
   public boolean isWideType() {
@@ -273,7 +273,7 @@ public class DexType extends DexReference implements PresortedComparable<DexType
 
   public int elementSizeForPrimitiveArrayType() {
     assert isPrimitiveArrayType();
-    switch (descriptor.content[1]) {
+    switch (descriptor.byteAt(1)) {
       case 'Z':  // boolean
       case 'B':  // byte
         return 1;
@@ -293,7 +293,7 @@ public class DexType extends DexReference implements PresortedComparable<DexType
 
   public int getNumberOfLeadingSquareBrackets() {
     int leadingSquareBrackets = 0;
-    while (descriptor.content[leadingSquareBrackets] == '[') {
+    while (descriptor.byteAt(leadingSquareBrackets) == '[') {
       leadingSquareBrackets++;
     }
     return leadingSquareBrackets;
@@ -305,7 +305,7 @@ public class DexType extends DexReference implements PresortedComparable<DexType
       return this;
     }
     DexString newDesc = dexItemFactory.createString(descriptor.size - leadingSquareBrackets,
-        Arrays.copyOfRange(descriptor.content, leadingSquareBrackets, descriptor.content.length));
+        descriptor.copyContent(leadingSquareBrackets));
     return dexItemFactory.createType(newDesc);
   }
 
@@ -313,10 +313,9 @@ public class DexType extends DexReference implements PresortedComparable<DexType
     assert this.isArrayType();
     assert !newBase.isArrayType();
     int leadingSquareBrackets = getNumberOfLeadingSquareBrackets();
-    byte[] content = new byte[newBase.descriptor.content.length + leadingSquareBrackets];
+    byte[] content = new byte[newBase.descriptor.contentLength() + leadingSquareBrackets];
     Arrays.fill(content, 0, leadingSquareBrackets, (byte) '[');
-    System.arraycopy(newBase.descriptor.content, 0, content, leadingSquareBrackets,
-        newBase.descriptor.content.length);
+    newBase.descriptor.copyContentTo(content, leadingSquareBrackets);
     DexString newDesc = dexItemFactory
         .createString(newBase.descriptor.size + leadingSquareBrackets, content);
     return dexItemFactory.createType(newDesc);
@@ -325,7 +324,7 @@ public class DexType extends DexReference implements PresortedComparable<DexType
   public DexType toArrayElementType(DexItemFactory dexItemFactory) {
     assert this.isArrayType();
     DexString newDesc = dexItemFactory.createString(descriptor.size - 1,
-        Arrays.copyOfRange(descriptor.content, 1, descriptor.content.length));
+        descriptor.copyContent(1));
     return dexItemFactory.createType(newDesc);
   }
 
@@ -0,0 +1,144 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent table of canonical items looked up by the components of their key.
+ *
+ * <p>Unlike canonicalizing through a {@link java.util.concurrent.ConcurrentHashMap}, no candidate
+ * item has to be allocated to look up an item that already exists. The table is split into
+ * segments, each an open addressing hash table with linear probing. Lookups of existing items do
+ * not take any locks. Insertions, and lookups that miss, lock the segment of the key such that an
+ * item is created at most once.
+ *
+ * <p>The hash computed from the key components by {@link #hash} must be equal to the {@link
+ * Object#hashCode()} of the item created from them, as that is used when the table is resized.
+ */
+abstract class InterningTable<T, A, B, C> {
+
+  private static final int SEGMENT_BITS = 6;
+  private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+  private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+  private static final class Segment {
+    private volatile AtomicReferenceArray<Object> items =
+        new AtomicReferenceArray<>(INITIAL_SEGMENT_CAPACITY);
+    private int size = 0; // Guarded by the segment.
+  }
+
+  private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+  InterningTable() {
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      segments[i] = new Segment();
+    }
+  }
+
+  /** Hash of the key components. Must be equal to the hash code of the item created from them. */
+  abstract int hash(A a, B b, C c);
+
+  /** True if {@param item} is the item for the key components. */
+  abstract boolean matches(T item, A a, B b, C c);
+
+  /** Create the canonical item for the key components. */
+  abstract T create(A a, B b, C c);
+
+  private static int spread(int hash) {
+    // Mix the high bits into the low bits used for the probe position.
+    return hash ^ (hash >>> 16);
+  }
+
+  private Segment segmentFor(int spreadHash) {
+    return segments[spreadHash >>> (Integer.SIZE - SEGMENT_BITS)];
+  }
+
+  @SuppressWarnings("unchecked")
+  private T find(AtomicReferenceArray<Object> items, int spreadHash, A a, B b, C c) {
+    int mask = items.length() - 1;
+    for (int i = spreadHash & mask; ; i = (i + 1) & mask) {
+      T item = (T) items.get(i);
+      if (item == null) {
+        return null;
+      }
+      if (spread(item.hashCode()) == spreadHash && matches(item, a, b, c)) {
+        return item;
+      }
+    }
+  }
+
+  /** Returns the item for the key components or null if it has not been created. */
+  T lookup(A a, B b, C c) {
+    int spreadHash = spread(hash(a, b, c));
+    return find(segmentFor(spreadHash).items, spreadHash, a, b, c);
+  }
+
+  /** Returns the item for the key components, creating it if it does not exist. */
+  T intern(A a, B b, C c) {
+    int spreadHash = spread(hash(a, b, c));
+    Segment segment = segmentFor(spreadHash);
+    T item = find(segment.items, spreadHash, a, b, c);
+    if (item != null) {
+      return item;
+    }
+    synchronized (segment) {
+      // Look again as the item could have been added since the lookup without the lock.
+      AtomicReferenceArray<Object> items = segment.items;
+      item = find(items, spreadHash, a, b, c);
+      if (item != null) {
+        return item;
+      }
+      item = create(a, b, c);
+      assert spread(item.hashCode()) == spreadHash;
+      if ((segment.size + 1) * 4 > items.length() * 3) {
+        items = resize(items);
+        segment.items = items;
+      }
+      insert(items, spreadHash, item);
+      segment.size++;
+      return item;
+    }
+  }
+
+  private static void insert(AtomicReferenceArray<Object> items, int spreadHash, Object item) {
+    int mask = items.length() - 1;
+    int i = spreadHash & mask;
+    while (items.get(i) != null) {
+      i = (i + 1) & mask;
+    }
+    items.set(i, item);
+  }
+
+  private static AtomicReferenceArray<Object> resize(AtomicReferenceArray<Object> items) {
+    // Readers may still probe the old array. It is left intact, so such readers will at worst
+    // miss items added after the resize and retry under the segment lock.
+    AtomicReferenceArray<Object> newItems = new AtomicReferenceArray<>(items.length() * 2);
+    for (int i = 0; i < items.length(); i++) {
+      Object item = items.get(i);
+      if (item != null) {
+        insert(newItems, spread(item.hashCode()), item);
+      }
+    }
+    return newItems;
+  }
+
+  /** Returns a snapshot of the items in the table. */
+  @SuppressWarnings("unchecked")
+  List<T> values() {
+    List<T> result = new ArrayList<>();
+    for (Segment segment : segments) {
+      AtomicReferenceArray<Object> items = segment.items;
+      for (int i = 0; i < items.length(); i++) {
+        Object item = items.get(i);
+        if (item != null) {
+          result.add((T) item);
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -459,6 +459,12 @@ public class JarClassFileReader {
           crc.update(this.context.classCache);
           checksums.addChecksum(type.descriptor.toASCIIString(), crc.getValue());
         }
+        if (application.options.dexingCache != null) {
+          application.options.dexingCache.recordClassContent(type, this.context.classCache);
+        }
+        if (application.options.tracingCache != null) {
+          application.options.tracingCache.recordClassContent(type, this.context.classCache);
+        }
       }
       classConsumer.accept(clazz);
     }
@@ -1016,7 +1022,8 @@ public class JarClassFileReader {
 
     // This will hold the content of the whole class. Once all the methods of the class are swapped
     // from this to the actual JarCode, no other references would be left and the content can be
-    // GC'd.
+    // GC'd. The code of each LazyCfCode is parsed on its own from the content when it is first
+    // used, so the code of methods that are never used is not materialized.
     public byte[] classCache;
     public DexClass owner;
     public final List<Code> codeList = new ArrayList<>();
@@ -92,13 +92,18 @@ public class LazyCfCode extends Code implements CfOrJarCode {
     this.origin = origin;
     this.context = context;
     this.application = application;
+    this.index = context.codeList.size();
     context.codeList.add(this);
   }
 
   private final Origin origin;
   private final JarApplicationReader application;
-  private CfCode code;
-  private ReparseContext context;
+  // Position of the method among the methods with code in the class file.
+  private final int index;
+  private volatile CfCode code;
+  // Cleared when the code is parsed, such that the class file content can be GC'd once the code of
+  // all the methods that are used has been parsed.
+  private volatile ReparseContext context;
   private boolean reachabilitySensitive = false;
 
   @Override
@@ -125,31 +130,37 @@ public class LazyCfCode extends Code implements CfOrJarCode {
   @Override
   public CfCode asCfCode() {
     if (code == null) {
+      // The context is only cleared after the code is set.
       ReparseContext context = this.context;
-      assert context != null;
-      // The ClassCodeVisitor is in charge of setting this.context to null.
-      try {
-        parseCode(context, false);
-      } catch (JsrEncountered e) {
-        for (Code code : context.codeList) {
-          code.asLazyCfCode().code = null;
-          code.asLazyCfCode().context = context;
-        }
-        try {
-          parseCode(context, true);
-        } catch (JsrEncountered e1) {
-          throw new Unreachable(e1);
+      if (context != null) {
+        synchronized (this) {
+          if (code == null) {
+            parseCode(context);
+          }
         }
       }
-      assert verifyNoReparseContext(context.owner);
     }
     assert code != null;
     return code;
   }
 
-  public void parseCode(ReparseContext context, boolean useJsrInliner) {
+  private void parseCode(ReparseContext context) {
+    assert context.classCache != null;
+    try {
+      parseCode(context, false);
+    } catch (JsrEncountered e) {
+      try {
+        parseCode(context, true);
+      } catch (JsrEncountered e1) {
+        throw new Unreachable(e1);
+      }
+    }
+  }
+
+  private void parseCode(ReparseContext context, boolean useJsrInliner) {
     int parsingOptions = JarCode.getParsingOptions(application, reachabilitySensitive);
-    ClassCodeVisitor classVisitor = new ClassCodeVisitor(context, application, useJsrInliner);
+    ClassCodeVisitor classVisitor =
+        new ClassCodeVisitor(context, application, this, useJsrInliner);
     new ClassReader(context.classCache).accept(classVisitor, parsingOptions);
   }
 
@@ -160,6 +171,10 @@ public class LazyCfCode extends Code implements CfOrJarCode {
     this.context = null;
   }
 
+  boolean isParsed() {
+    return code != null;
+  }
+
   @Override
   protected int computeHashCode() {
     throw new Unimplemented();
@@ -223,35 +238,46 @@ public class LazyCfCode extends Code implements CfOrJarCode {
     return asCfCode().toString(method, naming);
   }
 
+  /** Visits the class file to parse the code of the methods that have not been parsed. */
+  /** Visits the class file and only decodes the code of a single method. */
   private static class ClassCodeVisitor extends ClassVisitor {
 
     private final ReparseContext context;
     private final JarApplicationReader application;
+    private final LazyCfCode code;
+    private final boolean useJsrInliner;
     private int methodIndex = 0;
-    private boolean usrJsrInliner;
 
     ClassCodeVisitor(
-        ReparseContext context, JarApplicationReader application, boolean useJsrInliner) {
+        ReparseContext context,
+        JarApplicationReader application,
+        LazyCfCode code,
+        boolean useJsrInliner) {
       super(InternalOptions.ASM_VERSION);
       this.context = context;
       this.application = application;
-      this.usrJsrInliner = useJsrInliner;
+      this.code = code;
+      this.useJsrInliner = useJsrInliner;
     }
 
     @Override
     public MethodVisitor visitMethod(
         int access, String name, String desc, String signature, String[] exceptions) {
       MethodAccessFlags flags = JarClassFileReader.createMethodAccessFlags(name, access);
-      if (!flags.isAbstract() && !flags.isNative()) {
-        LazyCfCode code = context.codeList.get(methodIndex++).asLazyCfCode();
-        DexMethod method = application.getMethod(context.owner.type, name, desc);
-        MethodCodeVisitor methodVisitor = new MethodCodeVisitor(application, method, code);
-        if (!usrJsrInliner) {
-          return methodVisitor;
-        }
-        return new JSRInlinerAdapter(methodVisitor, access, name, desc, signature, exceptions);
+      if (flags.isAbstract() || flags.isNative()) {
+        return null;
+      }
+      if (methodIndex++ != code.index) {
+        // Returning null makes the reader skip the code of the method without decoding it.
+        return null;
+      }
+      assert context.codeList.get(code.index) == code;
+      DexMethod method = application.getMethod(context.owner.type, name, desc);
+      MethodCodeVisitor methodVisitor = new MethodCodeVisitor(application, method, code);
+      if (!useJsrInliner) {
+        return methodVisitor;
       }
-      return null;
+      return new JSRInlinerAdapter(methodVisitor, access, name, desc, signature, exceptions);
     }
   }
 
@@ -889,18 +915,6 @@ public class LazyCfCode extends Code implements CfOrJarCode {
     }
   }
 
-  private static boolean verifyNoReparseContext(DexClass owner) {
-    for (DexEncodedMethod method : owner.virtualMethods()) {
-      Code code = method.getCode();
-      assert code == null || !(code instanceof LazyCfCode) || ((LazyCfCode) code).context == null;
-    }
-    for (DexEncodedMethod method : owner.directMethods()) {
-      Code code = method.getCode();
-      assert code == null || !(code instanceof LazyCfCode) || ((LazyCfCode) code).context == null;
-    }
-    return true;
-  }
-
   @Override
   public ConstraintWithTarget computeInliningConstraint(
       DexEncodedMethod encodedMethod,
@@ -15,7 +15,6 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -128,7 +127,7 @@ public class ClassTypeLatticeElement extends ReferenceTypeLatticeElement {
   @Override
   public int hashCode() {
     // The interfaces of a type do not contribute to its hashCode as they are lazily computed.
-    return Objects.hash(nullability, type);
+    return nullability.hashCode() * 31 + type.hashCode();
   }
 
   @Override
@@ -174,23 +173,37 @@ public class ClassTypeLatticeElement extends ReferenceTypeLatticeElement {
         for (DexType iface : lazyInterfaces) {
           newInterfaces.add(substituteMap.lookupType(iface));
         }
-        return create(mappedType, nullability, newInterfaces);
+        return appView
+            .dexItemFactory()
+            .createClassTypeLatticeElement(mappedType, nullability, newInterfaces);
       }
     }
     return this;
   }
 
   ClassTypeLatticeElement join(ClassTypeLatticeElement other, AppView<?> appView) {
+    ClassTypeLatticeJoinCache joinCache = appView.dexItemFactory().classTypeLatticeJoinCache;
+    ClassTypeLatticeElement join = joinCache.get(this, other);
+    if (join == null) {
+      join = computeJoin(other, appView);
+      joinCache.put(this, other, join);
+    }
+    return join;
+  }
+
+  private ClassTypeLatticeElement computeJoin(ClassTypeLatticeElement other, AppView<?> appView) {
     Nullability nullability = nullability().join(other.nullability());
     if (!appView.appInfo().hasSubtyping()) {
       assert lazyInterfaces != null && lazyInterfaces.isEmpty();
       assert other.lazyInterfaces != null && other.lazyInterfaces.isEmpty();
-      return ClassTypeLatticeElement.create(
-          getClassType() == other.getClassType()
-              ? getClassType()
-              : appView.dexItemFactory().objectType,
-          nullability,
-          Collections.emptySet());
+      return appView
+          .dexItemFactory()
+          .createClassTypeLatticeElement(
+              getClassType() == other.getClassType()
+                  ? getClassType()
+                  : appView.dexItemFactory().objectType,
+              nullability,
+              Collections.emptySet());
     }
     DexType lubType =
         appView
@@ -206,7 +219,7 @@ public class ClassTypeLatticeElement extends ReferenceTypeLatticeElement {
     if (lubItfs == null) {
       lubItfs = computeLeastUpperBoundOfInterfaces(appView.withSubtyping(), c1lubItfs, c2lubItfs);
     }
-    return ClassTypeLatticeElement.create(lubType, nullability, lubItfs);
+    return appView.dexItemFactory().createClassTypeLatticeElement(lubType, nullability, lubItfs);
   }
 
   private enum InterfaceMarker {
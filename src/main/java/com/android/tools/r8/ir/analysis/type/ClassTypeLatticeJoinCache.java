@@ -0,0 +1,75 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.analysis.type;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded cache of the least upper bounds of pairs of class types.
+ *
+ * <p>The cache is direct mapped: the pair of elements, in any order, determines a single slot,
+ * which holds the most recently computed join for a pair that maps to that slot. The elements are
+ * compared by identity, which is effective since the class type elements are canonicalized by
+ * {@link com.android.tools.r8.graph.DexItemFactory}. Looking up a join does not allocate and does
+ * not take a lock. A lookup that races with an update of the same slot may miss, in which case the
+ * join is simply recomputed.
+ */
+public class ClassTypeLatticeJoinCache {
+
+  private static final int SIZE = 1 << 12;
+
+  private static class Entry {
+
+    private final ClassTypeLatticeElement left;
+    private final ClassTypeLatticeElement right;
+    private final ClassTypeLatticeElement join;
+
+    private Entry(
+        ClassTypeLatticeElement left, ClassTypeLatticeElement right, ClassTypeLatticeElement join) {
+      this.left = left;
+      this.right = right;
+      this.join = join;
+    }
+  }
+
+  private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(SIZE);
+
+  private static int index(ClassTypeLatticeElement left, ClassTypeLatticeElement right) {
+    // The index is symmetric since the join is commutative.
+    int hash = System.identityHashCode(left) ^ System.identityHashCode(right);
+    return (hash ^ (hash >>> 16)) & (SIZE - 1);
+  }
+
+  ClassTypeLatticeElement get(ClassTypeLatticeElement left, ClassTypeLatticeElement right) {
+    Entry entry = entries.get(index(left, right));
+    if (entry == null) {
+      return null;
+    }
+    if ((entry.left == left && entry.right == right)
+        || (entry.left == right && entry.right == left)) {
+      return entry.join;
+    }
+    return null;
+  }
+
+  void put(
+      ClassTypeLatticeElement left, ClassTypeLatticeElement right, ClassTypeLatticeElement join) {
+    entries.set(index(left, right), new Entry(left, right, join));
+  }
+
+  public void clear() {
+    for (int i = 0; i < SIZE; i++) {
+      entries.set(i, null);
+    }
+  }
+
+  public boolean isEmpty() {
+    for (int i = 0; i < SIZE; i++) {
+      if (entries.get(i) != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -37,7 +37,6 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -149,7 +148,7 @@ public class BasicBlock {
   // Catch handler information about which successors are catch handlers and what their guards are.
   private CatchHandlers<Integer> catchHandlers = CatchHandlers.EMPTY_INDICES;
 
-  private LinkedList<Instruction> instructions = new LinkedList<>();
+  private final InstructionList instructions = new InstructionList();
   private int number = -1;
   private List<Phi> phis = new ArrayList<>();
 
@@ -558,7 +557,7 @@ public class BasicBlock {
     return nextInstructionNumber;
   }
 
-  public LinkedList<Instruction> getInstructions() {
+  public InstructionList getInstructions() {
     return instructions;
   }
 
@@ -571,13 +570,13 @@ public class BasicBlock {
   }
 
   public Instruction entry() {
-    return instructions.get(0);
+    return instructions.getFirst();
   }
 
   public JumpInstruction exit() {
     assert filled;
-    assert instructions.get(instructions.size() - 1).isJumpInstruction();
-    return instructions.get(instructions.size() - 1).asJumpInstruction();
+    assert instructions.getLast().isJumpInstruction();
+    return instructions.getLast().asJumpInstruction();
   }
 
   public Instruction exceptionalExit() {
@@ -1241,29 +1240,19 @@ public class BasicBlock {
     instructions.add(branch);
   }
 
-  public void setInstructions(LinkedList<Instruction> instructions) {
-    this.instructions = instructions;
-  }
-
   /**
    * Remove a number of instructions. The instructions to remove are given as indexes in the
    * instruction stream.
    */
   public void removeInstructions(List<Integer> toRemove) {
-    if (!toRemove.isEmpty()) {
-      LinkedList<Instruction> newInstructions = new LinkedList<>();
-      int nextIndex = 0;
-      for (Integer index : toRemove) {
-        assert index >= nextIndex;  // Indexes in toRemove must be sorted ascending.
-        newInstructions.addAll(instructions.subList(nextIndex, index));
-        instructions.get(index).clearBlock();
-        nextIndex = index + 1;
-      }
-      if (nextIndex < instructions.size()) {
-        newInstructions.addAll(instructions.subList(nextIndex, instructions.size()));
-      }
-      assert instructions.size() == newInstructions.size() + toRemove.size();
-      setInstructions(newInstructions);
+    // Remove the instructions from the last to the first, such that the indexes of the remaining
+    // instructions to remove are not affected.
+    int previousIndex = Integer.MAX_VALUE;
+    for (int i = toRemove.size() - 1; i >= 0; i--) {
+      int index = toRemove.get(i);
+      assert index < previousIndex;  // Indexes in toRemove must be sorted ascending.
+      instructions.remove(index).clearBlock();
+      previousIndex = index;
     }
   }
 
@@ -26,6 +26,7 @@ import com.google.common.collect.Sets;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Deque;
@@ -141,27 +142,62 @@ public class IRCode {
     return blocks.getFirst();
   }
 
+  // The live values at entry to a block during the computation of the live-at-entry sets. The
+  // values that are live in registers are represented by bit sets over the value numbers, such
+  // that the sets are cheap to copy, join and compare during the fixed point iteration.
+  private static class LiveAtEntryBits {
+    final BitSet liveValues;
+    final BitSet liveLocalValues;
+    final Deque<Value> liveStackValues;
+
+    LiveAtEntryBits(BitSet liveValues, BitSet liveLocalValues, Deque<Value> liveStackValues) {
+      assert isSubset(liveLocalValues, liveValues);
+      this.liveValues = liveValues;
+      this.liveLocalValues = liveLocalValues;
+      this.liveStackValues = liveStackValues;
+    }
+
+    private static boolean isSubset(BitSet subset, BitSet set) {
+      BitSet difference = (BitSet) subset.clone();
+      difference.andNot(set);
+      return difference.isEmpty();
+    }
+
+    boolean isEmpty() {
+      return liveValues.isEmpty() && liveLocalValues.isEmpty();
+    }
+
+    boolean isSame(LiveAtEntryBits other) {
+      return liveValues.equals(other.liveValues) && liveLocalValues.equals(other.liveLocalValues);
+    }
+  }
+
   /**
    * Compute the set of live values at the entry to each block using a backwards data-flow analysis.
    */
   public Map<BasicBlock, LiveAtEntrySets> computeLiveAtEntrySets() {
-    Map<BasicBlock, LiveAtEntrySets> liveAtEntrySets = new IdentityHashMap<>();
+    Map<BasicBlock, LiveAtEntryBits> liveAtEntryBits = new IdentityHashMap<>();
+    // Mapping from value numbers to the values that have been live in some block.
+    List<Value> valuesByNumber = new ArrayList<>();
     Queue<BasicBlock> worklist = new ArrayDeque<>();
+    Set<BasicBlock> inWorklist = Sets.newIdentityHashSet();
     // Since this is a backwards data-flow analysis we process the blocks in reverse
     // topological order to reduce the number of iterations.
     ImmutableList<BasicBlock> sorted = topologicallySortedBlocks();
     worklist.addAll(sorted.reverse());
+    inWorklist.addAll(sorted);
     while (!worklist.isEmpty()) {
       BasicBlock block = worklist.poll();
-      Set<Value> live = new HashSet<>();
-      Set<Value> liveLocals = new HashSet<>();
+      inWorklist.remove(block);
+      BitSet live = new BitSet();
+      BitSet liveLocals = new BitSet();
       Deque<Value> liveStack = new ArrayDeque<>();
       Set<BasicBlock> exceptionalSuccessors = block.getCatchHandlers().getUniqueTargets();
       for (BasicBlock succ : block.getSuccessors()) {
-        LiveAtEntrySets liveAtSucc = liveAtEntrySets.get(succ);
+        LiveAtEntryBits liveAtSucc = liveAtEntryBits.get(succ);
         if (liveAtSucc != null) {
-          live.addAll(liveAtSucc.liveValues);
-          liveLocals.addAll(liveAtSucc.liveLocalValues);
+          live.or(liveAtSucc.liveValues);
+          liveLocals.or(liveAtSucc.liveLocalValues);
           // The stack is only allowed to be non-empty in the case of linear-flow (so-far).
           // If succ is an exceptional successor the successor stack should be empty
           // otherwise only one successor must have a non-empty stack.
@@ -178,7 +214,7 @@ public class IRCode {
           if (operand.isValueOnStack()) {
             liveStack.addLast(operand);
           } else {
-            live.add(operand);
+            live.set(recordValueNumber(operand, valuesByNumber));
             if (phi.hasLocalInfo()) {
               // If the phi has local information that implies that the local *must* be live at
               // entry to the block (ie, phis can't end a local explicitly only instructions can).
@@ -188,7 +224,7 @@ public class IRCode {
               // Therefore, if the phi has local information, that local is live and the operand
               // must be live at block exit.
               assert phi.getLocalInfo() == operand.getLocalInfo();
-              liveLocals.add(operand);
+              liveLocals.set(operand.getNumber());
             }
           }
         }
@@ -212,54 +248,85 @@ public class IRCode {
               assert pop == values[i];
             }
           } else {
-            live.remove(outValue);
-            assert outValue.hasLocalInfo() || !liveLocals.contains(outValue);
+            live.clear(outValue.getNumber());
+            assert outValue.hasLocalInfo() || !liveLocals.get(outValue.getNumber());
             if (outValue.hasLocalInfo()) {
-              liveLocals.remove(outValue);
+              liveLocals.clear(outValue.getNumber());
             }
           }
         }
         for (Value use : instruction.inValues()) {
           if (use.needsRegister()) {
-            live.add(use);
+            live.set(recordValueNumber(use, valuesByNumber));
           } else if (use.isValueOnStack()) {
             liveStack.addLast(use);
           }
         }
         assert instruction.getDebugValues().stream().allMatch(Value::needsRegister);
         assert instruction.getDebugValues().stream().allMatch(Value::hasLocalInfo);
-        live.addAll(instruction.getDebugValues());
-        liveLocals.addAll(instruction.getDebugValues());
+        for (Value debugValue : instruction.getDebugValues()) {
+          live.set(recordValueNumber(debugValue, valuesByNumber));
+          liveLocals.set(debugValue.getNumber());
+        }
       }
       for (Phi phi : block.getPhis()) {
         if (phi.isValueOnStack()) {
           liveStack.remove(phi);
         } else {
-          live.remove(phi);
+          live.clear(phi.getNumber());
         }
-        assert phi.hasLocalInfo() || !liveLocals.contains(phi);
+        assert phi.hasLocalInfo() || !liveLocals.get(phi.getNumber());
         if (phi.hasLocalInfo()) {
-          liveLocals.remove(phi);
+          liveLocals.clear(phi.getNumber());
         }
       }
-      LiveAtEntrySets liveAtEntry = new LiveAtEntrySets(live, liveLocals, liveStack);
-      LiveAtEntrySets previousLiveAtEntry = liveAtEntrySets.put(block, liveAtEntry);
+      LiveAtEntryBits liveAtEntry = new LiveAtEntryBits(live, liveLocals, liveStack);
+      LiveAtEntryBits previousLiveAtEntry = liveAtEntryBits.put(block, liveAtEntry);
       // If the live-at-entry set changed, add the predecessors to the worklist if they are not
       // already there.
-      if (previousLiveAtEntry == null || !previousLiveAtEntry.equals(liveAtEntry)) {
+      if (previousLiveAtEntry == null || !previousLiveAtEntry.isSame(liveAtEntry)) {
         for (BasicBlock pred : block.getPredecessors()) {
-          if (!worklist.contains(pred)) {
+          if (inWorklist.add(pred)) {
             worklist.add(pred);
           }
         }
       }
     }
-    assert liveAtEntrySets.get(sorted.get(0)).isEmpty()
+    assert liveAtEntryBits.get(sorted.get(0)).isEmpty()
         : "Unexpected values live at entry to first block: "
-        + liveAtEntrySets.get(sorted.get(0)).liveValues;
+            + toValueSet(liveAtEntryBits.get(sorted.get(0)).liveValues, valuesByNumber);
+    Map<BasicBlock, LiveAtEntrySets> liveAtEntrySets = new IdentityHashMap<>();
+    liveAtEntryBits.forEach(
+        (block, bits) ->
+            liveAtEntrySets.put(
+                block,
+                new LiveAtEntrySets(
+                    toValueSet(bits.liveValues, valuesByNumber),
+                    toValueSet(bits.liveLocalValues, valuesByNumber),
+                    bits.liveStackValues)));
     return liveAtEntrySets;
   }
 
+  private static int recordValueNumber(Value value, List<Value> valuesByNumber) {
+    int number = value.getNumber();
+    while (valuesByNumber.size() <= number) {
+      valuesByNumber.add(null);
+    }
+    Value existing = valuesByNumber.set(number, value);
+    assert existing == null || existing == value : "Value number " + number + " is not unique";
+    return number;
+  }
+
+  private static Set<Value> toValueSet(BitSet numbers, List<Value> valuesByNumber) {
+    Set<Value> values = new HashSet<>(numbers.cardinality() * 2);
+    for (int number = numbers.nextSetBit(0); number >= 0; number = numbers.nextSetBit(number + 1)) {
+      Value value = valuesByNumber.get(number);
+      assert value != null;
+      values.add(value);
+    }
+    return values;
+  }
+
   public boolean controlFlowMayDependOnEnvironment(AppView<?> appView) {
     DexType context = method.method.holder;
     for (BasicBlock block : blocks) {
@@ -0,0 +1,175 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir.code;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * The instructions of a {@link BasicBlock}.
+ *
+ * <p>The instructions are stored in an array with a gap at the position of the last insertion or
+ * removal. Inserting or removing an instruction moves the gap to that position, so a pass that
+ * rewrites a block with an iterator only moves each instruction once, and adding an instruction
+ * does not allocate unless the array is full. Looking up an instruction by index takes constant
+ * time.
+ *
+ * <p>Iterators are fail-fast as for {@link java.util.LinkedList}, which was used before.
+ */
+public class InstructionList extends AbstractList<Instruction> implements RandomAccess {
+
+  private static final Instruction[] EMPTY_ARRAY = {};
+  private static final int MINIMUM_CAPACITY = 8;
+
+  // The instructions are in elements[0, gapStart) followed by elements[gapEnd, elements.length).
+  private Instruction[] elements = EMPTY_ARRAY;
+  private int gapStart = 0;
+  private int gapEnd = 0;
+
+  @Override
+  public int size() {
+    return elements.length - (gapEnd - gapStart);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public Instruction get(int index) {
+    checkElementIndex(index);
+    return elements[physicalIndex(index)];
+  }
+
+  @Override
+  public Instruction set(int index, Instruction instruction) {
+    checkElementIndex(index);
+    int physicalIndex = physicalIndex(index);
+    Instruction previous = elements[physicalIndex];
+    elements[physicalIndex] = instruction;
+    return previous;
+  }
+
+  @Override
+  public boolean add(Instruction instruction) {
+    add(size(), instruction);
+    return true;
+  }
+
+  @Override
+  public void add(int index, Instruction instruction) {
+    checkPositionIndex(index);
+    if (gapStart == gapEnd) {
+      grow();
+    }
+    moveGap(index);
+    elements[gapStart++] = instruction;
+    modCount++;
+  }
+
+  @Override
+  public Instruction remove(int index) {
+    checkElementIndex(index);
+    moveGap(index);
+    Instruction instruction = elements[gapEnd];
+    elements[gapEnd++] = null;
+    modCount++;
+    return instruction;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(elements, null);
+    gapStart = 0;
+    gapEnd = elements.length;
+    modCount++;
+  }
+
+  public Instruction getFirst() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return get(0);
+  }
+
+  public Instruction getLast() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return get(size() - 1);
+  }
+
+  public void addFirst(Instruction instruction) {
+    add(0, instruction);
+  }
+
+  public void addLast(Instruction instruction) {
+    add(size(), instruction);
+  }
+
+  public Instruction removeFirst() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return remove(0);
+  }
+
+  public Instruction removeLast() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return remove(size() - 1);
+  }
+
+  private int physicalIndex(int index) {
+    return index < gapStart ? index : index + (gapEnd - gapStart);
+  }
+
+  private void moveGap(int index) {
+    if (index < gapStart) {
+      // Move elements[index, gapStart) to the end of the gap.
+      int count = gapStart - index;
+      int newGapEnd = gapEnd - count;
+      System.arraycopy(elements, index, elements, newGapEnd, count);
+      Arrays.fill(elements, index, Math.min(gapStart, newGapEnd), null);
+      gapStart = index;
+      gapEnd = newGapEnd;
+    } else if (index > gapStart) {
+      // Move the elements following the gap to the start of the gap.
+      int count = index - gapStart;
+      int newGapEnd = gapEnd + count;
+      System.arraycopy(elements, gapEnd, elements, gapStart, count);
+      Arrays.fill(elements, Math.max(gapEnd, index), newGapEnd, null);
+      gapStart = index;
+      gapEnd = newGapEnd;
+    }
+  }
+
+  private void grow() {
+    assert gapStart == gapEnd;
+    int capacity = Math.max(MINIMUM_CAPACITY, elements.length + (elements.length >> 1));
+    Instruction[] newElements = new Instruction[capacity];
+    int tail = elements.length - gapEnd;
+    System.arraycopy(elements, 0, newElements, 0, gapStart);
+    System.arraycopy(elements, gapEnd, newElements, capacity - tail, tail);
+    elements = newElements;
+    gapEnd = capacity - tail;
+  }
+
+  private void checkElementIndex(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+  }
+
+  private void checkPositionIndex(int index) {
+    if (index < 0 || index > size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+  }
+}
@@ -25,7 +25,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -201,9 +200,10 @@ public class Value {
 
   protected final int number;
   public Instruction definition = null;
-  private LinkedList<Instruction> users = new LinkedList<>();
+  // An instruction or phi that uses this value more than once is a user more than once.
+  private List<Instruction> users = new ArrayList<>(2);
   private Set<Instruction> uniqueUsers = null;
-  private LinkedList<Phi> phiUsers = new LinkedList<>();
+  private List<Phi> phiUsers = new ArrayList<>(0);
   private Set<Phi> uniquePhiUsers = null;
   private Value nextConsecutive = null;
   private Value previousConsecutive = null;
@@ -417,12 +417,12 @@ public class Value {
 
   public Instruction singleUniqueUser() {
     assert ImmutableSet.copyOf(users).size() == 1;
-    return users.getFirst();
+    return users.get(0);
   }
 
   public Phi firstPhiUser() {
     assert !phiUsers.isEmpty();
-    return phiUsers.getFirst();
+    return phiUsers.get(0);
   }
 
   public Set<Phi> uniquePhiUsers() {
@@ -441,6 +441,10 @@ public class Value {
     if (size <= 1) {
       return size;
     }
+    // Most values have few users, for which duplicates are found without building a set.
+    if (size == 2 && uniqueUsers == null) {
+      return users.get(0) == users.get(1) ? 1 : 2;
+    }
     return uniqueUsers().size();
   }
 
@@ -449,6 +453,9 @@ public class Value {
     if (size <= 1) {
       return size;
     }
+    if (size == 2 && uniquePhiUsers == null) {
+      return phiUsers.get(0) == phiUsers.get(1) ? 1 : 2;
+    }
     return uniquePhiUsers().size();
   }
 
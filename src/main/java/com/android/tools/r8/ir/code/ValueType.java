@@ -81,7 +81,7 @@ public enum ValueType {
   }
 
   public static ValueType fromDexType(DexType type) {
-    return fromTypeDescriptorChar((char) type.descriptor.content[0]);
+    return fromTypeDescriptorChar((char) type.descriptor.byteAt(0));
   }
 
   public static ValueType fromNumericType(NumericType type) {
@@ -10,6 +10,7 @@ import com.android.tools.r8.ir.conversion.CallGraphBuilder.CycleEliminator;
 import com.android.tools.r8.ir.conversion.CallSiteInformation.CallGraphBasedCallSiteInformation;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.utils.Timing;
+import java.util.Collections;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
@@ -46,6 +47,9 @@ public class CallGraph {
     // Incoming calls to this method.
     private final Set<Node> callers = new TreeSet<>();
 
+    // Outgoing calls from this method that have been removed to break cycles. Allocated lazily.
+    private Set<Node> removedCallees = null;
+
     public Node(DexEncodedMethod method) {
       this.method = method;
     }
@@ -73,6 +77,18 @@ public class CallGraph {
     public void removeCaller(Node caller) {
       callers.remove(caller);
       caller.callees.remove(this);
+      caller.recordRemovedCallee(this);
+    }
+
+    void recordRemovedCallee(Node callee) {
+      if (removedCallees == null) {
+        removedCallees = new TreeSet<>();
+      }
+      removedCallees.add(callee);
+    }
+
+    public Set<Node> getRemovedCalleesWithDeterministicOrder() {
+      return removedCallees == null ? Collections.emptySet() : removedCallees;
     }
 
     public void cleanForRemoval() {
@@ -400,6 +400,7 @@ public class CallGraphBuilder {
               // elimination is enabled, because we iterate a copy of `node.callees` in that case.
               calleeIterator.remove();
               callee.getCallersWithDeterministicOrder().remove(node);
+              node.recordRemovedCallee(callee);
             }
 
             if (Log.ENABLED) {
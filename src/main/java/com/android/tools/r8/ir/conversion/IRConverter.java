@@ -87,6 +87,7 @@ import com.android.tools.r8.shaking.MainDexClasses;
 import com.android.tools.r8.utils.Action;
 import com.android.tools.r8.utils.CfgPrinter;
 import com.android.tools.r8.utils.DescriptorUtils;
+import com.android.tools.r8.utils.ExceptionDiagnostic;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.InternalOptions.OutlineOptions;
 import com.android.tools.r8.utils.StringDiagnostic;
@@ -98,6 +99,8 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Streams;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
@@ -157,6 +160,8 @@ public class IRConverter {
   private final StringSwitchRemover stringSwitchRemover;
   private final UninstantiatedTypeOptimization uninstantiatedTypeOptimization;
   private final TypeChecker typeChecker;
+  private final MethodBudget methodBudget;
+  private final MethodProcessingProfiler profiler;
 
   final DeadCodeRemover deadCodeRemover;
 
@@ -190,6 +195,10 @@ public class IRConverter {
     this.stringBuilderOptimizer = new StringBuilderOptimizer(appView);
     this.deadCodeRemover = new DeadCodeRemover(appView, codeRewriter);
     this.idempotentFunctionCallCanonicalizer = new IdempotentFunctionCallCanonicalizer(appView);
+    this.methodBudget =
+        options.methodBudget.isEnabled() ? new MethodBudget(options.methodBudget) : null;
+    this.profiler =
+        options.methodProfileDirectory != null ? new MethodProcessingProfiler() : null;
     this.neverMergePrefixes =
         options.neverMergePrefixes.stream()
             .map(prefix -> "L" + DescriptorUtils.getPackageBinaryNameFromJavaType(prefix))
@@ -441,6 +450,11 @@ public class IRConverter {
     handleSynthesizedClassMapping(builder);
     timing.end();
 
+    if (methodBudget != null) {
+      methodBudget.report(options.reporter);
+    }
+    reportMethodProfile();
+
     return builder.build();
   }
 
@@ -516,7 +530,12 @@ public class IRConverter {
       throws ExecutionException {
     List<Future<?>> futures = new ArrayList<>();
     for (DexProgramClass clazz : classes) {
-      futures.add(executor.submit(() -> convertMethods(clazz)));
+      if (options.dexingCache != null && options.dexingCache.isCached(clazz)) {
+        // The DEX output for this class has already been supplied from the dexing cache.
+        continue;
+      }
+      futures.add(
+          executor.submit(() -> timing.scope("Convert class", () -> convertMethods(clazz))));
     }
     ThreadUtils.awaitFutures(futures);
   }
@@ -619,7 +638,8 @@ public class IRConverter {
                   outlineHandler),
           this::waveStart,
           this::waveDone,
-          executorService);
+          executorService,
+          timing);
       timing.end();
       assert graphLenseForIR == appView.graphLense();
     }
@@ -693,6 +713,11 @@ public class IRConverter {
       identifierNameStringMarker.decoupleIdentifierNameStringsInFields();
     }
 
+    if (methodBudget != null) {
+      methodBudget.report(options.reporter);
+    }
+    reportMethodProfile();
+
     if (Log.ENABLED) {
       constantCanonicalizer.logResults();
       if (idempotentFunctionCallCanonicalizer != null) {
@@ -721,6 +746,17 @@ public class IRConverter {
     return builder.build();
   }
 
+  private void reportMethodProfile() {
+    if (profiler == null) {
+      return;
+    }
+    try {
+      profiler.report(Paths.get(options.methodProfileDirectory), options.methodProfileTopN);
+    } catch (IOException e) {
+      options.reporter.warning(new ExceptionDiagnostic(e, Origin.unknown()));
+    }
+  }
+
   private void waveStart() {
     onWaveDoneActions = Collections.synchronizedList(new ArrayList<>());
   }
@@ -938,6 +974,9 @@ public class IRConverter {
       CallSiteInformation callSiteInformation,
       BiConsumer<IRCode, DexEncodedMethod> outlineHandler) {
     Origin origin = appView.appInfo().originFor(method.method.holder);
+    if (profiler != null) {
+      profiler.beginMethod(method);
+    }
     try {
       rewriteCodeInternal(
           method, feedback, isProcessedConcurrently, callSiteInformation, outlineHandler, origin);
@@ -953,6 +992,16 @@ public class IRConverter {
             errorPosition != Position.UNKNOWN ? errorPosition : new MethodPosition(method.method));
       }
       throw e;
+    } finally {
+      if (profiler != null) {
+        profiler.endMethod();
+      }
+    }
+  }
+
+  private void endPass(String pass) {
+    if (profiler != null) {
+      profiler.endPass(pass);
     }
   }
 
@@ -981,6 +1030,7 @@ public class IRConverter {
       feedback.markProcessed(method, ConstraintWithTarget.NEVER);
       return;
     }
+    endPass("IR building");
     if (Log.ENABLED) {
       Log.debug(getClass(), "Initial (SSA) flow graph for %s:\n%s", method.toSourceString(), code);
     }
@@ -995,12 +1045,17 @@ public class IRConverter {
     if (options.canHaveArtStringNewInitBug()) {
       CodeRewriter.ensureDirectStringNewToInit(code, appView.dexItemFactory());
     }
+    endPass("String new-init workaround");
 
     boolean isDebugMode = options.debug || method.getOptimizationInfo().isReachabilitySensitive();
+    // Methods that exceed the method budget are not subject to inlining, class inlining and
+    // outlining, which are the passes that grow with the size of the method.
+    boolean isOverBudget = methodBudget != null && methodBudget.isDegraded(method, code);
 
     if (isDebugMode) {
       codeRewriter.simplifyDebugLocals(code);
     }
+    endPass("Debug local simplification");
 
     if (!method.isProcessed()) {
       if (lensCodeRewriter != null) {
@@ -1013,6 +1068,7 @@ public class IRConverter {
         }
       }
     }
+    endPass("Lens code rewriting");
 
     if (typeChecker != null && !typeChecker.check(code)) {
       assert appView.enableWholeProgramOptimizations();
@@ -1026,6 +1082,7 @@ public class IRConverter {
       finalizeEmptyThrowingCode(method, feedback);
       return;
     }
+    endPass("Type checking");
 
     // This is the first point in time where we can assert that the types are sound. If this
     // assert fails, then the types that we have inferred are unsound, or the method does not type
@@ -1037,11 +1094,13 @@ public class IRConverter {
       assert appView.appInfo().hasLiveness();
       ServiceLoaderRewriter.rewrite(code, appView.withLiveness());
     }
+    endPass("ServiceLoaderRewriter");
 
     if (classStaticizer != null) {
       classStaticizer.fixupMethodCode(method, code);
       assert code.isConsistentSSA();
     }
+    endPass("ClassStaticizer fixup");
 
     previous = printMethod(code, "IR after class staticizer (SSA)", previous);
 
@@ -1049,18 +1108,22 @@ public class IRConverter {
       identifierNameStringMarker.decoupleIdentifierNameStringsInMethod(method, code);
       assert code.isConsistentSSA();
     }
+    endPass("IdentifierNameStringMarker");
 
     if (memberValuePropagation != null) {
       memberValuePropagation.rewriteWithConstantValues(
           code, method.method.holder, isProcessedConcurrently);
     }
+    endPass("Member value propagation");
     if (options.enableEnumValueOptimization) {
       assert appView.enableWholeProgramOptimizations();
       codeRewriter.removeSwitchMaps(code);
     }
+    endPass("Switch map removal");
     if (options.disableAssertions) {
       codeRewriter.disableAssertions(appView, method, code, feedback);
     }
+    endPass("Assertion disabling");
 
     previous = printMethod(code, "IR after disable assertions (SSA)", previous);
 
@@ -1073,16 +1136,19 @@ public class IRConverter {
       assert appView.enableWholeProgramOptimizations();
       dynamicTypeOptimization.insertAssumeDynamicTypeInstructions(code);
     }
+    endPass("Assume insertion");
 
     if (generatedMessageLiteShrinker != null) {
       generatedMessageLiteShrinker.run(method, code);
     }
+    endPass("GeneratedMessageLiteShrinker");
 
     previous = printMethod(code, "IR after null tracking (SSA)", previous);
 
-    if (!isDebugMode && options.enableInlining && inliner != null) {
+    if (!isDebugMode && !isOverBudget && options.enableInlining && inliner != null) {
       inliner.performInlining(method, code, feedback, isProcessedConcurrently, callSiteInformation);
     }
+    endPass("Inliner");
 
     previous = printMethod(code, "IR after inlining (SSA)", previous);
 
@@ -1090,6 +1156,7 @@ public class IRConverter {
       // Reflection optimization 1. getClass() -> const-class
       ReflectionOptimizer.rewriteGetClass(appView.withLiveness(), code);
     }
+    endPass("ReflectionOptimizer");
 
     if (!isDebugMode) {
       // Reflection optimization 2. get*Name() with const-class -> const-string
@@ -1102,17 +1169,21 @@ public class IRConverter {
       stringOptimizer.removeTrivialConversions(code);
       assert code.isConsistentSSA();
     }
+    endPass("StringOptimizer");
 
     if (devirtualizer != null) {
       assert code.verifyTypes(appView);
       devirtualizer.devirtualizeInvokeInterface(code, method.method.holder);
     }
+    endPass("Devirtualizer");
     if (uninstantiatedTypeOptimization != null) {
       uninstantiatedTypeOptimization.rewrite(code);
     }
+    endPass("UninstantiatedTypeOptimization");
 
     assert code.verifyTypes(appView);
     codeRewriter.removeTrivialCheckCastAndInstanceOfInstructions(code);
+    endPass("Trivial check-cast and instance-of removal");
 
     if (options.enableEnumValueOptimization) {
       assert appView.enableWholeProgramOptimizations();
@@ -1121,30 +1192,42 @@ public class IRConverter {
 
     codeRewriter.rewriteLongCompareAndRequireNonNull(code, options);
     codeRewriter.rewriteAssertionErrorTwoArgumentConstructor(code, options);
+    endPass("Library method call rewriting");
     codeRewriter.commonSubexpressionElimination(code);
+    endPass("Common subexpression elimination");
     codeRewriter.simplifyArrayConstruction(code);
     codeRewriter.rewriteMoveResult(code);
+    endPass("Array construction and move-result rewriting");
     // TODO(b/114002137): for now, string concatenation depends on rewriteMoveResult.
     if (options.enableStringConcatenationOptimization
         && !isDebugMode
         && options.isGeneratingDex()) {
       stringBuilderOptimizer.computeTrivialStringConcatenation(code);
     }
+    endPass("StringBuilderOptimizer");
 
     codeRewriter.splitRangeInvokeConstants(code);
+    endPass("Range invoke constant splitting");
     new SparseConditionalConstantPropagation(code).run();
+    endPass("SparseConditionalConstantPropagation");
     if (stringSwitchRemover != null) {
       stringSwitchRemover.run(method, code);
     }
+    endPass("StringSwitchRemover");
     codeRewriter.rewriteSwitch(code);
+    endPass("Switch rewriting");
     codeRewriter.processMethodsNeverReturningNormally(code);
+    endPass("Never returning method call rewriting");
     codeRewriter.simplifyIf(code);
+    endPass("If simplification");
     if (options.enableRedundantConstNumberOptimization) {
       codeRewriter.redundantConstNumberRemoval(code);
     }
+    endPass("Redundant const number removal");
     if (RedundantFieldLoadElimination.shouldRun(appView, code)) {
       new RedundantFieldLoadElimination(appView, code).run();
     }
+    endPass("RedundantFieldLoadElimination");
 
     if (options.testing.invertConditionals) {
       invertConditionalsForTesting(code);
@@ -1158,12 +1241,15 @@ public class IRConverter {
     if (nonNullTracker != null || dynamicTypeOptimization != null) {
       codeRewriter.removeAssumeInstructions(code);
     }
+    endPass("Assume removal");
 
     codeRewriter.rewriteThrowNullPointerException(code);
+    endPass("Throw null rewriting");
 
     if (classInitializerDefaultsOptimization != null && !isDebugMode) {
       classInitializerDefaultsOptimization.optimize(method, code);
     }
+    endPass("ClassInitializerDefaultsOptimization");
     if (Log.ENABLED) {
       Log.debug(getClass(), "Intermediate (SSA) flow graph for %s:\n%s",
           method.toSourceString(), code);
@@ -1173,6 +1259,7 @@ public class IRConverter {
     // dead code which is removed right before register allocation in performRegisterAllocation.
     deadCodeRemover.run(code);
     assert code.isConsistentSSA();
+    endPass("DeadCodeRemover");
     // Assert that we do not have unremoved dead code in the output.
     assert code.verifyNoNullabilityBottomTypes();
 
@@ -1182,8 +1269,10 @@ public class IRConverter {
     if (backportedMethodRewriter != null) {
       backportedMethodRewriter.desugar(code);
     }
+    endPass("Backport desugaring");
 
     stringConcatRewriter.desugarStringConcats(method.method, code);
+    endPass("String concatenation desugaring");
 
     if (options.testing.desugarLambdasThroughLensCodeRewriter()) {
       assert !options.enableDesugaring || lambdaRewriter.verifyNoLambdasToDesugar(code);
@@ -1192,12 +1281,13 @@ public class IRConverter {
       assert code.isConsistentSSA();
     }
     previous = printMethod(code, "IR after lambda desugaring (SSA)", previous);
+    endPass("Lambda desugaring");
 
     assert code.verifyTypes(appView);
 
     previous = printMethod(code, "IR before class inlining (SSA)", previous);
 
-    if (classInliner != null) {
+    if (classInliner != null && !isOverBudget) {
       // Class inliner should work before lambda merger, so if it inlines the
       // lambda, it does not get collected by merger.
       assert options.enableInlining && inliner != null;
@@ -1222,6 +1312,7 @@ public class IRConverter {
     }
 
     previous = printMethod(code, "IR after class inlining (SSA)", previous);
+    endPass("ClassInliner");
 
     if (d8NestBasedAccessDesugaring != null) {
       d8NestBasedAccessDesugaring.rewriteNestBasedAccesses(method, code, appView);
@@ -1229,6 +1320,7 @@ public class IRConverter {
     }
 
     previous = printMethod(code, "IR after nest based access desugaring (SSA)", previous);
+    endPass("Nest based access desugaring");
 
     if (interfaceMethodRewriter != null) {
       interfaceMethodRewriter.rewriteMethodReferences(method, code);
@@ -1236,12 +1328,14 @@ public class IRConverter {
     }
 
     previous = printMethod(code, "IR after interface method rewriting (SSA)", previous);
+    endPass("Interface method desugaring");
 
     if (twrCloseResourceRewriter != null) {
       twrCloseResourceRewriter.rewriteMethodCode(code);
     }
 
     previous = printMethod(code, "IR after twr close resource rewriter (SSA)", previous);
+    endPass("Try-with-resources desugaring");
 
     if (lambdaMerger != null) {
       lambdaMerger.processMethodCode(method, code);
@@ -1249,21 +1343,27 @@ public class IRConverter {
     }
 
     previous = printMethod(code, "IR after lambda merger (SSA)", previous);
+    endPass("LambdaMerger");
 
-    if (options.outline.enabled) {
+    if (options.outline.enabled && !isOverBudget) {
       outlineHandler.accept(code, method);
       assert code.isConsistentSSA();
     }
 
     previous = printMethod(code, "IR after outline handler (SSA)", previous);
+    endPass("Outliner");
 
     // TODO(mkroghj) Test if shorten live ranges is worth it.
     if (!options.isGeneratingClassFiles()) {
       constantCanonicalizer.canonicalize(appView, code);
+      endPass("ConstantCanonicalizer");
       codeRewriter.useDedicatedConstantForLitInstruction(code);
+      endPass("Dedicated constants for lit instructions");
       codeRewriter.shortenLiveRanges(code);
+      endPass("Live range shortening");
     }
     idempotentFunctionCallCanonicalizer.canonicalize(code);
+    endPass("IdempotentFunctionCallCanonicalizer");
 
     previous =
         printMethod(code, "IR after idempotent function call canonicalization (SSA)", previous);
@@ -1275,15 +1375,18 @@ public class IRConverter {
     }
 
     previous = printMethod(code, "IR after argument type logging (SSA)", previous);
+    endPass("Argument type logging");
 
     if (classStaticizer != null) {
       classStaticizer.examineMethodCode(method, code);
     }
+    endPass("ClassStaticizer examination");
 
     if (appView.enableWholeProgramOptimizations()) {
       if (libraryMethodOverrideAnalysis != null) {
         libraryMethodOverrideAnalysis.analyze(code);
       }
+      endPass("LibraryMethodOverrideAnalysis");
 
       // Compute optimization info summary for the current method unless it is pinned
       // (in that case we should not be making any assumptions about the behavior of the method).
@@ -1307,10 +1410,12 @@ public class IRConverter {
 
     previous =
         printMethod(code, "IR after computation of optimization info summary (SSA)", previous);
+    endPass("Optimization info");
 
     if (options.canHaveNumberConversionRegisterAllocationBug()) {
       codeRewriter.workaroundNumberConversionRegisterAllocationBug(code);
     }
+    endPass("Number conversion workaround");
 
     // Either marked by IdentifierNameStringMarker or name reflection, or propagated from inlinee,
     // Then, make it visible to IdentifierMinifier.
@@ -1327,6 +1432,7 @@ public class IRConverter {
       assert Streams.stream(code.instructionIterator())
           .noneMatch(Instruction::isDexItemBasedConstString);
     }
+    endPass("Identifier name string marking");
 
     printMethod(code, "Optimized IR (SSA)", previous);
     finalizeIR(method, code, feedback);
@@ -1512,15 +1618,18 @@ public class IRConverter {
     CfBuilder builder = new CfBuilder(appView, method, code);
     CfCode result = builder.build(codeRewriter);
     method.setCode(result, appView);
+    endPass("CfBuilder");
     markProcessed(method, code, feedback);
   }
 
   private void finalizeToDex(DexEncodedMethod method, IRCode code, OptimizationFeedback feedback) {
     // Workaround massive dex2oat memory use for self-recursive methods.
     CodeRewriter.disableDex2OatInliningForSelfRecursiveMethods(appView, code);
+    endPass("Dex2Oat inlining workaround");
     // Perform register allocation.
     RegisterAllocator registerAllocator = performRegisterAllocation(code, method);
     method.setCode(code, registerAllocator, appView);
+    endPass("DexBuilder");
     updateHighestSortingStrings(method);
     if (Log.ENABLED) {
       Log.debug(getClass(), "Resulting dex code for %s:\n%s",
@@ -1557,13 +1666,17 @@ public class IRConverter {
     // Always perform dead code elimination before register allocation. The register allocator
     // does not allow dead code (to make sure that we do not waste registers for unneeded values).
     deadCodeRemover.run(code);
+    endPass("DeadCodeRemover");
     materializeInstructionBeforeLongOperationsWorkaround(code);
     workaroundForwardingInitializerBug(code);
-    LinearScanRegisterAllocator registerAllocator = new LinearScanRegisterAllocator(appView, code);
+    LinearScanRegisterAllocator registerAllocator =
+        new LinearScanRegisterAllocator(
+            appView, code, methodBudget != null && methodBudget.isDegraded(method));
     registerAllocator.allocateRegisters();
     if (options.canHaveExceptionTargetingLoopHeaderBug()) {
       codeRewriter.workaroundExceptionTargetingLoopHeaderBug(code);
     }
+    endPass("Register allocation");
     printMethod(code, "After register allocation (non-SSA)", null);
     for (int i = 0; i < PEEPHOLE_OPTIMIZATION_PASSES; i++) {
       CodeRewriter.collapseTrivialGotos(code);
@@ -1571,6 +1684,7 @@ public class IRConverter {
     }
     CodeRewriter.removeUnneededMovesOnExitingPaths(code, registerAllocator);
     CodeRewriter.collapseTrivialGotos(code);
+    endPass("PeepholeOptimizer");
     if (Log.ENABLED) {
       Log.debug(getClass(), "Final (non-SSA) flow graph for %s:\n%s",
           method.toSourceString(), code);
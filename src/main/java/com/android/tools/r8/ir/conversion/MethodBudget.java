@@ -0,0 +1,94 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.conversion;
+
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.ir.code.BasicBlock;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.utils.InternalOptions.MethodBudgetOptions;
+import com.android.tools.r8.utils.Reporter;
+import com.android.tools.r8.utils.StringDiagnostic;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the methods that exceed the compile-time budget given by {@link
+ * MethodBudgetOptions}.
+ *
+ * <p>A method is degraded when its IR has more instructions than the instruction limit. Degraded
+ * methods are compiled without inlining, class inlining and outlining into them, and with a single
+ * register allocation pass. Once a method is degraded it stays degraded for the rest of the
+ * compilation, such that all passes treat it the same. The budget does not depend on the time it
+ * takes to process a method, such that the output does not depend on the load of the machine.
+ */
+public class MethodBudget {
+
+  private final MethodBudgetOptions options;
+  private final Map<DexEncodedMethod, String> degradedMethods = new ConcurrentHashMap<>();
+
+  MethodBudget(MethodBudgetOptions options) {
+    assert options.isEnabled();
+    this.options = options;
+  }
+
+  /** Returns true if the given method has been degraded. */
+  public boolean isDegraded(DexEncodedMethod method) {
+    return degradedMethods.containsKey(method);
+  }
+
+  /**
+   * Returns true if the given method is degraded, either by an earlier pass or because the given
+   * IR of the method exceeds the instruction limit.
+   */
+  public boolean isDegraded(DexEncodedMethod method, IRCode code) {
+    if (isDegraded(method)) {
+      return true;
+    }
+    if (options.instructionLimit >= 0) {
+      int instructions = 0;
+      for (BasicBlock block : code.blocks) {
+        instructions += block.getInstructions().size();
+      }
+      if (instructions > options.instructionLimit) {
+        degrade(
+            method,
+            instructions + " instructions exceeds the limit of " + options.instructionLimit);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void degrade(DexEncodedMethod method, String reason) {
+    // Only the first reason is reported.
+    degradedMethods.putIfAbsent(method, reason);
+  }
+
+  /** Reports the methods that have been degraded, if any. */
+  public void report(Reporter reporter) {
+    if (degradedMethods.isEmpty()) {
+      return;
+    }
+    List<DexEncodedMethod> methods = new ArrayList<>(degradedMethods.keySet());
+    methods.sort(Comparator.comparing(DexEncodedMethod::toSourceString));
+    StringBuilder builder = new StringBuilder();
+    builder
+        .append("Compiled ")
+        .append(methods.size())
+        .append(methods.size() == 1 ? " method" : " methods")
+        .append(" with reduced optimization to stay within the method budget:");
+    for (DexEncodedMethod method : methods) {
+      builder
+          .append(System.lineSeparator())
+          .append("  ")
+          .append(method.toSourceString())
+          .append(": ")
+          .append(degradedMethods.get(method));
+    }
+    reporter.info(new StringDiagnostic(builder.toString()));
+  }
+}
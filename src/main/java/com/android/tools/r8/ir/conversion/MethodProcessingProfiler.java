@@ -0,0 +1,285 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.conversion;
+
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the wall time and the allocated bytes of each optimization pass for each method that is
+ * processed by the {@link IRConverter}.
+ *
+ * <p>The processing of a method is started by {@link #beginMethod} and ended by {@link #endMethod}
+ * on the thread that processes the method. In between, each call to {@link #endPass} attributes the
+ * time and allocations since the previous call to the given pass. Allocations are measured per
+ * thread, which is only supported on JVMs that implement {@link
+ * com.sun.management.ThreadMXBean}. Elsewhere only the wall time is recorded, which is stated in
+ * the report.
+ *
+ * <p>The report consists of a JSON file with the totals per pass and the most expensive methods,
+ * and a trace in the Chrome trace event format with the processing of the most expensive methods.
+ */
+public class MethodProcessingProfiler {
+
+  public static final String REPORT_FILE_NAME = "method-profile.json";
+  public static final String TRACE_FILE_NAME = "method-profile-trace.json";
+
+  private static class PassEvent {
+
+    private final String pass;
+    private final long start;
+    private final long duration;
+    private final long allocatedBytes;
+
+    private PassEvent(String pass, long start, long duration, long allocatedBytes) {
+      this.pass = pass;
+      this.start = start;
+      this.duration = duration;
+      this.allocatedBytes = allocatedBytes;
+    }
+  }
+
+  private static class MethodEvent {
+
+    private final DexEncodedMethod method;
+    private final long threadId;
+    private final long start;
+    private final long startAllocatedBytes;
+    private final List<PassEvent> passes = new ArrayList<>();
+    private long duration;
+    private long allocatedBytes;
+
+    // The time and allocated bytes of the thread when the previous pass ended.
+    private long passStart;
+    private long passStartAllocatedBytes;
+
+    private MethodEvent(
+        DexEncodedMethod method, long threadId, long start, long startAllocatedBytes) {
+      this.method = method;
+      this.threadId = threadId;
+      this.start = start;
+      this.startAllocatedBytes = startAllocatedBytes;
+      this.passStart = start;
+      this.passStartAllocatedBytes = startAllocatedBytes;
+    }
+  }
+
+  private static class Summary {
+
+    private final String name;
+    private long duration;
+    private long allocatedBytes;
+    private int count;
+
+    private Summary(String name) {
+      this.name = name;
+    }
+
+    private void add(long duration, long allocatedBytes) {
+      this.duration += duration;
+      this.allocatedBytes += allocatedBytes;
+      this.count++;
+    }
+
+    private JsonObject toJson(String countName) {
+      JsonObject json = new JsonObject();
+      json.addProperty("name", name);
+      json.addProperty("timeMicros", TimeUnit.NANOSECONDS.toMicros(duration));
+      json.addProperty("allocatedBytes", allocatedBytes);
+      json.addProperty(countName, count);
+      return json;
+    }
+  }
+
+  private final com.sun.management.ThreadMXBean threadBean;
+  private final long origin = System.nanoTime();
+  private final ThreadLocal<MethodEvent> current = new ThreadLocal<>();
+  private final Queue<MethodEvent> events = new ConcurrentLinkedQueue<>();
+
+  public MethodProcessingProfiler() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+      threadBean = (com.sun.management.ThreadMXBean) bean;
+      threadBean.setThreadAllocatedMemoryEnabled(true);
+    } else {
+      threadBean = null;
+    }
+  }
+
+  private long allocatedBytes() {
+    return threadBean != null
+        ? threadBean.getThreadAllocatedBytes(Thread.currentThread().getId())
+        : 0;
+  }
+
+  /** Starts recording the processing of the given method on the current thread. */
+  public void beginMethod(DexEncodedMethod method) {
+    assert current.get() == null;
+    current.set(
+        new MethodEvent(
+            method, Thread.currentThread().getId(), System.nanoTime(), allocatedBytes()));
+  }
+
+  /** Attributes the time and allocations since the end of the previous pass to the given pass. */
+  public void endPass(String pass) {
+    MethodEvent event = current.get();
+    if (event == null) {
+      return;
+    }
+    long now = System.nanoTime();
+    long allocatedBytes = allocatedBytes();
+    event.passes.add(
+        new PassEvent(
+            pass,
+            event.passStart,
+            now - event.passStart,
+            allocatedBytes - event.passStartAllocatedBytes));
+    event.passStart = now;
+    event.passStartAllocatedBytes = allocatedBytes;
+  }
+
+  /** Ends recording the processing of the method on the current thread. */
+  public void endMethod() {
+    MethodEvent event = current.get();
+    if (event == null) {
+      return;
+    }
+    current.remove();
+    event.duration = System.nanoTime() - event.start;
+    event.allocatedBytes = allocatedBytes() - event.startAllocatedBytes;
+    events.add(event);
+  }
+
+  /**
+   * Writes the report and the trace for the {@code topN} most expensive methods to the given
+   * directory.
+   */
+  public void report(Path directory, int topN) throws IOException {
+    Map<String, Summary> passes = new HashMap<>();
+    Map<DexEncodedMethod, Summary> methods = new IdentityHashMap<>();
+    Map<DexEncodedMethod, Map<String, Summary>> passesPerMethod = new IdentityHashMap<>();
+    for (MethodEvent event : events) {
+      methods
+          .computeIfAbsent(event.method, method -> new Summary(method.toSourceString()))
+          .add(event.duration, event.allocatedBytes);
+      Map<String, Summary> methodPasses =
+          passesPerMethod.computeIfAbsent(event.method, method -> new HashMap<>());
+      for (PassEvent pass : event.passes) {
+        passes.computeIfAbsent(pass.pass, Summary::new).add(pass.duration, pass.allocatedBytes);
+        methodPasses
+            .computeIfAbsent(pass.pass, Summary::new)
+            .add(pass.duration, pass.allocatedBytes);
+      }
+    }
+    Comparator<Summary> byDuration =
+        Comparator.comparingLong((Summary summary) -> summary.duration)
+            .reversed()
+            .thenComparing(summary -> summary.name);
+    List<DexEncodedMethod> topMethods = new ArrayList<>(methods.keySet());
+    topMethods.sort(Comparator.comparing(methods::get, byDuration));
+    Set<DexEncodedMethod> topMethodsSet = Sets.newIdentityHashSet();
+    topMethods = topMethods.subList(0, Math.min(topN, topMethods.size()));
+    topMethodsSet.addAll(topMethods);
+
+    JsonObject report = new JsonObject();
+    report.addProperty("allocatedBytesSupported", threadBean != null);
+    JsonArray passesJson = new JsonArray();
+    passes.values().stream()
+        .sorted(byDuration)
+        .forEach(summary -> passesJson.add(summary.toJson("methods")));
+    report.add("passes", passesJson);
+    JsonArray methodsJson = new JsonArray();
+    for (DexEncodedMethod method : topMethods) {
+      JsonObject methodJson = methods.get(method).toJson("times");
+      JsonArray methodPassesJson = new JsonArray();
+      passesPerMethod.get(method).values().stream()
+          .sorted(byDuration)
+          .forEach(summary -> methodPassesJson.add(summary.toJson("times")));
+      methodJson.add("passes", methodPassesJson);
+      methodsJson.add(methodJson);
+    }
+    report.add("methods", methodsJson);
+
+    // See the Trace Event Format for the format of complete events ("ph": "X").
+    JsonArray traceEvents = new JsonArray();
+    for (MethodEvent event : events) {
+      if (!topMethodsSet.contains(event.method)) {
+        continue;
+      }
+      String methodName = methods.get(event.method).name;
+      traceEvents.add(
+          traceEvent(
+              methodName,
+              "method",
+              event.threadId,
+              event.start,
+              event.duration,
+              event.allocatedBytes));
+      for (PassEvent pass : event.passes) {
+        traceEvents.add(
+            traceEvent(
+                pass.pass,
+                "pass",
+                event.threadId,
+                pass.start,
+                pass.duration,
+                pass.allocatedBytes));
+      }
+    }
+    JsonObject trace = new JsonObject();
+    trace.add("traceEvents", traceEvents);
+    trace.addProperty("displayTimeUnit", "ms");
+
+    Files.createDirectories(directory);
+    Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    try (Writer writer =
+        Files.newBufferedWriter(directory.resolve(REPORT_FILE_NAME), StandardCharsets.UTF_8)) {
+      gson.toJson(report, writer);
+    }
+    try (Writer writer =
+        Files.newBufferedWriter(directory.resolve(TRACE_FILE_NAME), StandardCharsets.UTF_8)) {
+      new Gson().toJson(trace, writer);
+    }
+  }
+
+  private JsonObject traceEvent(
+      String name, String category, long threadId, long start, long duration, long allocatedBytes) {
+    JsonObject json = new JsonObject();
+    json.addProperty("name", name);
+    json.addProperty("cat", category);
+    json.addProperty("ph", "X");
+    json.addProperty("ts", TimeUnit.NANOSECONDS.toMicros(start - origin));
+    json.addProperty("dur", TimeUnit.NANOSECONDS.toMicros(duration));
+    json.addProperty("pid", 1);
+    json.addProperty("tid", threadId);
+    if (threadBean != null) {
+      JsonObject args = new JsonObject();
+      args.addProperty("allocatedBytes", allocatedBytes);
+      json.add("args", args);
+    }
+    return json;
+  }
+}
@@ -12,27 +12,49 @@ import com.android.tools.r8.utils.Action;
 import com.android.tools.r8.utils.IROrdering;
 import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.ThrowingBiConsumer;
+import com.android.tools.r8.utils.Timing;
 import com.google.common.collect.Sets;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 public class MethodProcessor {
 
   private final CallSiteInformation callSiteInformation;
   private final Deque<Collection<DexEncodedMethod>> waves;
+  // Set when methods are scheduled as soon as the methods they depend on are done instead of in
+  // waves, see InternalOptions.enableDynamicMethodProcessing.
+  private final Map<DexEncodedMethod, MethodTask> tasks;
+  // Only record a timing node for each method when the timings are printed.
+  private final boolean timeMethods;
+
+  // Statistics for reporting the thread utilization.
+  private final LongAdder workNanos = new LongAdder();
+  private final Set<Thread> workerThreads = Sets.newConcurrentHashSet();
 
   MethodProcessor(AppView<AppInfoWithLiveness> appView, CallGraph callGraph) {
     this.callSiteInformation = callGraph.createCallSiteInformation(appView);
+    Map<Node, List<Node>> neighbors =
+        appView.options().enableDynamicMethodProcessing ? collectNeighbors(callGraph) : null;
     this.waves = createWaves(appView, callGraph);
+    this.tasks = neighbors != null ? createTasks(waves, neighbors) : null;
+    this.timeMethods = appView.options().printTimes;
   }
 
   public CallSiteInformation getCallSiteInformation() {
@@ -67,17 +89,155 @@ public class MethodProcessor {
     return leaves;
   }
 
+  // Collect the callees of each node, including the calls that have been removed to break cycles,
+  // before the call graph is consumed by createWaves.
+  private static Map<Node, List<Node>> collectNeighbors(CallGraph callGraph) {
+    Map<Node, List<Node>> neighbors = new IdentityHashMap<>();
+    for (Node node : callGraph.nodes) {
+      List<Node> callees = new ArrayList<>(node.getCalleesWithDeterministicOrder());
+      callees.addAll(node.getRemovedCalleesWithDeterministicOrder());
+      neighbors.put(node, callees);
+    }
+    return neighbors;
+  }
+
+  /**
+   * Create a task per method with a dependency for each call between two methods.
+   *
+   * <p>The methods are ordered as they would be processed in waves. For each call edge, including
+   * edges removed to break cycles, the method that comes later in this order depends on the
+   * method that comes first. A method therefore always observes the processed code and
+   * optimization info of the methods it calls in the same way, no matter how the work is
+   * scheduled.
+   */
+  private static Map<DexEncodedMethod, MethodTask> createTasks(
+      Collection<Collection<DexEncodedMethod>> waves, Map<Node, List<Node>> neighbors) {
+    Map<DexEncodedMethod, MethodTask> tasks = new IdentityHashMap<>();
+    int order = 0;
+    for (Collection<DexEncodedMethod> wave : waves) {
+      for (DexEncodedMethod method : wave) {
+        tasks.put(method, new MethodTask(method, order++));
+      }
+    }
+    neighbors.forEach(
+        (node, callees) -> {
+          MethodTask caller = tasks.get(node.method);
+          for (Node callee : callees) {
+            MethodTask calleeTask = tasks.get(callee.method);
+            if (calleeTask.order < caller.order) {
+              caller.addDependency(calleeTask);
+            } else {
+              calleeTask.addDependency(caller);
+            }
+          }
+        });
+    return tasks;
+  }
+
+  private static class MethodTask {
+
+    private final DexEncodedMethod method;
+    // Position of the method when processed in waves.
+    private final int order;
+    private final Set<MethodTask> dependencies = Sets.newIdentityHashSet();
+    private final List<MethodTask> dependents = new ArrayList<>();
+    private final AtomicInteger pendingDependencies = new AtomicInteger();
+    // Only accessed by the thread processing this method. Allocated lazily.
+    private Map<MethodTask, Boolean> transitiveDependencyCache = null;
+
+    MethodTask(DexEncodedMethod method, int order) {
+      this.method = method;
+      this.order = order;
+    }
+
+    void addDependency(MethodTask dependency) {
+      if (dependencies.add(dependency)) {
+        dependency.dependents.add(this);
+        pendingDependencies.incrementAndGet();
+      }
+    }
+
+    boolean isTransitiveDependency(MethodTask other) {
+      if (other.order >= order) {
+        return false;
+      }
+      if (dependencies.contains(other)) {
+        return true;
+      }
+      if (transitiveDependencyCache == null) {
+        transitiveDependencyCache = new HashMap<>();
+      }
+      return transitiveDependencyCache.computeIfAbsent(other, this::searchDependency);
+    }
+
+    private boolean searchDependency(MethodTask target) {
+      // All dependencies come earlier in the order, so only tasks after the target can lead to it.
+      Set<MethodTask> visited = Sets.newIdentityHashSet();
+      Deque<MethodTask> worklist = new ArrayDeque<>(dependencies);
+      while (!worklist.isEmpty()) {
+        MethodTask task = worklist.removeLast();
+        if (task == target) {
+          return true;
+        }
+        if (task.order > target.order && visited.add(task)) {
+          worklist.addAll(task.dependencies);
+        }
+      }
+      return false;
+    }
+
+    /**
+     * True if {@param method} is possibly processed at the same time as this method, in which case
+     * its code cannot be relied upon. The optimization info of the methods in the pass is delayed
+     * until all methods are done, also for the methods that are not processed concurrently.
+     */
+    boolean isProcessedConcurrently(
+        Map<DexEncodedMethod, MethodTask> tasks, DexEncodedMethod method) {
+      MethodTask other = tasks.get(method);
+      return other != null && !isTransitiveDependency(other);
+    }
+  }
+
+  private void recordWork(long start) {
+    workNanos.add(System.nanoTime() - start);
+    workerThreads.add(Thread.currentThread());
+  }
+
   /**
    * Applies the given method to all leaf nodes of the graph.
    *
    * <p>As second parameter, a predicate that can be used to decide whether another method is
    * processed at the same time is passed. This can be used to avoid races in concurrent processing.
+   *
+   * <p>When processing in waves {@param waveStart} and {@param waveDone} are called around each
+   * wave. When methods are scheduled dynamically all methods are processed in a single wave, such
+   * that delayed optimization info and wave done actions only become visible once all methods are
+   * done. This keeps the result independent of the thread timing: a method may rely on the code of
+   * the methods it depends on, but never on the optimization info of the methods in the pass.
    */
   public <E extends Exception> void forEachMethod(
       ThrowingBiConsumer<DexEncodedMethod, Predicate<DexEncodedMethod>, E> consumer,
       Action waveStart,
       Action waveDone,
-      ExecutorService executorService)
+      ExecutorService executorService,
+      Timing timing)
+      throws ExecutionException {
+    if (tasks != null) {
+      waveStart.execute();
+      processTasks(consumer, executorService, timing);
+      waveDone.execute();
+    } else {
+      processWaves(consumer, waveStart, waveDone, executorService, timing);
+    }
+    timing.addParallelWork(workNanos.sum(), workerThreads.size());
+  }
+
+  private <E extends Exception> void processWaves(
+      ThrowingBiConsumer<DexEncodedMethod, Predicate<DexEncodedMethod>, E> consumer,
+      Action waveStart,
+      Action waveDone,
+      ExecutorService executorService,
+      Timing timing)
       throws ExecutionException {
     while (!waves.isEmpty()) {
       Collection<DexEncodedMethod> wave = waves.removeFirst();
@@ -88,7 +248,18 @@ public class MethodProcessor {
         futures.add(
             executorService.submit(
                 () -> {
-                  consumer.accept(method, wave::contains);
+                  long start = System.nanoTime();
+                  if (timeMethods) {
+                    timing.begin("Process method");
+                  }
+                  try {
+                    consumer.accept(method, wave::contains);
+                  } finally {
+                    if (timeMethods) {
+                      timing.end();
+                    }
+                  }
+                  recordWork(start);
                   return null; // we want a Callable not a Runnable to be able to throw
                 }));
       }
@@ -96,4 +267,84 @@ public class MethodProcessor {
       waveDone.execute();
     }
   }
+
+  private <E extends Exception> void processTasks(
+      ThrowingBiConsumer<DexEncodedMethod, Predicate<DexEncodedMethod>, E> consumer,
+      ExecutorService executorService,
+      Timing timing)
+      throws ExecutionException {
+    waves.clear();
+    if (tasks.isEmpty()) {
+      return;
+    }
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger finished = new AtomicInteger();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Consumer<MethodTask> submit =
+        new Consumer<MethodTask>() {
+          @Override
+          public void accept(MethodTask task) {
+            running.incrementAndGet();
+            executorService.execute(
+                () -> {
+                  try {
+                    if (failure.get() == null) {
+                      long start = System.nanoTime();
+                      if (timeMethods) {
+                        timing.begin("Process method");
+                      }
+                      try {
+                        consumer.accept(
+                            task.method, method -> task.isProcessedConcurrently(tasks, method));
+                      } finally {
+                        if (timeMethods) {
+                          timing.end();
+                        }
+                      }
+                      recordWork(start);
+                      finished.incrementAndGet();
+                      for (MethodTask dependent : task.dependents) {
+                        if (dependent.pendingDependencies.decrementAndGet() == 0) {
+                          accept(dependent);
+                        }
+                      }
+                    }
+                  } catch (Throwable e) {
+                    // Stop scheduling new methods and report the first failure once the methods
+                    // in progress are done.
+                    failure.compareAndSet(null, e);
+                  } finally {
+                    if (running.decrementAndGet() == 0) {
+                      done.complete(null);
+                    }
+                  }
+                });
+          }
+        };
+    // Start the methods without dependencies in the order they would have in the first wave.
+    List<MethodTask> initial = new ArrayList<>();
+    for (MethodTask task : tasks.values()) {
+      if (task.pendingDependencies.get() == 0) {
+        initial.add(task);
+      }
+    }
+    initial.sort((a, b) -> Integer.compare(a.order, b.order));
+    // Hold a reference while the initial methods are submitted, such that the processing is not
+    // considered done if they all finish before the last one is submitted.
+    running.incrementAndGet();
+    initial.forEach(submit);
+    if (running.decrementAndGet() == 0) {
+      done.complete(null);
+    }
+    try {
+      done.get();
+    } catch (InterruptedException e) {
+      throw new RuntimeException("Interrupted while waiting for future.", e);
+    }
+    if (failure.get() != null) {
+      throw new ExecutionException(failure.get());
+    }
+    assert finished.get() == tasks.size();
+  }
 }
@@ -968,6 +968,9 @@ public final class InterfaceMethodRewriter {
           newInterfaces[i] = extraInterfaces.get(i - clazz.interfaces.size());
         }
         clazz.interfaces = new DexTypeList(newInterfaces);
+        if (appView.appInfo().hasSubtyping()) {
+          appView.appInfo().withSubtyping().unsetCachedSupertypes(clazz.type);
+        }
       }
     }
   }
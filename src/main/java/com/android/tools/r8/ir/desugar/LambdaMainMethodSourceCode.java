@@ -58,7 +58,7 @@ final class LambdaMainMethodSourceCode extends SynthesizedLambdaSourceCode {
   }
 
   private DexType getBoxedForPrimitiveType(DexType primitive) {
-    switch (primitive.descriptor.content[0]) {
+    switch (primitive.descriptor.byteAt(0)) {
       case 'Z':  // byte
       case 'B':  // byte
       case 'S':  // short
@@ -94,7 +94,7 @@ final class LambdaMainMethodSourceCode extends SynthesizedLambdaSourceCode {
 
     if (a.isPrimitiveType()) {
       if (b.isPrimitiveType()) {
-        return isSameOrAdaptableTo(a.descriptor.content[0], b.descriptor.content[0]);
+        return isSameOrAdaptableTo(a.descriptor.byteAt(0), b.descriptor.byteAt(0));
       }
 
       // `a` is primitive and `b` is a supertype of the boxed type `a`.
@@ -120,7 +120,7 @@ final class LambdaMainMethodSourceCode extends SynthesizedLambdaSourceCode {
       // widened to primitive type `b`.
       DexType unboxedA = getPrimitiveFromBoxed(a);
       return unboxedA != null &&
-          isSameOrAdaptableTo(unboxedA.descriptor.content[0], b.descriptor.content[0]);
+          isSameOrAdaptableTo(unboxedA.descriptor.byteAt(0), b.descriptor.byteAt(0));
     }
 
     // Otherwise `a` should be a reference type derived from `b`.
@@ -449,7 +449,7 @@ final class LambdaMainMethodSourceCode extends SynthesizedLambdaSourceCode {
   }
 
   private int addPrimitiveUnboxing(int register, DexType primitiveType, DexType boxType) {
-    DexMethod method = getUnboxMethod(primitiveType.descriptor.content[0], boxType);
+    DexMethod method = getUnboxMethod(primitiveType.descriptor.byteAt(0), boxType);
 
     List<ValueType> argValueTypes = ImmutableList.of(ValueType.OBJECT);
     List<Integer> argRegisters = Collections.singletonList(register);
@@ -11,6 +11,7 @@ import com.android.tools.r8.ir.code.Goto;
 import com.android.tools.r8.ir.code.IRCode;
 import com.android.tools.r8.ir.code.Instruction;
 import com.android.tools.r8.ir.code.InstructionIterator;
+import com.android.tools.r8.ir.code.InstructionList;
 import com.android.tools.r8.ir.code.InstructionListIterator;
 import com.android.tools.r8.ir.code.Position;
 import com.android.tools.r8.ir.code.Value;
@@ -25,7 +26,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -162,7 +162,7 @@ public class PeepholeOptimizer {
       if (instruction.isJumpInstruction()) {
         // Replace jump instruction in predecessor with the jump instruction from the normal
         // successors.
-        LinkedList<Instruction> instructions = block.getInstructions();
+        InstructionList instructions = block.getInstructions();
         instructions.removeLast();
         instructions.add(instruction);
         instruction.setBlock(block);
@@ -356,7 +356,7 @@ public class PeepholeOptimizer {
     }
     for (BasicBlock pred : preds) {
       Position lastPosition = pred.getPosition();
-      LinkedList<Instruction> instructions = pred.getInstructions();
+      InstructionList instructions = pred.getInstructions();
       for (int i = 0; i < suffixSize; i++) {
         instructions.removeLast();
       }
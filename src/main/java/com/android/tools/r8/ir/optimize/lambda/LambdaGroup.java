@@ -182,7 +182,7 @@ public abstract class LambdaGroup {
       for (LambdaInfo lambda : lambdas) {
         DexString descriptor = lambda.clazz.type.descriptor;
         out.writeInt(descriptor.size); // To avoid same-prefix problem
-        out.write(descriptor.content);
+        descriptor.writeContent(out);
       }
       out.close();
 
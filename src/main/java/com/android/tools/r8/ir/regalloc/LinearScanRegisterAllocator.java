@@ -129,6 +129,8 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   private final IRCode code;
   // Number of registers used for arguments.
   protected final int numberOfArgumentRegisters;
+  // Whether to skip the allocation in mode ALLOW_ARGUMENT_REUSE_U4BIT.
+  private final boolean skipArgumentReuseU4Bit;
 
   // Mapping from basic blocks to the set of values live at entry to that basic block.
   private Map<BasicBlock, LiveAtEntrySets> liveAtEntrySets;
@@ -185,8 +187,20 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   }
 
   public LinearScanRegisterAllocator(AppView<?> appView, IRCode code) {
+    this(appView, code, false);
+  }
+
+  /**
+   * @param skipArgumentReuseU4Bit whether to start allocation in mode ALLOW_ARGUMENT_REUSE_U8BIT.
+   *     The allocation in mode ALLOW_ARGUMENT_REUSE_U4BIT is redone when the method needs more
+   *     than 16 registers, so skipping it saves a linear scan for large methods, at the cost of
+   *     argument moves for methods that would have fit.
+   */
+  public LinearScanRegisterAllocator(
+      AppView<?> appView, IRCode code, boolean skipArgumentReuseU4Bit) {
     this.appView = appView;
     this.code = code;
+    this.skipArgumentReuseU4Bit = skipArgumentReuseU4Bit;
     int argumentRegisters = 0;
     for (Instruction instruction : code.entryBlock().getInstructions()) {
       if (instruction.isArgument()) {
@@ -634,7 +648,11 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   private void performAllocation() {
     // Will automatically continue to ALLOW_ARGUMENT_REUSE_U8BIT and ALLOW_ARGUMENT_REUSE_U16BIT,
     // if needed.
-    performAllocation(ArgumentReuseMode.ALLOW_ARGUMENT_REUSE_U4BIT, false);
+    performAllocation(
+        skipArgumentReuseU4Bit
+            ? ArgumentReuseMode.ALLOW_ARGUMENT_REUSE_U8BIT
+            : ArgumentReuseMode.ALLOW_ARGUMENT_REUSE_U4BIT,
+        false);
   }
 
   private ArgumentReuseMode performAllocation(ArgumentReuseMode mode, boolean isRetry) {
@@ -130,7 +130,7 @@ public class CfApplicationWriter {
         namingLens,
         options,
         deadCode,
-        proguardMapAndId == null ? null : proguardMapAndId.map);
+        proguardMapAndId);
   }
 
   private void writeClass(DexProgramClass clazz, ClassFileConsumer consumer, String markerString) {
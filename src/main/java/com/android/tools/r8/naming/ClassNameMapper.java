@@ -87,6 +87,20 @@ public class ClassNameMapper implements ProguardMap {
     return mapperFromInputStream(Files.newInputStream(path));
   }
 
+  /**
+   * Creates a mapper for the given file that only parses the mappings of the classes that are
+   * looked up.
+   *
+   * <p>The file is memory mapped and indexed by obfuscated class name on creation, and the mapping
+   * of a class is parsed from the file when the class is first looked up. If {@param indexPath} is
+   * not null, the index is loaded from that file if it was created for the current contents of the
+   * map, and otherwise it is written to that file for subsequent uses of the same map.
+   */
+  public static ClassNameMapper mapperFromFileWithIndex(Path path, Path indexPath)
+      throws IOException {
+    return new ClassNameMapper(IndexedClassNamings.create(path, indexPath));
+  }
+
   public static ClassNameMapper mapperFromString(String contents) throws IOException {
     return mapperFromBufferedReader(CharSource.wrap(contents).openBufferedStream());
   }
@@ -100,7 +114,7 @@ public class ClassNameMapper implements ProguardMap {
     }
   }
 
-  private final ImmutableMap<String, ClassNamingForNameMapper> classNameMappings;
+  private final Map<String, ClassNamingForNameMapper> classNameMappings;
   private BiMapContainer<String, String> nameMapping;
 
   private final Map<Signature, Signature> signatureMap = new HashMap<>();
@@ -113,6 +127,10 @@ public class ClassNameMapper implements ProguardMap {
     this.classNameMappings = builder.build();
   }
 
+  private ClassNameMapper(IndexedClassNamings classNameMappings) {
+    this.classNameMappings = classNameMappings;
+  }
+
   private Signature canonicalizeSignature(Signature signature) {
     Signature result = signatureMap.get(signature);
     if (result != null) {
@@ -147,11 +165,20 @@ public class ClassNameMapper implements ProguardMap {
    * name.
    */
   public String deobfuscateClassName(String obfuscatedName) {
-    ClassNamingForNameMapper classNaming = classNameMappings.get(obfuscatedName);
-    if (classNaming == null) {
+    String originalName = getOriginalClassName(obfuscatedName);
+    if (originalName == null) {
       return obfuscatedName;
     }
-    return classNaming.originalName;
+    return originalName;
+  }
+
+  private String getOriginalClassName(String obfuscatedName) {
+    if (classNameMappings instanceof IndexedClassNamings) {
+      // Avoid parsing the members of the class.
+      return ((IndexedClassNamings) classNameMappings).getOriginalName(obfuscatedName);
+    }
+    ClassNamingForNameMapper classNaming = classNameMappings.get(obfuscatedName);
+    return classNaming == null ? null : classNaming.originalName;
   }
 
   private String deobfuscateType(String asString) {
@@ -200,7 +227,7 @@ public class ClassNameMapper implements ProguardMap {
     if (nameMapping == null) {
       ImmutableBiMap.Builder<String, String> builder = ImmutableBiMap.builder();
       for (String name : classNameMappings.keySet()) {
-        builder.put(name, classNameMappings.get(name).originalName);
+        builder.put(name, getOriginalClassName(name));
       }
       BiMap<String, String> classNameMappings = builder.build();
       nameMapping = new BiMapContainer<>(classNameMappings, classNameMappings.inverse());
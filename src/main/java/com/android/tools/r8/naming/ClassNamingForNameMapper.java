@@ -82,16 +82,115 @@ public class ClassNamingForNameMapper implements ClassNaming {
   /** List of MappedRanges that belong to the same renamed name. */
   public static class MappedRangesOfName {
     private final List<MappedRange> mappedRanges;
+    // Index for looking up the ranges for a line, computed on the first lookup.
+    private volatile LineIndex lineIndex;
 
     MappedRangesOfName(List<MappedRange> mappedRanges) {
       this.mappedRanges = mappedRanges;
     }
 
+    /**
+     * The runs of consecutive MappedRanges with the same minified range, sorted by the start of the
+     * minified range.
+     *
+     * <p>When the runs do not overlap, the run that contains a line is found by binary search.
+     * Otherwise the first range that contains a line depends on the order of the ranges, and the
+     * ranges are searched linearly.
+     */
+    private static class LineIndex {
+      private final int[] from;
+      private final int[] to;
+      // The index of the first and one past the last MappedRange of each run.
+      private final int[] start;
+      private final int[] end;
+      // The index of the first MappedRange without a minified range, or -1.
+      private final int noLineRange;
+      private final boolean overlapping;
+
+      private LineIndex(List<MappedRange> mappedRanges) {
+        List<int[]> runs = new ArrayList<>();
+        int noLineRange = -1;
+        for (int i = 0; i < mappedRanges.size(); ) {
+          Range minifiedRange = mappedRanges.get(i).minifiedRange;
+          int j = i + 1;
+          if (minifiedRange == null) {
+            if (noLineRange == -1) {
+              noLineRange = i;
+            }
+          } else {
+            while (j < mappedRanges.size()
+                && minifiedRange.equals(mappedRanges.get(j).minifiedRange)) {
+              j++;
+            }
+            runs.add(new int[] {minifiedRange.from, minifiedRange.to, i, j});
+          }
+          i = j;
+        }
+        runs.sort((a, b) -> Integer.compare(a[0], b[0]));
+        from = new int[runs.size()];
+        to = new int[runs.size()];
+        start = new int[runs.size()];
+        end = new int[runs.size()];
+        boolean overlapping = false;
+        for (int i = 0; i < runs.size(); i++) {
+          int[] run = runs.get(i);
+          from[i] = run[0];
+          to[i] = run[1];
+          start[i] = run[2];
+          end[i] = run[3];
+          overlapping |= i > 0 && from[i] <= to[i - 1];
+        }
+        this.noLineRange = noLineRange;
+        this.overlapping = overlapping;
+      }
+
+      /** Returns the index of the run that contains {@code line}, or -1. */
+      private int findRun(int line) {
+        assert !overlapping;
+        int low = 0;
+        int high = from.length - 1;
+        while (low <= high) {
+          int middle = (low + high) >>> 1;
+          if (line < from[middle]) {
+            high = middle - 1;
+          } else if (line > to[middle]) {
+            low = middle + 1;
+          } else {
+            return middle;
+          }
+        }
+        return -1;
+      }
+    }
+
+    private LineIndex getLineIndex() {
+      LineIndex index = lineIndex;
+      if (index == null) {
+        // Racing threads compute equal indices, any of them can be used.
+        index = new LineIndex(mappedRanges);
+        lineIndex = index;
+      }
+      return index;
+    }
+
+    /** Returns all MappedRanges in the order of the Proguard map. */
+    public List<MappedRange> getMappedRanges() {
+      return Collections.unmodifiableList(mappedRanges);
+    }
+
     /**
      * Return the first MappedRange that contains {@code line}. Return general MappedRange ("a() ->
      * b") if no concrete mapping found or null if nothing found.
      */
     public MappedRange firstRangeForLine(int line) {
+      LineIndex index = getLineIndex();
+      if (!index.overlapping) {
+        int run = index.findRun(line);
+        if (run >= 0) {
+          return mappedRanges.get(index.start[run]);
+        }
+        return index.noLineRange >= 0 ? mappedRanges.get(index.noLineRange) : null;
+      }
       MappedRange bestRange = null;
       for (MappedRange range : mappedRanges) {
         if (range.minifiedRange == null) {
@@ -114,6 +213,16 @@ public class ClassNamingForNameMapper implements ClassNaming {
      * MappedRange ("a() -> b") if no concrete mapping found or empty list if nothing found.
      */
     public List<MappedRange> allRangesForLine(int line) {
+      LineIndex index = getLineIndex();
+      if (!index.overlapping) {
+        int run = index.findRun(line);
+        if (run >= 0) {
+          return mappedRanges.subList(index.start[run], index.end[run]);
+        }
+        return index.noLineRange >= 0
+            ? Collections.singletonList(mappedRanges.get(index.noLineRange))
+            : Collections.emptyList();
+      }
       MappedRange noLineRange = null;
       for (int i = 0; i < mappedRanges.size(); ++i) {
         MappedRange rangeI = mappedRanges.get(i);
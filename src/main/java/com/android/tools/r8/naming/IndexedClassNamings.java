@@ -0,0 +1,272 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import com.android.tools.r8.errors.Unreachable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The class mappings of a Proguard map file, which are parsed on demand.
+ *
+ * <p>The file is memory mapped and indexed by the obfuscated name of each class. The index holds
+ * the position of the section of each class in the file, which consists of the class mapping line
+ * and the member mapping lines that follow it. The section of a class is only parsed when the
+ * mapping of the class is looked up, such that only the mappings of classes that are looked up are
+ * held in memory. Iterating the entries of the map parses all sections.
+ *
+ * <p>The index can be saved to a file next to the map, from which it is loaded instead of scanning
+ * the map when the map has not changed since.
+ */
+class IndexedClassNamings extends AbstractMap<String, ClassNamingForNameMapper> {
+
+  private static final int INDEX_MAGIC = 0x52384D49; // "R8MI"
+  private static final int INDEX_VERSION = 1;
+
+  private final ByteBuffer buffer;
+  // The offset and the length of the section of each class in the file, by obfuscated name.
+  private final Map<String, long[]> sections;
+  private final Map<String, ClassNamingForNameMapper> parsed = new ConcurrentHashMap<>();
+  private Set<Entry<String, ClassNamingForNameMapper>> entrySet;
+
+  private IndexedClassNamings(ByteBuffer buffer, Map<String, long[]> sections) {
+    this.buffer = buffer;
+    this.sections = sections;
+  }
+
+  /**
+   * Maps the given Proguard map file. If {@param indexPath} is not null, the index is loaded from
+   * it if it was created for the current contents of the map, and otherwise written to it.
+   */
+  static IndexedClassNamings create(Path path, Path indexPath) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Proguard map is too large to be indexed: " + path);
+      }
+      buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+    }
+    long lastModified = Files.getLastModifiedTime(path).toMillis();
+    Map<String, long[]> sections = null;
+    if (indexPath != null && Files.exists(indexPath)) {
+      sections = readIndex(indexPath, buffer.capacity(), lastModified);
+    }
+    if (sections == null) {
+      sections = buildIndex(buffer);
+      if (indexPath != null) {
+        writeIndex(indexPath, buffer.capacity(), lastModified, sections);
+      }
+    }
+    return new IndexedClassNamings(buffer, sections);
+  }
+
+  private static Map<String, long[]> buildIndex(ByteBuffer buffer) throws IOException {
+    Map<String, long[]> sections = new HashMap<>();
+    long[] current = null;
+    int limit = buffer.limit();
+    int lineStart = 0;
+    // Skip the byte order mark.
+    if (limit >= 3
+        && buffer.get(0) == (byte) 0xEF
+        && buffer.get(1) == (byte) 0xBB
+        && buffer.get(2) == (byte) 0xBF) {
+      lineStart = 3;
+    }
+    while (lineStart < limit) {
+      int lineEnd = lineStart;
+      while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+        lineEnd++;
+      }
+      byte first = buffer.get(lineStart);
+      if (first != ' ' && first != '\t' && first != '#' && first != '\r' && first != '\n') {
+        // A class mapping line ends the section of the previous class.
+        if (current != null) {
+          current[1] = lineStart - current[0];
+          current = null;
+        }
+        String line = decode(buffer, lineStart, lineEnd - lineStart);
+        String originalName = parseOriginalName(line);
+        // Entries for package-info classes are ignored, as by the ProguardMapReader.
+        if (!originalName.endsWith("package-info")) {
+          String obfuscatedName = parseObfuscatedName(line);
+          current = new long[] {lineStart, 0};
+          if (sections.put(obfuscatedName, current) != null) {
+            throw new IOException("Duplicate class mapping for " + obfuscatedName);
+          }
+        }
+      }
+      lineStart = lineEnd + 1;
+    }
+    if (current != null) {
+      current[1] = limit - current[0];
+    }
+    return sections;
+  }
+
+  private static String parseOriginalName(String line) {
+    int arrow = line.indexOf("->");
+    return (arrow < 0 ? line : line.substring(0, arrow)).trim();
+  }
+
+  private static String parseObfuscatedName(String line) {
+    int arrow = line.indexOf("->");
+    String name = (arrow < 0 ? line : line.substring(arrow + 2)).trim();
+    return name.endsWith(":") ? name.substring(0, name.length() - 1).trim() : name;
+  }
+
+  private static Map<String, long[]> readIndex(Path indexPath, long mapLength, long lastModified)
+      throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+      if (in.readInt() != INDEX_MAGIC
+          || in.readInt() != INDEX_VERSION
+          || in.readLong() != mapLength
+          || in.readLong() != lastModified) {
+        return null;
+      }
+      int size = in.readInt();
+      Map<String, long[]> sections = new HashMap<>(size * 4 / 3 + 1);
+      for (int i = 0; i < size; i++) {
+        String obfuscatedName = in.readUTF();
+        sections.put(obfuscatedName, new long[] {in.readInt(), in.readInt()});
+      }
+      return sections;
+    } catch (IOException e) {
+      // The index is rebuilt if it cannot be read.
+      return null;
+    }
+  }
+
+  private static void writeIndex(
+      Path indexPath, long mapLength, long lastModified, Map<String, long[]> sections)
+      throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath)))) {
+      out.writeInt(INDEX_MAGIC);
+      out.writeInt(INDEX_VERSION);
+      out.writeLong(mapLength);
+      out.writeLong(lastModified);
+      out.writeInt(sections.size());
+      for (Entry<String, long[]> entry : sections.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeInt((int) entry.getValue()[0]);
+        out.writeInt((int) entry.getValue()[1]);
+      }
+    }
+  }
+
+  private static String decode(ByteBuffer buffer, int offset, int length) {
+    byte[] bytes = new byte[length];
+    // Read from a duplicate, such that lookups from multiple threads do not share a position.
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(offset);
+    duplicate.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Returns the original name of the class with the given obfuscated name, without parsing it. */
+  String getOriginalName(String obfuscatedName) {
+    ClassNamingForNameMapper classNaming = parsed.get(obfuscatedName);
+    if (classNaming != null) {
+      return classNaming.originalName;
+    }
+    long[] section = sections.get(obfuscatedName);
+    if (section == null) {
+      return null;
+    }
+    int offset = (int) section[0];
+    int lineEnd = offset;
+    while (lineEnd < offset + section[1] && buffer.get(lineEnd) != '\n') {
+      lineEnd++;
+    }
+    return parseOriginalName(decode(buffer, offset, lineEnd - offset));
+  }
+
+  private ClassNamingForNameMapper parse(String obfuscatedName) {
+    long[] section = sections.get(obfuscatedName);
+    try {
+      ClassNameMapper mapper =
+          ClassNameMapper.mapperFromString(decode(buffer, (int) section[0], (int) section[1]));
+      ClassNamingForNameMapper classNaming = mapper.getClassNaming(obfuscatedName);
+      assert classNaming != null;
+      return classNaming;
+    } catch (IOException e) {
+      // Reading from a string does not throw.
+      throw new Unreachable(e);
+    }
+  }
+
+  @Override
+  public ClassNamingForNameMapper get(Object key) {
+    if (!sections.containsKey(key)) {
+      return null;
+    }
+    return parsed.computeIfAbsent((String) key, this::parse);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return sections.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return sections.size();
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return Collections.unmodifiableSet(sections.keySet());
+  }
+
+  @Override
+  public Set<Entry<String, ClassNamingForNameMapper>> entrySet() {
+    if (entrySet == null) {
+      entrySet =
+          new AbstractSet<Entry<String, ClassNamingForNameMapper>>() {
+            @Override
+            public Iterator<Entry<String, ClassNamingForNameMapper>> iterator() {
+              Iterator<String> keys = sections.keySet().iterator();
+              return new Iterator<Entry<String, ClassNamingForNameMapper>>() {
+                @Override
+                public boolean hasNext() {
+                  return keys.hasNext();
+                }
+
+                @Override
+                public Entry<String, ClassNamingForNameMapper> next() {
+                  String key = keys.next();
+                  return new SimpleImmutableEntry<>(key, get(key));
+                }
+              };
+            }
+
+            @Override
+            public int size() {
+              return sections.size();
+            }
+          };
+    }
+    return entrySet;
+  }
+}
@@ -14,6 +14,8 @@ import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.naming.MemberNaming.MethodSignature;
 import com.android.tools.r8.utils.DescriptorUtils;
 import com.google.common.collect.Sets;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -106,12 +108,26 @@ public class MinifiedNameMapPrinter {
     }
   }
 
-  public void write(StringBuilder out) {
+  /**
+   * Writes the map to {@param writer}. The mapping of each class is passed to the writer as soon as
+   * it has been printed, such that the map is never held in memory as a whole.
+   */
+  public void write(Writer writer) throws IOException {
+    StringBuilder out = new StringBuilder();
     // First write out all classes that have been renamed.
     List<DexProgramClass> classes = new ArrayList<>(application.classes());
     classes.sort(Comparator.comparing(DexProgramClass::toSourceString));
-    classes.forEach(clazz -> writeClass(clazz, out));
+    for (DexProgramClass clazz : classes) {
+      writeClass(clazz, out);
+      flush(out, writer);
+    }
     // Now write out all types only mentioned in descriptors that have been renamed.
     namingLens.forAllRenamedTypes(type -> writeType(type, out));
+    flush(out, writer);
+  }
+
+  private static void flush(StringBuilder out, Writer writer) throws IOException {
+    writer.append(out);
+    out.setLength(0);
   }
 }
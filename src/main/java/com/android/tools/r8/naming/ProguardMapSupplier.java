@@ -3,15 +3,17 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.naming;
 
+import com.android.tools.r8.ChunkedStringConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.StringConsumer;
 import com.android.tools.r8.Version;
 import com.android.tools.r8.graph.DexApplication;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.VersionProperties;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.io.Writer;
 
 public class ProguardMapSupplier {
@@ -35,15 +37,195 @@ public class ProguardMapSupplier {
     return new ProguardMapSupplier(false, null, namingLens, dexApplication, options);
   }
 
+  /**
+   * The id of the Proguard map and the means to write the map.
+   *
+   * <p>The map is not held in memory. It is printed once to compute the id, and again each time it
+   * is written.
+   */
   public static class ProguardMapAndId {
-    public final String map;
+    private final ProguardMapSupplier supplier;
     public final String id;
 
-    ProguardMapAndId(String map, String id) {
-      assert map != null && id != null;
-      this.map = map;
+    ProguardMapAndId(ProguardMapSupplier supplier, String id) {
+      assert supplier != null && id != null;
+      this.supplier = supplier;
       this.id = id;
     }
+
+    /**
+     * Writes the map to {@param consumer}. If the consumer is a {@link ChunkedStringConsumer} the
+     * map is passed in chunks as it is printed, otherwise as a single string.
+     */
+    public void writeTo(StringConsumer consumer, DiagnosticsHandler handler) {
+      ChunkWriter writer = new ChunkWriter(consumer, handler);
+      write(writer);
+      writer.finish();
+    }
+
+    /** Returns the entire map as a string. */
+    public String getMap() {
+      StringWriter writer = new StringWriter();
+      write(writer);
+      return writer.toString();
+    }
+
+    private void write(Writer writer) {
+      try {
+        writer.write(supplier.getHeader(id));
+        supplier.writeBody(writer);
+      } catch (IOException e) {
+        throw new RuntimeException("IOException while creating Proguard-map output: " + e);
+      }
+    }
+  }
+
+  /**
+   * Writer that passes the written characters to a {@link StringConsumer}, in chunks of at least
+   * {@link #CHUNK_SIZE} characters for a {@link ChunkedStringConsumer}, otherwise as a whole.
+   */
+  private static class ChunkWriter extends Writer {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final StringConsumer consumer;
+    private final DiagnosticsHandler handler;
+    private final StringBuilder buffer = new StringBuilder();
+
+    ChunkWriter(StringConsumer consumer, DiagnosticsHandler handler) {
+      this.consumer = consumer;
+      this.handler = handler;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+      buffer.append(chars, offset, length);
+      emitChunkIfFull();
+    }
+
+    @Override
+    public void write(String string, int offset, int length) {
+      buffer.append(string, offset, offset + length);
+      emitChunkIfFull();
+    }
+
+    @Override
+    public Writer append(CharSequence sequence) {
+      buffer.append(sequence);
+      emitChunkIfFull();
+      return this;
+    }
+
+    private void emitChunkIfFull() {
+      if (buffer.length() >= CHUNK_SIZE && consumer instanceof ChunkedStringConsumer) {
+        ((ChunkedStringConsumer) consumer).acceptChunk(buffer.toString(), handler);
+        buffer.setLength(0);
+      }
+    }
+
+    void finish() {
+      if (consumer instanceof ChunkedStringConsumer) {
+        ChunkedStringConsumer chunkedConsumer = (ChunkedStringConsumer) consumer;
+        if (buffer.length() > 0) {
+          chunkedConsumer.acceptChunk(buffer.toString(), handler);
+        }
+        chunkedConsumer.finished(handler);
+      } else {
+        consumer.accept(buffer.toString(), handler);
+      }
+      buffer.setLength(0);
+    }
+
+    @Override
+    public void flush() {
+      // Chunks are emitted when they are full or on finish.
+    }
+
+    @Override
+    public void close() {
+      // Chunks are emitted when they are full or on finish.
+    }
+  }
+
+  /**
+   * Writer that computes the Proguard map id from the written characters, which is the hash of the
+   * non-whitespace code points.
+   */
+  private static class IdHashingWriter extends Writer {
+
+    private final Hasher hasher = Hashing.murmur3_32().newHasher();
+    // A high surrogate that has been written without its low surrogate yet.
+    private char pendingHighSurrogate = 0;
+    private boolean hasContent = false;
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+      for (int i = offset; i < offset + length; i++) {
+        write(chars[i]);
+      }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) {
+      for (int i = offset; i < offset + length; i++) {
+        write(string.charAt(i));
+      }
+    }
+
+    @Override
+    public Writer append(CharSequence sequence) {
+      for (int i = 0; i < sequence.length(); i++) {
+        write(sequence.charAt(i));
+      }
+      return this;
+    }
+
+    private void write(char c) {
+      if (pendingHighSurrogate != 0) {
+        char high = pendingHighSurrogate;
+        pendingHighSurrogate = 0;
+        if (Character.isLowSurrogate(c)) {
+          putCodePoint(Character.toCodePoint(high, c));
+          return;
+        }
+        putCodePoint(high);
+      }
+      if (Character.isHighSurrogate(c)) {
+        pendingHighSurrogate = c;
+      } else {
+        putCodePoint(c);
+      }
+    }
+
+    private void putCodePoint(int codePoint) {
+      // Same as String.trim() for the check if the map is empty.
+      hasContent |= codePoint > ' ';
+      if (!Character.isWhitespace(codePoint)) {
+        hasher.putInt(codePoint);
+      }
+    }
+
+    boolean hasContent() {
+      return hasContent || pendingHighSurrogate != 0;
+    }
+
+    String getId() {
+      if (pendingHighSurrogate != 0) {
+        putCodePoint(pendingHighSurrogate);
+        pendingHighSurrogate = 0;
+      }
+      return hasher.hash().toString().substring(0, PG_MAP_ID_LENGTH);
+    }
+
+    @Override
+    public void flush() {
+      // Nothing is buffered.
+    }
+
+    @Override
+    public void close() {
+      // Nothing is buffered.
+    }
   }
 
   public ProguardMapSupplier(
@@ -66,16 +248,21 @@ public class ProguardMapSupplier {
   private final Integer minApiLevel;
 
   public ProguardMapAndId getProguardMapAndId() {
-    String body = getBody();
-    if (body == null || body.trim().length() == 0) {
-      return null;
-    }
     // Algorithm:
-    // Hash of the non-whitespace codepoints of the input string.
-    Hasher hasher = Hashing.murmur3_32().newHasher();
-    body.codePoints().filter(c -> !Character.isWhitespace(c)).forEach(hasher::putInt);
-    String proguardMapId = hasher.hash().toString().substring(0, PG_MAP_ID_LENGTH);
+    // Hash of the non-whitespace codepoints of the body. The body is printed for computing the hash
+    // only, it is printed again when the map is written.
+    IdHashingWriter hasher = new IdHashingWriter();
+    try {
+      if (!writeBody(hasher) || !hasher.hasContent()) {
+        return null;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("IOException while creating Proguard-map output: " + e);
+    }
+    return new ProguardMapAndId(this, hasher.getId());
+  }
 
+  private String getHeader(String proguardMapId) {
     StringBuilder builder = new StringBuilder();
     builder.append(
         "# "
@@ -96,34 +283,26 @@ public class ProguardMapSupplier {
           "# " + MARKER_KEY_COMPILER_HASH + ": " + VersionProperties.INSTANCE.getSha() + "\n");
     }
     builder.append("# " + MARKER_KEY_PG_MAP_ID + ": " + proguardMapId + "\n");
-    builder.append(body);
-
-    return new ProguardMapAndId(builder.toString(), proguardMapId);
+    return builder.toString();
   }
 
-  private String getBody() {
+  /** Writes the body of the map to {@param writer}, returns false if there is no map. */
+  private boolean writeBody(Writer writer) throws IOException {
     if (useClassNameMapper) {
       assert classNameMapper != null;
-      return classNameMapper.toString();
+      classNameMapper.write(writer);
+      return true;
     }
     assert namingLens != null && application != null;
     // TODO(herhut): Should writing of the proguard-map file be split like this?
     if (!namingLens.isIdentityLens()) {
-      StringBuilder map = new StringBuilder();
-      new MinifiedNameMapPrinter(application, namingLens).write(map);
-      return map.toString();
+      new MinifiedNameMapPrinter(application, namingLens).write(writer);
+      return true;
     }
     if (application.getProguardMap() != null) {
-      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-      Writer writer = new PrintWriter(bytes);
-      try {
-        application.getProguardMap().write(writer);
-        writer.flush();
-      } catch (IOException e) {
-        throw new RuntimeException("IOException while creating Proguard-map output: " + e);
-      }
-      return bytes.toString();
+      application.getProguardMap().write(writer);
+      return true;
     }
-    return null;
+    return false;
   }
 }
@@ -0,0 +1,226 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.retrace;
+
+import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.naming.ClassNamingForNameMapper;
+import com.android.tools.r8.naming.ClassNamingForNameMapper.MappedRange;
+import com.android.tools.r8.naming.ClassNamingForNameMapper.MappedRangesOfName;
+import com.android.tools.r8.naming.MemberNaming.MethodSignature;
+import com.android.tools.r8.naming.Range;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Maps stack frames of a program compiled with R8 back to the frames of the original program, using
+ * the Proguard map of the compilation.
+ *
+ * <p>A frame of the compiled program can correspond to several frames of the original program when
+ * methods have been inlined. The mapped ranges in the Proguard map that contain the line of the
+ * frame describe the inlined methods, innermost first, followed by the method they were inlined
+ * into. The ranges of a method are looked up by binary search, see {@link
+ * MappedRangesOfName#allRangesForLine}.
+ *
+ * <p>A retracer does not modify the mapper and can be used from multiple threads at the same time.
+ */
+public class Retracer {
+
+  // The number of frames retraced by a single task when retracing a batch of frames.
+  private static final int BATCH_SIZE = 1024;
+
+  /** A stack frame of the compiled program. */
+  public static class StackFrame {
+
+    public final String className;
+    public final String methodName;
+    // The line number, or -1 if the frame has no line number.
+    public final int lineNumber;
+
+    public StackFrame(String className, String methodName, int lineNumber) {
+      this.className = className;
+      this.methodName = methodName;
+      this.lineNumber = lineNumber;
+    }
+
+    public boolean hasLineNumber() {
+      return lineNumber >= 0;
+    }
+
+    @Override
+    public String toString() {
+      return className + "." + methodName + (hasLineNumber() ? ":" + lineNumber : "");
+    }
+  }
+
+  /** A stack frame of the original program. */
+  public static class RetracedFrame {
+
+    public final String className;
+    public final String methodName;
+    // The original signature of the method, or null if the method has no mapping.
+    public final MethodSignature signature;
+    // The original line number, or -1 if it is unknown.
+    public final int lineNumber;
+    // True if the frame is one of several methods that the compiled frame may refer to.
+    public final boolean ambiguous;
+
+    RetracedFrame(
+        String className,
+        String methodName,
+        MethodSignature signature,
+        int lineNumber,
+        boolean ambiguous) {
+      this.className = className;
+      this.methodName = methodName;
+      this.signature = signature;
+      this.lineNumber = lineNumber;
+      this.ambiguous = ambiguous;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof RetracedFrame)) {
+        return false;
+      }
+      RetracedFrame other = (RetracedFrame) o;
+      return className.equals(other.className)
+          && methodName.equals(other.methodName)
+          && Objects.equals(signature, other.signature)
+          && lineNumber == other.lineNumber
+          && ambiguous == other.ambiguous;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(className, methodName, signature, lineNumber, ambiguous);
+    }
+
+    @Override
+    public String toString() {
+      return className
+          + "."
+          + methodName
+          + (lineNumber >= 0 ? ":" + lineNumber : "")
+          + (ambiguous ? " (ambiguous)" : "");
+    }
+  }
+
+  private final ClassNameMapper mapper;
+
+  public Retracer(ClassNameMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  /**
+   * Retraces a single frame.
+   *
+   * <p>Returns the frames of the original program, innermost first. If the method of the frame
+   * cannot be determined, because the frame has no line number or the line number is not mapped,
+   * the result has a frame for each method that the frame may refer to, and these are marked as
+   * ambiguous if there is more than one. A frame without a mapping is returned unchanged.
+   */
+  public List<RetracedFrame> retrace(StackFrame frame) {
+    ClassNamingForNameMapper classNaming = mapper.getClassNaming(frame.className);
+    if (classNaming == null) {
+      return Collections.singletonList(
+          new RetracedFrame(frame.className, frame.methodName, null, frame.lineNumber, false));
+    }
+    MappedRangesOfName ranges = classNaming.mappedRangesByRenamedName.get(frame.methodName);
+    if (ranges == null) {
+      return Collections.singletonList(
+          new RetracedFrame(
+              classNaming.originalName, frame.methodName, null, frame.lineNumber, false));
+    }
+    if (frame.hasLineNumber()) {
+      List<MappedRange> mappedRanges = ranges.allRangesForLine(frame.lineNumber);
+      if (!mappedRanges.isEmpty()) {
+        List<RetracedFrame> result = new ArrayList<>(mappedRanges.size());
+        for (MappedRange range : mappedRanges) {
+          result.add(
+              retraced(
+                  classNaming,
+                  range.signature,
+                  range.getOriginalLineNumber(frame.lineNumber),
+                  false));
+        }
+        return result;
+      }
+    }
+    // Without a line within the mapped ranges the inlined methods are unknown. The frame is in
+    // one of the methods that the others were inlined into, which are the last of each run of
+    // ranges with the same minified range.
+    Set<MethodSignature> signatures = new LinkedHashSet<>();
+    List<MappedRange> mappedRanges = ranges.getMappedRanges();
+    for (int i = 0; i < mappedRanges.size(); i++) {
+      Range minifiedRange = mappedRanges.get(i).minifiedRange;
+      if (minifiedRange == null
+          || i + 1 == mappedRanges.size()
+          || !minifiedRange.equals(mappedRanges.get(i + 1).minifiedRange)) {
+        signatures.add(mappedRanges.get(i).signature);
+      }
+    }
+    boolean ambiguous = signatures.size() > 1;
+    List<RetracedFrame> result = new ArrayList<>(signatures.size());
+    for (MethodSignature signature : signatures) {
+      result.add(retraced(classNaming, signature, -1, ambiguous));
+    }
+    return result;
+  }
+
+  private static RetracedFrame retraced(
+      ClassNamingForNameMapper classNaming,
+      MethodSignature signature,
+      int lineNumber,
+      boolean ambiguous) {
+    // Methods inlined from other classes have a signature qualified with their class.
+    int lastDot = signature.name.lastIndexOf('.');
+    if (lastDot < 0) {
+      return new RetracedFrame(
+          classNaming.originalName, signature.name, signature, lineNumber, ambiguous);
+    }
+    return new RetracedFrame(
+        signature.name.substring(0, lastDot),
+        signature.name.substring(lastDot + 1),
+        signature.toUnqualified(),
+        lineNumber,
+        ambiguous);
+  }
+
+  /**
+   * Retraces a batch of frames on the given executor.
+   *
+   * <p>Returns the result of {@link #retrace(StackFrame)} for each frame, in the order of the
+   * frames.
+   */
+  public List<List<RetracedFrame>> retrace(List<StackFrame> frames, ExecutorService executor)
+      throws ExecutionException {
+    List<List<RetracedFrame>> results = new ArrayList<>(Collections.nCopies(frames.size(), null));
+    List<Future<?>> futures = new ArrayList<>();
+    for (int start = 0; start < frames.size(); start += BATCH_SIZE) {
+      int batchStart = start;
+      int batchEnd = Math.min(start + BATCH_SIZE, frames.size());
+      futures.add(
+          executor.submit(
+              () -> {
+                // Each task sets distinct elements, the list is not structurally modified.
+                for (int i = batchStart; i < batchEnd; i++) {
+                  results.set(i, retrace(frames.get(i)));
+                }
+              }));
+    }
+    ThreadUtils.awaitFutures(futures);
+    return results;
+  }
+}
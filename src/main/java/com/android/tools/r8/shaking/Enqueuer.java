@@ -301,6 +301,12 @@ public class Enqueuer {
 
   private final GraphConsumer keptGraphConsumer;
 
+  /**
+   * Scans the code of methods that are enqueued to become live concurrently with the tracing, if
+   * enabled. Set when the tracing starts.
+   */
+  private EnqueuerCodeScanner codeScanner = null;
+
   Enqueuer(
       AppView<? extends AppInfoWithSubtyping> appView,
       GraphConsumer keptGraphConsumer,
@@ -393,13 +399,12 @@ public class Enqueuer {
         if (forceProguardCompatibility) {
           ProguardKeepRule compatRule =
             ProguardConfigurationUtils.buildDefaultInitializerKeepRule(clazz);
-          proguardCompatibilityWorkList.add(
-              Action.markMethodLive(
-                  clazz.getDefaultInitializer(),
-                  KeepReason.dueToProguardCompatibilityKeepRule(compatRule)));
+          enqueueCompatMarkMethodLive(
+              clazz.getDefaultInitializer(),
+              KeepReason.dueToProguardCompatibilityKeepRule(compatRule));
         }
         if (clazz.isExternalizable(appView)) {
-          workList.add(Action.markMethodLive(clazz.getDefaultInitializer(), reason));
+          enqueueMarkMethodLive(clazz.getDefaultInitializer(), reason);
         }
       }
     } else if (item.isDexEncodedField()) {
@@ -420,7 +425,7 @@ public class Enqueuer {
       clazz = appView.definitionFor(clazz.superType);
     }
     if (clazz != null && clazz.isProgramClass() && clazz.hasDefaultInitializer()) {
-      workList.add(Action.markMethodLive(clazz.getDefaultInitializer(), reason));
+      enqueueMarkMethodLive(clazz.getDefaultInitializer(), reason);
     }
   }
 
@@ -1446,7 +1451,7 @@ public class Enqueuer {
         Log.verbose(getClass(), "Method `%s` has become live due to direct invoke",
             encodedMethod.method);
       }
-      workList.add(Action.markMethodLive(encodedMethod, reason));
+      enqueueMarkMethodLive(encodedMethod, reason);
     }
   }
 
@@ -1460,7 +1465,28 @@ public class Enqueuer {
       if (Log.ENABLED) {
         Log.verbose(getClass(), "Adding virtual method `%s` to live set.", method.method);
       }
-      workList.add(Action.markMethodLive(method, reason));
+      enqueueMarkMethodLive(method, reason);
+    }
+  }
+
+  private void enqueueMarkMethodLive(DexEncodedMethod method, KeepReason reason) {
+    workList.add(Action.markMethodLive(method, reason));
+    scheduleCodeScan(method);
+  }
+
+  private void enqueueCompatMarkMethodLive(DexEncodedMethod method, KeepReason reason) {
+    proguardCompatibilityWorkList.add(Action.markMethodLive(method, reason));
+    scheduleCodeScan(method);
+  }
+
+  // All actions that mark a method live schedule the scan of its code, such that the tracing thread
+  // does not have to scan the code itself when it processes the action.
+  private void scheduleCodeScan(DexEncodedMethod method) {
+    if (codeScanner != null && !liveMethods.contains(method)) {
+      DexClass holder = appView.definitionFor(method.method.holder);
+      if (holder != null && holder.isProgramClass()) {
+        codeScanner.schedule(method, holder);
+      }
     }
   }
 
@@ -1701,6 +1727,7 @@ public class Enqueuer {
     assert analyses.isEmpty();
     assert mode.isTracingMainDex();
     this.rootSet = rootSet;
+    startCodeScanner(executorService);
     // Translate the result of root-set computation into enqueuer actions.
     enqueueRootItems(rootSet.noShrinking);
     trace(executorService, timing);
@@ -1716,6 +1743,7 @@ public class Enqueuer {
       throws ExecutionException {
     this.rootSet = rootSet;
     this.dontWarnPatterns = dontWarnPatterns;
+    startCodeScanner(executorService);
     // Translate the result of root-set computation into enqueuer actions.
     enqueueRootItems(rootSet.noShrinking);
     TopDownClassHierarchyTraversal.forLibraryClasses(appView)
@@ -1807,6 +1835,20 @@ public class Enqueuer {
     return result;
   }
 
+  private void startCodeScanner(ExecutorService executorService) {
+    // The code of the program is only known to correspond to the class files before it is
+    // rewritten after the initial tree shaking.
+    TracingCache cache = mode.isInitialTreeShaking() ? options.tracingCache : null;
+    if (options.enableParallelEnqueuerTracing || cache != null) {
+      codeScanner =
+          new EnqueuerCodeScanner(
+              options.itemFactory,
+              options.enableParallelEnqueuerTracing ? executorService : null,
+              cache,
+              options.verifyTracingCache);
+    }
+  }
+
   private void trace(ExecutorService executorService, Timing timing) throws ExecutionException {
     timing.begin("Grow the tree.");
     try {
@@ -1913,6 +1955,10 @@ public class Enqueuer {
       }
       assert liveTypes.stream().allMatch(DexType::isClassType);
       assert instantiatedTypes.getItems().stream().allMatch(DexType::isClassType);
+      if (codeScanner != null) {
+        // Do not leave code being parsed concurrently with the passes that follow.
+        codeScanner.finish();
+      }
     } finally {
       timing.end();
     }
@@ -2054,7 +2100,12 @@ public class Enqueuer {
         method.parameterAnnotationsList.forEachAnnotation(
             annotation -> processAnnotation(method, annotation));
       }
-      method.registerCodeReferences(new UseRegistry(options.itemFactory, method));
+      UseRegistry registry = new UseRegistry(options.itemFactory, method);
+      if (codeScanner != null) {
+        codeScanner.registerCodeReferences(method, holder, registry);
+      } else {
+        method.registerCodeReferences(registry);
+      }
       // Add all dependent members to the workqueue.
       enqueueRootItems(rootSet.getDependentItems(method));
     }
@@ -2077,7 +2128,7 @@ public class Enqueuer {
     assert clazz.isProgramClass();
     workList.add(Action.markInstantiated(clazz, reason));
     if (clazz.hasDefaultInitializer()) {
-      workList.add(Action.markMethodLive(clazz.getDefaultInitializer(), reason));
+      enqueueMarkMethodLive(clazz.getDefaultInitializer(), reason);
     }
   }
 
@@ -2086,9 +2137,8 @@ public class Enqueuer {
     proguardCompatibilityWorkList.add(
         Action.markInstantiated(clazz, KeepReason.dueToProguardCompatibilityKeepRule(rule)));
     if (clazz.hasDefaultInitializer()) {
-      proguardCompatibilityWorkList.add(
-          Action.markMethodLive(
-              clazz.getDefaultInitializer(), KeepReason.dueToProguardCompatibilityKeepRule(rule)));
+      enqueueCompatMarkMethodLive(
+          clazz.getDefaultInitializer(), KeepReason.dueToProguardCompatibilityKeepRule(rule));
     }
   }
 
@@ -2096,8 +2146,7 @@ public class Enqueuer {
     DexClass holderClass = appView.definitionFor(method.method.holder);
     ProguardKeepRule rule =
         ProguardConfigurationUtils.buildMethodKeepRule(holderClass, method);
-    proguardCompatibilityWorkList.add(
-        Action.markMethodLive(method, KeepReason.dueToProguardCompatibilityKeepRule(rule)));
+    enqueueCompatMarkMethodLive(method, KeepReason.dueToProguardCompatibilityKeepRule(rule));
   }
 
   private void handleReflectiveBehavior(DexEncodedMethod method) {
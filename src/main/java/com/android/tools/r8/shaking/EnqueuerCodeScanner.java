@@ -0,0 +1,357 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.errors.Unreachable;
+import com.android.tools.r8.graph.Code;
+import com.android.tools.r8.graph.DexCallSite;
+import com.android.tools.r8.graph.DexClass;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexField;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexMethodHandle;
+import com.android.tools.r8.graph.DexProto;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.graph.UseRegistry;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Scans the code of methods that are about to become live on an executor, ahead of the {@link
+ * Enqueuer}.
+ *
+ * <p>A method is scheduled when an action to mark it live is added to the work list of the
+ * enqueuer. Parsing its code and walking its instructions, which is the bulk of the work of
+ * tracing a method, is then done concurrently while the enqueuer processes other actions. The
+ * references found are recorded in the order they occur in the code, and replayed into the use
+ * registry of the enqueuer once it processes the method. The enqueuer therefore observes exactly
+ * the same sequence of references as when it scans the code itself, and all updates of the
+ * liveness state stay on the tracing thread.
+ *
+ * <p>When a {@link TracingCache} is given, the references of methods in class files that have not
+ * changed since a previous compilation are taken from the cache instead of the code.
+ *
+ * <p>All methods of this class must be called from the tracing thread.
+ */
+class EnqueuerCodeScanner {
+
+  private final DexItemFactory factory;
+  // Null if the code is scanned on the tracing thread when the method is processed.
+  private final ExecutorService executorService;
+  private final TracingCache cache;
+  private final boolean verifyCache;
+  private final Map<DexEncodedMethod, Future<RecordingUseRegistry>> scheduled =
+      new IdentityHashMap<>();
+
+  EnqueuerCodeScanner(
+      DexItemFactory factory,
+      ExecutorService executorService,
+      TracingCache cache,
+      boolean verifyCache) {
+    assert executorService != null || cache != null;
+    this.factory = factory;
+    this.executorService = executorService;
+    this.cache = cache;
+    this.verifyCache = verifyCache;
+  }
+
+  /** Start scanning the code of {@param method}, which is defined in the program class. */
+  void schedule(DexEncodedMethod method, DexClass holder) {
+    assert holder.isProgramClass();
+    Code code = method.getCode();
+    // Other kinds of code are synthesized during compilation and are cheap to scan.
+    if (executorService == null
+        || code == null
+        || !(code.isDexCode() || code.isCfCode())
+        || scheduled.containsKey(method)) {
+      return;
+    }
+    scheduled.put(method, executorService.submit(() -> scan(method, holder)));
+  }
+
+  /**
+   * Register the code references of {@param method} with {@param registry}, in the order they
+   * occur in the code.
+   */
+  void registerCodeReferences(DexEncodedMethod method, DexClass holder, UseRegistry registry) {
+    Future<RecordingUseRegistry> future = scheduled.remove(method);
+    if (future != null) {
+      getResult(future).replay(registry);
+    } else if (cache != null) {
+      scan(method, holder).replay(registry);
+    } else {
+      method.registerCodeReferences(registry);
+    }
+  }
+
+  private RecordingUseRegistry scan(DexEncodedMethod method, DexClass holder) {
+    RecordingUseRegistry cached = cache != null ? cache.lookup(method, holder) : null;
+    if (cached != null && !verifyCache) {
+      return cached;
+    }
+    RecordingUseRegistry registry = new RecordingUseRegistry(factory);
+    method.registerCodeReferences(registry);
+    if (cached != null) {
+      if (!cached.isSameAs(registry)) {
+        throw new CompilationError(
+            "Tracing cache entry for `"
+                + method.method.toSourceString()
+                + "` does not match the references in its code",
+            holder.origin);
+      }
+    } else if (cache != null) {
+      cache.record(method, holder, registry);
+    }
+    return registry;
+  }
+
+  /**
+   * Wait for the methods that have been scheduled but not processed, and store the references that
+   * have been recorded in the cache.
+   */
+  void finish() {
+    for (Future<RecordingUseRegistry> future : scheduled.values()) {
+      getResult(future);
+    }
+    scheduled.clear();
+    if (cache != null) {
+      cache.persist();
+    }
+  }
+
+  private static RecordingUseRegistry getResult(Future<RecordingUseRegistry> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      throw new RuntimeException("Interrupted while waiting for future.", e);
+    } catch (ExecutionException e) {
+      // Report errors in the code as if the code had been scanned on the tracing thread.
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    }
+  }
+
+  /** Records the references found in code, such that they can be replayed or persisted. */
+  static class RecordingUseRegistry extends UseRegistry {
+
+    static final int INVOKE_VIRTUAL = 0;
+    static final int INVOKE_DIRECT = 1;
+    static final int INVOKE_STATIC = 2;
+    static final int INVOKE_INTERFACE = 3;
+    static final int INVOKE_SUPER = 4;
+    static final int INSTANCE_FIELD_WRITE = 5;
+    static final int INSTANCE_FIELD_READ = 6;
+    static final int NEW_INSTANCE = 7;
+    static final int STATIC_FIELD_READ = 8;
+    static final int STATIC_FIELD_WRITE = 9;
+    static final int TYPE_REFERENCE = 10;
+    static final int CONST_CLASS = 11;
+    static final int CHECK_CAST = 12;
+    static final int METHOD_HANDLE_ARGUMENT_TO_LAMBDA_METAFACTORY = 13;
+    static final int METHOD_HANDLE_NOT_ARGUMENT_TO_LAMBDA_METAFACTORY = 14;
+    static final int CALL_SITE = 15;
+    static final int PROTO = 16;
+
+    private final IntArrayList kinds = new IntArrayList();
+    private final List<Object> items = new ArrayList<>();
+
+    RecordingUseRegistry(DexItemFactory factory) {
+      super(factory);
+    }
+
+    boolean record(int kind, Object item) {
+      kinds.add(kind);
+      items.add(item);
+      return true;
+    }
+
+    int size() {
+      return kinds.size();
+    }
+
+    int getKind(int index) {
+      return kinds.getInt(index);
+    }
+
+    Object getItem(int index) {
+      return items.get(index);
+    }
+
+    boolean isSameAs(RecordingUseRegistry other) {
+      if (!kinds.equals(other.kinds)) {
+        return false;
+      }
+      for (int i = 0; i < items.size(); i++) {
+        if (items.get(i) != other.items.get(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void replay(UseRegistry registry) {
+      for (int i = 0; i < kinds.size(); i++) {
+        Object item = items.get(i);
+        switch (kinds.getInt(i)) {
+          case INVOKE_VIRTUAL:
+            registry.registerInvokeVirtual((DexMethod) item);
+            break;
+          case INVOKE_DIRECT:
+            registry.registerInvokeDirect((DexMethod) item);
+            break;
+          case INVOKE_STATIC:
+            registry.registerInvokeStatic((DexMethod) item);
+            break;
+          case INVOKE_INTERFACE:
+            registry.registerInvokeInterface((DexMethod) item);
+            break;
+          case INVOKE_SUPER:
+            registry.registerInvokeSuper((DexMethod) item);
+            break;
+          case INSTANCE_FIELD_WRITE:
+            registry.registerInstanceFieldWrite((DexField) item);
+            break;
+          case INSTANCE_FIELD_READ:
+            registry.registerInstanceFieldRead((DexField) item);
+            break;
+          case NEW_INSTANCE:
+            registry.registerNewInstance((DexType) item);
+            break;
+          case STATIC_FIELD_READ:
+            registry.registerStaticFieldRead((DexField) item);
+            break;
+          case STATIC_FIELD_WRITE:
+            registry.registerStaticFieldWrite((DexField) item);
+            break;
+          case TYPE_REFERENCE:
+            registry.registerTypeReference((DexType) item);
+            break;
+          case CONST_CLASS:
+            registry.registerConstClass((DexType) item);
+            break;
+          case CHECK_CAST:
+            registry.registerCheckCast((DexType) item);
+            break;
+          case METHOD_HANDLE_ARGUMENT_TO_LAMBDA_METAFACTORY:
+            registry.registerMethodHandle(
+                (DexMethodHandle) item, MethodHandleUse.ARGUMENT_TO_LAMBDA_METAFACTORY);
+            break;
+          case METHOD_HANDLE_NOT_ARGUMENT_TO_LAMBDA_METAFACTORY:
+            registry.registerMethodHandle(
+                (DexMethodHandle) item, MethodHandleUse.NOT_ARGUMENT_TO_LAMBDA_METAFACTORY);
+            break;
+          case CALL_SITE:
+            registry.registerCallSite((DexCallSite) item);
+            break;
+          case PROTO:
+            registry.registerProto((DexProto) item);
+            break;
+          default:
+            throw new Unreachable();
+        }
+      }
+    }
+
+    @Override
+    public boolean registerInvokeVirtual(DexMethod method) {
+      return record(INVOKE_VIRTUAL, method);
+    }
+
+    @Override
+    public boolean registerInvokeDirect(DexMethod method) {
+      return record(INVOKE_DIRECT, method);
+    }
+
+    @Override
+    public boolean registerInvokeStatic(DexMethod method) {
+      return record(INVOKE_STATIC, method);
+    }
+
+    @Override
+    public boolean registerInvokeInterface(DexMethod method) {
+      return record(INVOKE_INTERFACE, method);
+    }
+
+    @Override
+    public boolean registerInvokeSuper(DexMethod method) {
+      return record(INVOKE_SUPER, method);
+    }
+
+    @Override
+    public boolean registerInstanceFieldWrite(DexField field) {
+      return record(INSTANCE_FIELD_WRITE, field);
+    }
+
+    @Override
+    public boolean registerInstanceFieldRead(DexField field) {
+      return record(INSTANCE_FIELD_READ, field);
+    }
+
+    @Override
+    public boolean registerNewInstance(DexType type) {
+      return record(NEW_INSTANCE, type);
+    }
+
+    @Override
+    public boolean registerStaticFieldRead(DexField field) {
+      return record(STATIC_FIELD_READ, field);
+    }
+
+    @Override
+    public boolean registerStaticFieldWrite(DexField field) {
+      return record(STATIC_FIELD_WRITE, field);
+    }
+
+    @Override
+    public boolean registerTypeReference(DexType type) {
+      return record(TYPE_REFERENCE, type);
+    }
+
+    @Override
+    public boolean registerConstClass(DexType type) {
+      return record(CONST_CLASS, type);
+    }
+
+    @Override
+    public boolean registerCheckCast(DexType type) {
+      return record(CHECK_CAST, type);
+    }
+
+    // The composite registrations are recorded as such and not expanded, such that they reach the
+    // overrides in the registry of the enqueuer when replayed.
+
+    @Override
+    public void registerMethodHandle(DexMethodHandle methodHandle, MethodHandleUse use) {
+      record(
+          use == MethodHandleUse.ARGUMENT_TO_LAMBDA_METAFACTORY
+              ? METHOD_HANDLE_ARGUMENT_TO_LAMBDA_METAFACTORY
+              : METHOD_HANDLE_NOT_ARGUMENT_TO_LAMBDA_METAFACTORY,
+          methodHandle);
+    }
+
+    @Override
+    public void registerCallSite(DexCallSite callSite) {
+      record(CALL_SITE, callSite);
+    }
+
+    @Override
+    public void registerProto(DexProto proto) {
+      record(PROTO, proto);
+    }
+  }
+}
@@ -0,0 +1,207 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import com.android.tools.r8.graph.DexAnnotation;
+import com.android.tools.r8.graph.DexClass;
+import com.android.tools.r8.graph.DexType;
+import com.google.common.collect.Sets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Index over classes for finding the classes that a rule may apply to, such that a rule does not
+ * need to be tested against every class.
+ *
+ * <p>The classes are sorted by name, such that the classes that start with the literal prefix of a
+ * class name pattern are found by a binary search. In addition, the classes are indexed by the
+ * specific class annotations and the specific super types mentioned by the rules the index is
+ * created for. For a given rule, the smallest of these candidate sets is used, and the remaining
+ * parts of the rule are still tested against each candidate.
+ *
+ * <p>The index is over elements of type {@code T}. The class of an element is used to match the
+ * class name and class annotation, and its inheritance class is used to match the super type.
+ * These are different for -if rules, where the class of the element is a class that has been
+ * merged into the inheritance class of the element.
+ */
+class ProguardClassIndex<T> {
+
+  private final List<T> elements;
+  private final int numberOfProgramElements;
+
+  // The names of the classes of the elements in sorted order, and the corresponding elements.
+  private final String[] sortedNames;
+  private final int[] sortedElements;
+
+  private final Map<DexType, BitSet> elementsByAnnotation = new IdentityHashMap<>();
+  private final Map<DexType, BitSet> elementsBySuperType = new IdentityHashMap<>();
+
+  /**
+   * Creates an index over the given elements. The first {@code numberOfProgramElements} elements
+   * must be program classes, and the remaining elements must be library classes.
+   *
+   * @param rules the rules that will be looked up in the index.
+   * @param indexSuperTypes whether to index the elements by super type. This should be false when
+   *     super types may be matched by classes that have been merged into the super type.
+   */
+  ProguardClassIndex(
+      List<T> elements,
+      int numberOfProgramElements,
+      Function<T, DexClass> classFor,
+      Function<T, DexClass> inheritanceClassFor,
+      Iterable<? extends ProguardConfigurationRule> rules,
+      Function<DexType, DexClass> definitions,
+      boolean indexSuperTypes) {
+    this.elements = elements;
+    this.numberOfProgramElements = numberOfProgramElements;
+
+    String[] names = new String[elements.size()];
+    Integer[] order = new Integer[elements.size()];
+    for (int i = 0; i < elements.size(); i++) {
+      names[i] = classFor.apply(elements.get(i)).type.toSourceString();
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparing(i -> names[i]));
+    sortedNames = new String[elements.size()];
+    sortedElements = new int[elements.size()];
+    for (int i = 0; i < order.length; i++) {
+      sortedNames[i] = names[order[i]];
+      sortedElements[i] = order[i];
+    }
+
+    Set<DexType> annotations = Sets.newIdentityHashSet();
+    Set<DexType> superTypes = Sets.newIdentityHashSet();
+    for (ProguardConfigurationRule rule : rules) {
+      if (rule.getClassAnnotation() != null && rule.getClassAnnotation().matchesSpecificType()) {
+        DexType annotation = rule.getClassAnnotation().getSpecificType();
+        if (annotations.add(annotation)) {
+          elementsByAnnotation.put(annotation, new BitSet());
+        }
+      }
+      if (indexSuperTypes
+          && rule.hasInheritanceClassName()
+          && rule.getInheritanceClassName().matchesSpecificType()) {
+        DexType superType = rule.getInheritanceClassName().getSpecificType();
+        if (superTypes.add(superType)) {
+          elementsBySuperType.put(superType, new BitSet());
+        }
+      }
+    }
+    if (!annotations.isEmpty()) {
+      for (int i = 0; i < elements.size(); i++) {
+        for (DexAnnotation annotation : classFor.apply(elements.get(i)).annotations.annotations) {
+          DexType type = annotation.annotation.type;
+          if (annotations.contains(type)) {
+            elementsByAnnotation.get(type).set(i);
+          }
+        }
+      }
+    }
+    if (!superTypes.isEmpty()) {
+      for (int i = 0; i < elements.size(); i++) {
+        for (DexType superType :
+            collectSuperTypes(inheritanceClassFor.apply(elements.get(i)), definitions)) {
+          if (superTypes.contains(superType)) {
+            elementsBySuperType.get(superType).set(i);
+          }
+        }
+      }
+    }
+  }
+
+  private static Set<DexType> collectSuperTypes(
+      DexClass clazz, Function<DexType, DexClass> definitions) {
+    Set<DexType> superTypes = Sets.newIdentityHashSet();
+    Deque<DexClass> worklist = new ArrayDeque<>();
+    worklist.add(clazz);
+    while (!worklist.isEmpty()) {
+      DexClass next = worklist.removeFirst();
+      if (next.superType != null && superTypes.add(next.superType)) {
+        DexClass superClass = definitions.apply(next.superType);
+        if (superClass != null) {
+          worklist.add(superClass);
+        }
+      }
+      for (DexType iface : next.interfaces.values) {
+        if (superTypes.add(iface)) {
+          DexClass ifaceClass = definitions.apply(iface);
+          if (ifaceClass != null) {
+            worklist.add(ifaceClass);
+          }
+        }
+      }
+    }
+    return superTypes;
+  }
+
+  /**
+   * Applies the consumer to each element that the given rule may apply to, in the order of the
+   * elements. Elements that are library classes are only visited if the rule applies to non-program
+   * classes.
+   */
+  void forEachCandidate(ProguardConfigurationRule rule, Consumer<T> consumer) {
+    int end = rule.applyToNonProgramClasses() ? elements.size() : numberOfProgramElements;
+    BitSet candidates = getCandidates(rule);
+    if (candidates == null) {
+      for (int i = 0; i < end; i++) {
+        consumer.accept(elements.get(i));
+      }
+      return;
+    }
+    for (int i = candidates.nextSetBit(0); i >= 0 && i < end; i = candidates.nextSetBit(i + 1)) {
+      consumer.accept(elements.get(i));
+    }
+  }
+
+  // Returns the elements that the rule may apply to, or null if the rule may apply to any element.
+  private BitSet getCandidates(ProguardConfigurationRule rule) {
+    BitSet result = getCandidatesByName(rule.getClassNames().getClassNamePrefixes());
+    // Annotations and super types are only indexed for the rules that the index was created for.
+    if (rule.getClassAnnotation() != null && rule.getClassAnnotation().matchesSpecificType()) {
+      result =
+          smallest(result, elementsByAnnotation.get(rule.getClassAnnotation().getSpecificType()));
+    }
+    if (rule.hasInheritanceClassName() && rule.getInheritanceClassName().matchesSpecificType()) {
+      result =
+          smallest(
+              result, elementsBySuperType.get(rule.getInheritanceClassName().getSpecificType()));
+    }
+    return result;
+  }
+
+  private BitSet getCandidatesByName(List<String> prefixes) {
+    if (prefixes == null) {
+      return null;
+    }
+    BitSet candidates = new BitSet();
+    for (String prefix : prefixes) {
+      int index = Arrays.binarySearch(sortedNames, prefix);
+      for (int i = index < 0 ? -index - 1 : index;
+          i < sortedNames.length && sortedNames[i].startsWith(prefix);
+          i++) {
+        candidates.set(sortedElements[i]);
+      }
+    }
+    return candidates;
+  }
+
+  private static BitSet smallest(BitSet candidates, BitSet otherCandidates) {
+    if (otherCandidates == null) {
+      return candidates;
+    }
+    if (candidates == null || otherCandidates.cardinality() < candidates.cardinality()) {
+      return otherCandidates;
+    }
+    return candidates;
+  }
+}
@@ -9,6 +9,7 @@ import com.google.common.collect.Iterables;
 import it.unimi.dsi.fastutil.objects.Object2BooleanArrayMap;
 import it.unimi.dsi.fastutil.objects.Object2BooleanMap;
 import it.unimi.dsi.fastutil.objects.Object2BooleanMap.Entry;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -89,6 +90,21 @@ public abstract class ProguardClassNameList {
 
   public abstract void forEachTypeMatcher(Consumer<ProguardTypeMatcher> consumer);
 
+  protected void forEachPositiveTypeMatcher(Consumer<ProguardTypeMatcher> consumer) {
+    forEachTypeMatcher(consumer);
+  }
+
+  /**
+   * Returns prefixes of the source names of the class types that this list matches, such that a
+   * class type that does not start with any of the prefixes is not matched. Returns null if this
+   * list may match class types with any name.
+   */
+  public List<String> getClassNamePrefixes() {
+    List<String> prefixes = new ArrayList<>();
+    forEachPositiveTypeMatcher(className -> prefixes.add(className.getClassNamePrefix()));
+    return prefixes.contains("") ? null : prefixes;
+  }
+
   private static class EmptyClassNameList extends ProguardClassNameList {
 
     private EmptyClassNameList() {
@@ -285,5 +301,15 @@ public abstract class ProguardClassNameList {
     public void forEachTypeMatcher(Consumer<ProguardTypeMatcher> consumer) {
       classNames.object2BooleanEntrySet().forEach(entry -> consumer.accept(entry.getKey()));
     }
+
+    @Override
+    protected void forEachPositiveTypeMatcher(Consumer<ProguardTypeMatcher> consumer) {
+      classNames.forEach(
+          (className, isNegated) -> {
+            if (!isNegated) {
+              consumer.accept(className);
+            }
+          });
+    }
   }
 }
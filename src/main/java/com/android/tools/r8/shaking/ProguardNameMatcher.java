@@ -45,7 +45,7 @@ public abstract class ProguardNameMatcher {
           wildcardPattern = wildcard.asPattern();
           // Match the rest of the pattern against the rest of the name.
           for (int nextNameIndex = nameIndex; nextNameIndex <= name.length(); nextNameIndex++) {
-            wildcardPattern.setCaptured(name.substring(nameIndex, nextNameIndex));
+            wildcardPattern.setCaptured(name, nameIndex, nextNameIndex);
             if (matchFieldOrMethodNameImpl(
                 pattern, i + 1, name, nextNameIndex, wildcards, wildcardIndex + 1)) {
               return true;
@@ -59,7 +59,7 @@ public abstract class ProguardNameMatcher {
             return false;
           }
           wildcardPattern = wildcard.asPattern();
-          wildcardPattern.setCaptured(name.substring(nameIndex, nameIndex + 1));
+          wildcardPattern.setCaptured(name, nameIndex, nameIndex + 1);
           nameIndex++;
           wildcardIndex++;
           break;
@@ -67,13 +67,11 @@ public abstract class ProguardNameMatcher {
           wildcard = wildcards.get(wildcardIndex);
           assert wildcard.isBackReference();
           backReference = wildcard.asBackReference();
-          String captured = backReference.getCaptured();
-          if (captured == null
-              || name.length() < nameIndex + captured.length()
-              || !captured.equals(name.substring(nameIndex, nameIndex + captured.length()))) {
+          int capturedLength = backReference.matchCaptured(name, nameIndex);
+          if (capturedLength < 0) {
             return false;
           }
-          nameIndex = nameIndex + captured.length();
+          nameIndex = nameIndex + capturedLength;
           wildcardIndex++;
           i = pattern.indexOf(">", i);
           break;
@@ -138,15 +136,27 @@ public abstract class ProguardNameMatcher {
 
     private final String pattern;
     private final List<ProguardWildcard> wildcards;
+    private final ProguardPatternLiterals literals;
 
     MatchNamePattern(IdentifierPatternWithWildcards identifierPatternWithWildcards) {
+      this(
+          identifierPatternWithWildcards,
+          new ProguardPatternLiterals(identifierPatternWithWildcards.pattern));
+    }
+
+    private MatchNamePattern(
+        IdentifierPatternWithWildcards identifierPatternWithWildcards,
+        ProguardPatternLiterals literals) {
       this.pattern = identifierPatternWithWildcards.pattern;
       this.wildcards = identifierPatternWithWildcards.wildcards;
+      this.literals = literals;
     }
 
     @Override
     public boolean matches(String name) {
-      boolean matched = matchFieldOrMethodNameImpl(pattern, 0, name, 0, wildcards, 0);
+      boolean matched =
+          literals.mayMatch(name)
+              && matchFieldOrMethodNameImpl(pattern, 0, name, 0, wildcards, 0);
       if (!matched) {
         wildcards.forEach(ProguardWildcard::clearCaptured);
       }
@@ -164,7 +174,7 @@ public abstract class ProguardNameMatcher {
           wildcards.stream().map(ProguardWildcard::materialize).collect(Collectors.toList());
       IdentifierPatternWithWildcards identifierPatternWithMaterializedWildcards =
           new IdentifierPatternWithWildcards(pattern, materializedWildcards);
-      return new MatchNamePattern(identifierPatternWithMaterializedWildcards);
+      return new MatchNamePattern(identifierPatternWithMaterializedWildcards, literals);
     }
 
     @Override
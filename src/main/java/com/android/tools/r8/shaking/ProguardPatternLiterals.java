@@ -0,0 +1,50 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+/**
+ * The literal parts of a pattern with wildcards, which are computed once for the pattern such that
+ * most names can be rejected without running the backtracking matcher.
+ *
+ * <p>A name that is matched by the pattern starts with the characters before the first wildcard,
+ * ends with the characters after the last wildcard, and has at least one character for each
+ * literal character and each '?' in the pattern.
+ */
+class ProguardPatternLiterals {
+
+  final String prefix;
+  final String suffix;
+  final int minimumLength;
+
+  ProguardPatternLiterals(String pattern) {
+    int prefixEnd = -1;
+    int suffixStart = 0;
+    int minimumLength = 0;
+    for (int i = 0; i < pattern.length(); i++) {
+      char patternChar = pattern.charAt(i);
+      if (patternChar == '*' || patternChar == '?' || patternChar == '<') {
+        if (prefixEnd < 0) {
+          prefixEnd = i;
+        }
+        if (patternChar == '?') {
+          minimumLength++;
+        } else if (patternChar == '<') {
+          // Skip the index of the back reference.
+          int end = pattern.indexOf('>', i);
+          i = end < 0 ? pattern.length() : end;
+        }
+        suffixStart = i + 1;
+      } else {
+        minimumLength++;
+      }
+    }
+    this.prefix = pattern.substring(0, prefixEnd < 0 ? pattern.length() : prefixEnd);
+    this.suffix = suffixStart < pattern.length() ? pattern.substring(suffixStart) : "";
+    this.minimumLength = minimumLength;
+  }
+
+  boolean mayMatch(String name) {
+    return name.length() >= minimumLength && name.startsWith(prefix) && name.endsWith(suffix);
+  }
+}
@@ -115,6 +115,14 @@ public abstract class ProguardTypeMatcher {
     return getSpecificType() != null;
   }
 
+  /**
+   * Returns a prefix of the source name of all class types that this matcher matches. The prefix
+   * is empty if this matcher may match class types with any name.
+   */
+  public String getClassNamePrefix() {
+    return "";
+  }
+
   private static class MatchAllTypes extends ProguardTypeMatcher {
 
     private static final ProguardTypeMatcher MATCH_ALL_TYPES = new MatchAllTypes();
@@ -330,6 +338,11 @@ public abstract class ProguardTypeMatcher {
     public DexType getSpecificType() {
       return type;
     }
+
+    @Override
+    public String getClassNamePrefix() {
+      return type.toSourceString();
+    }
   }
 
   private static class MatchTypePattern extends ProguardTypeMatcher {
@@ -337,19 +350,33 @@ public abstract class ProguardTypeMatcher {
     private final String pattern;
     private final List<ProguardWildcard> wildcards;
     private final ClassOrType kind;
+    private final ProguardPatternLiterals literals;
 
     private MatchTypePattern(
         IdentifierPatternWithWildcards identifierPatternWithWildcards, ClassOrType kind) {
+      this(
+          identifierPatternWithWildcards,
+          kind,
+          new ProguardPatternLiterals(identifierPatternWithWildcards.pattern));
+    }
+
+    private MatchTypePattern(
+        IdentifierPatternWithWildcards identifierPatternWithWildcards,
+        ClassOrType kind,
+        ProguardPatternLiterals literals) {
       this.pattern = identifierPatternWithWildcards.pattern;
       this.wildcards = identifierPatternWithWildcards.wildcards;
       this.kind = kind;
+      this.literals = literals;
     }
 
     @Override
     public boolean matches(DexType type) {
       // TODO(herhut): Translate pattern to work on descriptors instead.
       String typeName = type.toSourceString();
-      boolean matched = matchClassOrTypeNameImpl(pattern, 0, typeName, 0, wildcards, 0, kind);
+      boolean matched =
+          literals.mayMatch(typeName)
+              && matchClassOrTypeNameImpl(pattern, 0, typeName, 0, wildcards, 0, kind);
       if (!matched) {
         wildcards.forEach(ProguardWildcard::clearCaptured);
       }
@@ -361,13 +388,18 @@ public abstract class ProguardTypeMatcher {
       return wildcards;
     }
 
+    @Override
+    public String getClassNamePrefix() {
+      return literals.prefix;
+    }
+
     @Override
     protected MatchTypePattern materialize() {
       List<ProguardWildcard> materializedWildcards =
           wildcards.stream().map(ProguardWildcard::materialize).collect(Collectors.toList());
       IdentifierPatternWithWildcards identifierPatternWithMaterializedWildcards =
           new IdentifierPatternWithWildcards(pattern, materializedWildcards);
-      return new MatchTypePattern(identifierPatternWithMaterializedWildcards, kind);
+      return new MatchTypePattern(identifierPatternWithMaterializedWildcards, kind, literals);
     }
 
     private static boolean matchClassOrTypeNameImpl(
@@ -398,7 +430,7 @@ public abstract class ProguardTypeMatcher {
 
             // Fast cases for the common case where a pattern ends with  '*', '**', or '***'.
             if (nextPatternIndex == pattern.length()) {
-              wildcardPattern.setCaptured(name.substring(nameIndex));
+              wildcardPattern.setCaptured(name, nameIndex, name.length());
               if (includeAll) {
                 return true;
               }
@@ -411,7 +443,7 @@ public abstract class ProguardTypeMatcher {
 
             // Match the rest of the pattern against the (non-empty) rest of the class name.
             for (int nextNameIndex = nameIndex; nextNameIndex < name.length(); nextNameIndex++) {
-              wildcardPattern.setCaptured(name.substring(nameIndex, nextNameIndex));
+              wildcardPattern.setCaptured(name, nameIndex, nextNameIndex);
               if (!includeSeparators) {
                 if (name.charAt(nextNameIndex) == '.') {
                   return matchClassOrTypeNameImpl(
@@ -437,7 +469,7 @@ public abstract class ProguardTypeMatcher {
             }
 
             // Finally, check the case where the '*', '**', or '***' eats all of the class name.
-            wildcardPattern.setCaptured(name.substring(nameIndex));
+            wildcardPattern.setCaptured(name, nameIndex, name.length());
             return matchClassOrTypeNameImpl(
                 pattern, nextPatternIndex, name, name.length(), wildcards, wildcardIndex + 1, kind);
 
@@ -448,7 +480,7 @@ public abstract class ProguardTypeMatcher {
               return false;
             }
             wildcardPattern = wildcard.asPattern();
-            wildcardPattern.setCaptured(name.substring(nameIndex, nameIndex + 1));
+            wildcardPattern.setCaptured(name, nameIndex, nameIndex + 1);
             nameIndex++;
             wildcardIndex++;
             break;
@@ -457,13 +489,11 @@ public abstract class ProguardTypeMatcher {
             wildcard = wildcards.get(wildcardIndex);
             assert wildcard.isBackReference();
             backReference = wildcard.asBackReference();
-            String captured = backReference.getCaptured();
-            if (captured == null
-                || name.length() < nameIndex + captured.length()
-                || !captured.equals(name.substring(nameIndex, nameIndex + captured.length()))) {
+            int capturedLength = backReference.matchCaptured(name, nameIndex);
+            if (capturedLength < 0) {
               return false;
             }
-            nameIndex = nameIndex + captured.length();
+            nameIndex = nameIndex + capturedLength;
             wildcardIndex++;
             i = pattern.indexOf(">", i);
             break;
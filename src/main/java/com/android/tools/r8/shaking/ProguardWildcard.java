@@ -32,6 +32,13 @@ public abstract class ProguardWildcard {
     final String pattern;
     private String captured = null;
 
+    // The captured string can be recorded as a region of the name being matched, which is only
+    // copied when the captured string is requested. This way, trying all the possible captures
+    // while matching a name does not allocate.
+    private String capturedSource = null;
+    private int capturedStart;
+    private int capturedEnd;
+
     Pattern(String pattern) {
       this.pattern = pattern;
     }
@@ -39,20 +46,49 @@ public abstract class ProguardWildcard {
     @Override
     synchronized void setCaptured(String captured) {
       this.captured = captured;
+      capturedSource = null;
+    }
+
+    synchronized void setCaptured(String source, int start, int end) {
+      captured = null;
+      capturedSource = source;
+      capturedStart = start;
+      capturedEnd = end;
     }
 
     @Override
     synchronized void clearCaptured() {
       captured = null;
+      capturedSource = null;
     }
 
     @Override
     synchronized String getCaptured() {
+      if (capturedSource != null) {
+        captured = capturedSource.substring(capturedStart, capturedEnd);
+        capturedSource = null;
+      }
       return captured;
     }
 
+    /**
+     * Returns the length of the captured string if the given name contains the captured string at
+     * the given offset, and -1 otherwise.
+     */
+    synchronized int matchCaptured(String name, int offset) {
+      if (capturedSource != null) {
+        int length = capturedEnd - capturedStart;
+        return name.regionMatches(offset, capturedSource, capturedStart, length) ? length : -1;
+      }
+      if (captured == null) {
+        return -1;
+      }
+      return name.startsWith(captured, offset) ? captured.length() : -1;
+    }
+
     @Override
     Pattern materialize() {
+      String captured = getCaptured();
       if (captured == null) {
         return this;
       }
@@ -105,6 +141,14 @@ public abstract class ProguardWildcard {
       return reference != null ? reference.getCaptured() : null;
     }
 
+    /**
+     * Returns the length of the referenced string if the given name contains it at the given
+     * offset, and -1 otherwise.
+     */
+    int matchCaptured(String name, int offset) {
+      return reference != null ? reference.matchCaptured(name, offset) : -1;
+    }
+
     @Override
     BackReference materialize() {
       if (reference == null || reference.getCaptured() == null) {
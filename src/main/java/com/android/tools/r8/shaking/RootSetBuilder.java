@@ -19,7 +19,6 @@ import com.android.tools.r8.graph.DexDefinition;
 import com.android.tools.r8.graph.DexEncodedField;
 import com.android.tools.r8.graph.DexEncodedMethod;
 import com.android.tools.r8.graph.DexField;
-import com.android.tools.r8.graph.DexLibraryClass;
 import com.android.tools.r8.graph.DexMethod;
 import com.android.tools.r8.graph.DexProgramClass;
 import com.android.tools.r8.graph.DexReference;
@@ -29,6 +28,7 @@ import com.android.tools.r8.logging.Log;
 import com.android.tools.r8.utils.Consumer3;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.MethodSignatureEquivalence;
+import com.android.tools.r8.utils.Pair;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.base.Equivalence.Wrapper;
@@ -91,6 +91,9 @@ public class RootSetBuilder {
   private final DexStringCache dexStringCache = new DexStringCache();
   private final Set<ProguardIfRule> ifRules = Sets.newIdentityHashSet();
 
+  // Index for finding the classes that a rule may apply to, created on demand.
+  private ProguardClassIndex<DexClass> classIndex;
+
   public RootSetBuilder(
       AppView<? extends AppInfoWithSubtyping> appView,
       DexApplication application,
@@ -242,21 +245,31 @@ public class RootSetBuilder {
         }
       }
     } else {
+      ProguardClassIndex<DexClass> classIndex = getClassIndex();
       futures.add(
           executorService.submit(
-              () -> {
-                for (DexProgramClass clazz : application.classes()) {
-                  process(clazz, rule, ifRule);
-                }
-                if (rule.applyToNonProgramClasses()) {
-                  for (DexLibraryClass clazz : application.libraryClasses()) {
-                    process(clazz, rule, ifRule);
-                  }
-                }
-              }));
+              () -> classIndex.forEachCandidate(rule, clazz -> process(clazz, rule, ifRule))));
     }
   }
 
+  private synchronized ProguardClassIndex<DexClass> getClassIndex() {
+    if (classIndex == null) {
+      List<DexClass> classes = new ArrayList<>(application.classes());
+      int numberOfProgramClasses = classes.size();
+      Iterables.addAll(classes, application.libraryClasses());
+      classIndex =
+          new ProguardClassIndex<>(
+              classes,
+              numberOfProgramClasses,
+              Function.identity(),
+              Function.identity(),
+              rules != null ? rules : ImmutableList.of(),
+              application::definitionFor,
+              appView.verticallyMergedClasses() == null);
+    }
+    return classIndex;
+  }
+
   public RootSet run(ExecutorService executorService) throws ExecutionException {
     application.timing.begin("Build root set...");
     try {
@@ -392,35 +405,16 @@ public class RootSetBuilder {
       application.timing.begin("Find consequent items for -if rules...");
       try {
         if (rules != null) {
+          ProguardClassIndex<Pair<DexClass, DexClass>> ifRuleClassIndex = createIfRuleClassIndex();
           for (ProguardConfigurationRule rule : rules) {
             assert rule instanceof ProguardIfRule;
             ProguardIfRule ifRule = (ProguardIfRule) rule;
             // Depending on which types that trigger the -if rule, the application of the subsequent
             // -keep rule may vary (due to back references). So, we need to try all pairs of -if
             // rule and live types.
-            for (DexProgramClass clazz : appView.appInfo().classes()) {
-              if (!isEffectivelyLive(clazz)) {
-                continue;
-              }
-
-              // Check if the class matches the if-rule.
-              evaluateIfRule(ifRule, clazz, clazz);
-
-              // Check if one of the types that have been merged into `clazz` satisfies the if-rule.
-              if (options.enableVerticalClassMerging && appView.verticallyMergedClasses() != null) {
-                Iterable<DexType> sources =
-                    appView.verticallyMergedClasses().getSourcesFor(clazz.type);
-                for (DexType sourceType : sources) {
-                  // Note that, although `sourceType` has been merged into `type`, the dex class for
-                  // `sourceType` is still available until the second round of tree shaking. This
-                  // way
-                  // we can still retrieve the access flags of `sourceType`.
-                  DexClass sourceClass = appView.definitionFor(sourceType);
-                  assert sourceClass != null;
-                  evaluateIfRule(ifRule, sourceClass, clazz);
-                }
-              }
-            }
+            ifRuleClassIndex.forEachCandidate(
+                ifRule,
+                candidate -> evaluateIfRule(ifRule, candidate.getFirst(), candidate.getSecond()));
           }
           ThreadUtils.awaitFutures(futures);
         }
@@ -437,6 +431,44 @@ public class RootSetBuilder {
           dependentKeepClassCompatRule);
     }
 
+    /**
+     * Creates an index over the pairs of classes that the -if rules are evaluated against. Each
+     * effectively live class is paired with itself, and with each of the classes that have been
+     * merged into it.
+     */
+    private ProguardClassIndex<Pair<DexClass, DexClass>> createIfRuleClassIndex() {
+      List<Pair<DexClass, DexClass>> candidates = new ArrayList<>();
+      for (DexProgramClass clazz : appView.appInfo().classes()) {
+        if (!isEffectivelyLive(clazz)) {
+          continue;
+        }
+
+        // The class itself may satisfy the if-rule.
+        candidates.add(new Pair<>(clazz, clazz));
+
+        // One of the types that have been merged into `clazz` may satisfy the if-rule.
+        if (options.enableVerticalClassMerging && appView.verticallyMergedClasses() != null) {
+          Iterable<DexType> sources = appView.verticallyMergedClasses().getSourcesFor(clazz.type);
+          for (DexType sourceType : sources) {
+            // Note that, although `sourceType` has been merged into `type`, the dex class for
+            // `sourceType` is still available until the second round of tree shaking. This way
+            // we can still retrieve the access flags of `sourceType`.
+            DexClass sourceClass = appView.definitionFor(sourceType);
+            assert sourceClass != null;
+            candidates.add(new Pair<>(sourceClass, clazz));
+          }
+        }
+      }
+      return new ProguardClassIndex<>(
+          candidates,
+          candidates.size(),
+          Pair::getFirst,
+          Pair::getSecond,
+          rules,
+          application::definitionFor,
+          appView.verticallyMergedClasses() == null);
+    }
+
     private boolean isEffectivelyLive(DexProgramClass clazz) {
       // A type is effectively live if (1) it is truly live, (2) the value of one of its fields has
       // been inlined by the member value propagation, or (3) the return value of one of its methods
@@ -0,0 +1,352 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.CALL_SITE;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.CHECK_CAST;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.CONST_CLASS;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.INSTANCE_FIELD_READ;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.INSTANCE_FIELD_WRITE;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.INVOKE_DIRECT;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.INVOKE_INTERFACE;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.INVOKE_STATIC;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.INVOKE_SUPER;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.INVOKE_VIRTUAL;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.METHOD_HANDLE_ARGUMENT_TO_LAMBDA_METAFACTORY;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.METHOD_HANDLE_NOT_ARGUMENT_TO_LAMBDA_METAFACTORY;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.NEW_INSTANCE;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.PROTO;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.STATIC_FIELD_READ;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.STATIC_FIELD_WRITE;
+import static com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry.TYPE_REFERENCE;
+
+import com.android.tools.r8.Version;
+import com.android.tools.r8.graph.Code;
+import com.android.tools.r8.graph.DexClass;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexField;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexProto;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.graph.LazyCfCode;
+import com.android.tools.r8.origin.PathOrigin;
+import com.android.tools.r8.shaking.EnqueuerCodeScanner.RecordingUseRegistry;
+import com.android.tools.r8.utils.ExceptionDiagnostic;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.StringDiagnostic;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent on-disk cache of the references found in the code of program class files by the
+ * initial tree shaking of R8.
+ *
+ * <p>Entries are keyed by a hash of the class-file content and hold the references of each method
+ * of the class that has been traced, in the order they occur in the code. When tracing a method of
+ * an unchanged class file the {@link Enqueuer} replays the cached references instead of parsing
+ * the code. The liveness of the whole program is still computed from all references, so the result
+ * is the same as without the cache no matter which classes changed.
+ *
+ * <p>Methods with invoke-dynamic instructions or method handles are never cached.
+ */
+public class TracingCache {
+
+  private static final String ENTRY_EXTENSION = ".tracecache";
+  private static final int ENTRY_MAGIC = 0x58ACEC4E;
+
+  private final Path directory;
+  private final InternalOptions options;
+
+  // Cache keys for program class-file inputs, computed while reading the classes.
+  private final Map<DexType, String> classKeys = new ConcurrentHashMap<>();
+  // The references of each method of the classes that have been looked up or recorded.
+  private final Map<DexType, Map<DexMethod, RecordingUseRegistry>> entries =
+      new ConcurrentHashMap<>();
+  // Classes for which references have been recorded that are not stored yet.
+  private final Set<DexType> pendingClasses = ConcurrentHashMap.newKeySet();
+
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  public TracingCache(Path directory, InternalOptions options) {
+    this.directory = directory;
+    this.options = options;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /** Record the content of a program class file. Called when reading the class. */
+  public void recordClassContent(DexType type, byte[] classFileContent) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(Version.LABEL, StandardCharsets.UTF_8);
+    hasher.putBytes(classFileContent);
+    classKeys.put(type, hasher.hash().toString());
+  }
+
+  int getHitCount() {
+    return hits.get();
+  }
+
+  int getMissCount() {
+    return misses.get();
+  }
+
+  private String getKey(DexEncodedMethod method, DexClass holder) {
+    // The code of a method no longer corresponds to its class file once it has been rewritten.
+    Code code = method.getCode();
+    return code instanceof LazyCfCode ? classKeys.get(holder.type) : null;
+  }
+
+  /** Returns the cached references of {@param method} or null if there are none. */
+  RecordingUseRegistry lookup(DexEncodedMethod method, DexClass holder) {
+    String key = getKey(method, holder);
+    if (key == null) {
+      return null;
+    }
+    Map<DexMethod, RecordingUseRegistry> entry = entries.get(holder.type);
+    if (entry == null) {
+      entry = readEntry(key);
+      Map<DexMethod, RecordingUseRegistry> existing = entries.putIfAbsent(holder.type, entry);
+      if (existing != null) {
+        entry = existing;
+      }
+    }
+    RecordingUseRegistry references = entry.get(method.method);
+    if (references != null) {
+      hits.incrementAndGet();
+    } else {
+      misses.incrementAndGet();
+    }
+    return references;
+  }
+
+  /** Add the references of {@param method} to the entry of its class. */
+  void record(DexEncodedMethod method, DexClass holder, RecordingUseRegistry references) {
+    if (getKey(method, holder) == null || !isCacheable(references)) {
+      return;
+    }
+    entries
+        .computeIfAbsent(holder.type, ignore -> new ConcurrentHashMap<>())
+        .put(method.method, references);
+    pendingClasses.add(holder.type);
+  }
+
+  private static boolean isCacheable(RecordingUseRegistry references) {
+    for (int i = 0; i < references.size(); i++) {
+      switch (references.getKind(i)) {
+        case CALL_SITE:
+        case METHOD_HANDLE_ARGUMENT_TO_LAMBDA_METAFACTORY:
+        case METHOD_HANDLE_NOT_ARGUMENT_TO_LAMBDA_METAFACTORY:
+          return false;
+        default:
+          break;
+      }
+    }
+    return true;
+  }
+
+  /** Store the entries of the classes for which new references have been recorded. */
+  void persist() {
+    for (DexType type : pendingClasses) {
+      String key = classKeys.get(type);
+      assert key != null;
+      writeEntry(key, entries.get(type));
+    }
+    pendingClasses.clear();
+    if (options.printTimes) {
+      options.reporter.info(
+          new StringDiagnostic(
+              "Tracing cache: " + hits.get() + " hit(s), " + misses.get() + " miss(es)",
+              new PathOrigin(directory)));
+    }
+  }
+
+  private Path getEntryPath(String key) {
+    return directory.resolve(key + ENTRY_EXTENSION);
+  }
+
+  private Map<DexMethod, RecordingUseRegistry> readEntry(String key) {
+    Map<DexMethod, RecordingUseRegistry> entry = new ConcurrentHashMap<>();
+    Path path = getEntryPath(key);
+    if (!Files.isRegularFile(path)) {
+      return entry;
+    }
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (input.readInt() != ENTRY_MAGIC) {
+        return entry;
+      }
+      DexItemFactory factory = options.itemFactory;
+      int methodCount = input.readInt();
+      for (int i = 0; i < methodCount; i++) {
+        DexMethod method = readMethod(input, factory);
+        RecordingUseRegistry references = new RecordingUseRegistry(factory);
+        int referenceCount = input.readInt();
+        for (int j = 0; j < referenceCount; j++) {
+          int kind = input.readByte();
+          references.record(kind, readItem(kind, input, factory));
+        }
+        entry.put(method, references);
+      }
+    } catch (IOException e) {
+      // A truncated or otherwise unreadable entry is treated as a miss and will be rewritten.
+      entry.clear();
+    }
+    return entry;
+  }
+
+  private static Object readItem(int kind, DataInputStream input, DexItemFactory factory)
+      throws IOException {
+    switch (kind) {
+      case INVOKE_VIRTUAL:
+      case INVOKE_DIRECT:
+      case INVOKE_STATIC:
+      case INVOKE_INTERFACE:
+      case INVOKE_SUPER:
+        return readMethod(input, factory);
+      case INSTANCE_FIELD_WRITE:
+      case INSTANCE_FIELD_READ:
+      case STATIC_FIELD_READ:
+      case STATIC_FIELD_WRITE:
+        DexType holder = factory.createType(input.readUTF());
+        DexType type = factory.createType(input.readUTF());
+        return factory.createField(holder, type, input.readUTF());
+      case NEW_INSTANCE:
+      case TYPE_REFERENCE:
+      case CONST_CLASS:
+      case CHECK_CAST:
+        return factory.createType(input.readUTF());
+      case PROTO:
+        return readProto(input, factory);
+      default:
+        throw new IOException("Unexpected reference kind " + kind);
+    }
+  }
+
+  private static DexMethod readMethod(DataInputStream input, DexItemFactory factory)
+      throws IOException {
+    DexType holder = factory.createType(input.readUTF());
+    DexProto proto = readProto(input, factory);
+    return factory.createMethod(holder, proto, input.readUTF());
+  }
+
+  private static DexProto readProto(DataInputStream input, DexItemFactory factory)
+      throws IOException {
+    DexType returnType = factory.createType(input.readUTF());
+    DexType[] parameters = new DexType[input.readInt()];
+    for (int i = 0; i < parameters.length; i++) {
+      parameters[i] = factory.createType(input.readUTF());
+    }
+    return factory.createProto(returnType, parameters);
+  }
+
+  private static void writeItem(int kind, Object item, DataOutputStream output)
+      throws IOException {
+    switch (kind) {
+      case INVOKE_VIRTUAL:
+      case INVOKE_DIRECT:
+      case INVOKE_STATIC:
+      case INVOKE_INTERFACE:
+      case INVOKE_SUPER:
+        writeMethod((DexMethod) item, output);
+        break;
+      case INSTANCE_FIELD_WRITE:
+      case INSTANCE_FIELD_READ:
+      case STATIC_FIELD_READ:
+      case STATIC_FIELD_WRITE:
+        DexField field = (DexField) item;
+        output.writeUTF(field.holder.toDescriptorString());
+        output.writeUTF(field.type.toDescriptorString());
+        output.writeUTF(field.name.toString());
+        break;
+      case NEW_INSTANCE:
+      case TYPE_REFERENCE:
+      case CONST_CLASS:
+      case CHECK_CAST:
+        output.writeUTF(((DexType) item).toDescriptorString());
+        break;
+      case PROTO:
+        writeProto((DexProto) item, output);
+        break;
+      default:
+        throw new IOException("Unexpected reference kind " + kind);
+    }
+  }
+
+  private static void writeMethod(DexMethod method, DataOutputStream output) throws IOException {
+    output.writeUTF(method.holder.toDescriptorString());
+    writeProto(method.proto, output);
+    output.writeUTF(method.name.toString());
+  }
+
+  private static void writeProto(DexProto proto, DataOutputStream output) throws IOException {
+    output.writeUTF(proto.returnType.toDescriptorString());
+    output.writeInt(proto.parameters.size());
+    for (DexType parameter : proto.parameters.values) {
+      output.writeUTF(parameter.toDescriptorString());
+    }
+  }
+
+  private void writeEntry(String key, Map<DexMethod, RecordingUseRegistry> entry) {
+    Path path = getEntryPath(key);
+    Path temp = null;
+    try {
+      Files.createDirectories(directory);
+      // Write to a temporary file first such that concurrent builds never observe partial
+      // entries.
+      temp = Files.createTempFile(directory, key, ".tmp");
+      List<DexMethod> methods = new ArrayList<>(entry.keySet());
+      methods.sort(DexMethod::slowCompareTo);
+      try (DataOutputStream output =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        output.writeInt(ENTRY_MAGIC);
+        output.writeInt(methods.size());
+        for (DexMethod method : methods) {
+          writeMethod(method, output);
+          RecordingUseRegistry references = entry.get(method);
+          output.writeInt(references.size());
+          for (int i = 0; i < references.size(); i++) {
+            int kind = references.getKind(i);
+            output.writeByte(kind);
+            writeItem(kind, references.getItem(i), output);
+          }
+        }
+      }
+      try {
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      // Failing to populate the cache does not invalidate the compilation.
+      options.reporter.warning(new ExceptionDiagnostic(e, new PathOrigin(path)));
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (IOException ignored) {
+          // Nothing more to do.
+        }
+      }
+    }
+  }
+}
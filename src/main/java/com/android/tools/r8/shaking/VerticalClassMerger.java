@@ -1094,6 +1094,8 @@ public class VerticalClassMerger {
       source.setInstanceFields(null);
       source.setStaticFields(null);
       source.interfaces = DexTypeList.empty();
+      // The target and its subtypes no longer have the source as a supertype.
+      appInfo.unsetCachedSupertypes(source.type);
       // Step 4: Record merging.
       mergedClasses.put(source.type, target.type);
       mergedClassesInverse.computeIfAbsent(target.type, key -> new HashSet<>()).add(source.type);
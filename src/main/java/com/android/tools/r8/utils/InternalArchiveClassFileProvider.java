@@ -22,7 +22,9 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.zip.ZipEntry;
@@ -35,12 +37,26 @@ import java.util.zip.ZipFile;
  * <p>The purpose of the internal provider is that for the API use above we know it is safe to use
  * the zip-file descriptor throughout compilation and close at the end of reading. It must also be
  * safe to reopen it as currently our own tests reuse AndroidApp structures.
+ *
+ * <p>If possible the archive is read through a {@link MappedZipArchive} which avoids the stream
+ * buffering of {@link ZipFile} and keeps the central directory off-heap. Otherwise, or if disabled
+ * by the system property {@code com.android.tools.r8.disableMappedArchives}, it falls back to
+ * {@link ZipFile}.
  */
 class InternalArchiveClassFileProvider implements ClassFileResourceProvider, AutoCloseable {
   private final Path path;
   private final Origin origin;
   private final Set<String> descriptors = new HashSet<>();
 
+  private static final boolean USE_MAPPED_ARCHIVES =
+      System.getProperty("com.android.tools.r8.disableMappedArchives") == null
+          // Mapped files cannot be deleted on Windows until the mapping is garbage collected.
+          && !System.getProperty("os.name", "").startsWith("Windows");
+
+  // Entry handles into the mapped archive for each descriptor if the archive is mapped.
+  private final Map<String, Integer> mappedEntries = new HashMap<>();
+  private MappedZipArchive mappedArchive = null;
+
   private ZipFile openedZipFile = null;
 
   /**
@@ -63,6 +79,20 @@ class InternalArchiveClassFileProvider implements ClassFileResourceProvider, Aut
     assert isArchive(archive);
     path = archive;
     origin = new PathOrigin(archive);
+    if (USE_MAPPED_ARCHIVES) {
+      mappedArchive = MappedZipArchive.open(archive);
+      if (mappedArchive != null) {
+        mappedArchive.forEachEntry(
+            (name, entry) -> {
+              if (ZipUtils.isClassFile(name) && include.test(name)) {
+                String descriptor = DescriptorUtils.guessTypeDescriptor(name);
+                descriptors.add(descriptor);
+                mappedEntries.put(descriptor, entry);
+              }
+            });
+        return;
+      }
+    }
     final Enumeration<? extends ZipEntry> entries = getOpenZipFile().entries();
     while (entries.hasMoreElements()) {
       ZipEntry entry = entries.nextElement();
@@ -83,6 +113,9 @@ class InternalArchiveClassFileProvider implements ClassFileResourceProvider, Aut
     if (!descriptors.contains(descriptor)) {
       return null;
     }
+    if (!mappedEntries.isEmpty()) {
+      return getMappedProgramResource(descriptor);
+    }
     try {
       ZipEntry zipEntry = getZipEntryFromDescriptor(descriptor);
       try (InputStream inputStream = getOpenZipFile().getInputStream(zipEntry)) {
@@ -97,6 +130,30 @@ class InternalArchiveClassFileProvider implements ClassFileResourceProvider, Aut
     }
   }
 
+  private ProgramResource getMappedProgramResource(String descriptor) {
+    try {
+      MappedZipArchive archive = getMappedArchive();
+      return ProgramResource.fromBytes(
+          new ArchiveEntryOrigin(
+              descriptor.substring(1, descriptor.length() - 1) + CLASS_EXTENSION, origin),
+          Kind.CF,
+          archive.read(mappedEntries.get(descriptor)),
+          Collections.singleton(descriptor));
+    } catch (IOException e) {
+      throw new CompilationError("Failed to read '" + descriptor, origin);
+    }
+  }
+
+  private synchronized MappedZipArchive getMappedArchive() throws IOException {
+    if (mappedArchive == null) {
+      mappedArchive = MappedZipArchive.open(path);
+      if (mappedArchive == null) {
+        throw new IOException("Failed to reopen archive " + path);
+      }
+    }
+    return mappedArchive;
+  }
+
   private ZipFile getOpenZipFile() throws IOException {
     if (openedZipFile == null) {
       try {
@@ -114,8 +171,14 @@ class InternalArchiveClassFileProvider implements ClassFileResourceProvider, Aut
 
   @Override
   public void close() throws IOException {
-    openedZipFile.close();
-    openedZipFile = null;
+    if (openedZipFile != null) {
+      openedZipFile.close();
+      openedZipFile = null;
+    }
+    // The mapping is released when the archive is garbage collected.
+    synchronized (this) {
+      mappedArchive = null;
+    }
   }
 
   private ZipEntry getZipEntryFromDescriptor(String descriptor) throws IOException {
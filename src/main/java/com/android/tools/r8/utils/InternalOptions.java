@@ -15,6 +15,7 @@ import com.android.tools.r8.DexIndexedConsumer;
 import com.android.tools.r8.ProgramConsumer;
 import com.android.tools.r8.StringConsumer;
 import com.android.tools.r8.Version;
+import com.android.tools.r8.dex.DexingCache;
 import com.android.tools.r8.dex.Marker;
 import com.android.tools.r8.dex.Marker.Tool;
 import com.android.tools.r8.errors.CompilationError;
@@ -40,6 +41,7 @@ import com.android.tools.r8.position.Position;
 import com.android.tools.r8.references.Reference;
 import com.android.tools.r8.shaking.ProguardConfiguration;
 import com.android.tools.r8.shaking.ProguardConfigurationRule;
+import com.android.tools.r8.shaking.TracingCache;
 import com.android.tools.r8.utils.IROrdering.IdentityIROrdering;
 import com.android.tools.r8.utils.IROrdering.NondeterministicIROrdering;
 import com.google.common.base.Equivalence.Wrapper;
@@ -107,6 +109,7 @@ public class InternalOptions {
     proguardConfiguration = null;
     enableTreeShaking = false;
     enableMinification = false;
+    configureItemFactory();
   }
 
   // Constructor for D8.
@@ -119,6 +122,7 @@ public class InternalOptions {
     enableTreeShaking = false;
     enableMinification = false;
     disableGlobalOptimizations();
+    configureItemFactory();
   }
 
   // Constructor for R8.
@@ -135,6 +139,16 @@ public class InternalOptions {
       disableAllOptimizations();
     }
     configurationDebugging = proguardConfiguration.isConfigurationDebugging();
+    configureItemFactory();
+  }
+
+  private void configureItemFactory() {
+    // Store the content of strings in shared slabs instead of an array per string. The pool can
+    // also be enabled on an existing item factory, in which case it applies to the strings created
+    // from then on.
+    if (System.getProperty("com.android.tools.r8.enableDexStringPool") != null) {
+      itemFactory.enableStringPool();
+    }
   }
 
   void disableAllOptimizations() {
@@ -199,6 +213,10 @@ public class InternalOptions {
   // TODO(b/114002137): Enable this when it is worthwhile, e.g., support non-String args.
   public boolean enableStringConcatenationOptimization = false;
   public boolean enableTreeShakingOfLibraryMethodOverrides = false;
+  // Parse and scan the code of methods that become live on the executor while tracing. The
+  // liveness state is still only updated by the tracing thread, in a deterministic order.
+  public boolean enableParallelEnqueuerTracing =
+      System.getProperty("com.android.tools.r8.parallelEnqueuerTracing") != null;
   public boolean encodeChecksums = false;
   public BiPredicate<String, Long> dexClassChecksumFilter = (name, checksum) -> true;
 
@@ -208,6 +226,12 @@ public class InternalOptions {
   // negligible impact on code size as long as the threshold is large enough.
   public int callGraphCycleEliminatorMaxDepthThreshold = 256;
   public int callGraphLikelySpuriousCallEdgeThreshold = 50;
+  // Start processing a method in the primary optimization pass as soon as the methods it calls are
+  // processed, instead of processing the methods in waves separated by barriers. The pass behaves
+  // as a single wave: optimization info is delayed and wave done actions, such as the field
+  // updates of ClassInitializerDefaultsOptimization, are run once all methods are processed.
+  public boolean enableDynamicMethodProcessing =
+      System.getProperty("com.android.tools.r8.dynamicMethodProcessing") != null;
 
   public int classInliningInstructionLimit = 50;
   // This defines the limit of instructions in the inlinee
@@ -221,6 +245,12 @@ public class InternalOptions {
   public boolean enableStringSwitchConversion = false;
   public boolean enableEnumValueOptimization = true;
   public final OutlineOptions outline = new OutlineOptions();
+  public final MethodBudgetOptions methodBudget = new MethodBudgetOptions();
+  // Directory to write a profile of the time and allocations of each optimization pass for each
+  // method to, see MethodProcessingProfiler. The profile lists the methodProfileTopN most expensive
+  // methods.
+  public String methodProfileDirectory = System.getProperty("com.android.tools.r8.methodProfile");
+  public int methodProfileTopN = Integer.getInteger("com.android.tools.r8.methodProfileTopN", 100);
   public boolean enableInitializedClassesInInstanceMethodsAnalysis = true;
   public boolean enableRedundantFieldLoadElimination = true;
   public boolean enableValuePropagation = true;
@@ -230,6 +260,19 @@ public class InternalOptions {
 
   // Number of threads to use while processing the dex files.
   public int numberOfThreads = DETERMINISTIC_DEBUGGING ? 1 : ThreadUtils.NOT_SPECIFIED;
+  // Maximum number of dex files that are being written or waiting to be accepted by the program
+  // consumer at the same time. If not specified this is twice the number of threads.
+  public int maxDexFilesInFlight = ThreadUtils.NOT_SPECIFIED;
+
+  public int getMaxDexFilesInFlight() {
+    if (maxDexFilesInFlight != ThreadUtils.NOT_SPECIFIED) {
+      assert maxDexFilesInFlight > 0;
+      return maxDexFilesInFlight;
+    }
+    // Allow the next files to be laid out while the oldest file is still being written.
+    return 2 * ThreadUtils.getNumberOfThreads(this);
+  }
+
   // Print smali disassembly.
   public boolean useSmaliSyntax = false;
   // Verbose output.
@@ -643,6 +686,20 @@ public class InternalOptions {
   // code objects needed for correct desugaring needs to be provided to the consumer.
   public DesugarGraphConsumer desugarGraphConsumer = null;
 
+  // If non-null, D8 reuses the DEX output of unchanged class files from the cache and stores the
+  // output of newly compiled class files in it.
+  public DexingCache dexingCache = null;
+
+  // If non-null, the initial tree shaking of R8 reuses the references found in the code of class
+  // files that are unchanged since a previous compilation.
+  public TracingCache tracingCache = null;
+  // Directory from which R8Command creates the tracing cache of R8 compilations.
+  public String tracingCacheDirectory =
+      System.getProperty("com.android.tools.r8.tracingCacheDirectory");
+  // Scan the code of methods found in the tracing cache anyway and fail if the references differ.
+  public boolean verifyTracingCache =
+      System.getProperty("com.android.tools.r8.verifyTracingCache") != null;
+
   public Path proguardCompatibilityRulesOutput = null;
   public Consumer<List<ProguardConfigurationRule>> syntheticProguardRulesConsumer = null;
 
@@ -971,6 +1028,22 @@ public class InternalOptions {
     public int threshold = 20;
   }
 
+  /**
+   * Per-method compile-time budget. Methods that exceed the budget are compiled without inlining,
+   * class inlining and outlining into them, and with a single register allocation pass, such that a
+   * few pathological methods do not dominate the compile time. The budget is disabled by default.
+   */
+  public static class MethodBudgetOptions {
+
+    // Maximum number of IR instructions in a method when its processing starts, or -1 for no limit.
+    public int instructionLimit =
+        Integer.getInteger("com.android.tools.r8.methodBudget.instructionLimit", -1);
+
+    public boolean isEnabled() {
+      return instructionLimit >= 0;
+    }
+  }
+
   public static class TestingOptions {
 
     // Force writing the specified bytes as the DEX version content.
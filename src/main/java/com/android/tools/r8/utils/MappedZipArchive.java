@@ -0,0 +1,211 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.ObjIntConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only view of a zip archive backed by a memory mapping of the file.
+ *
+ * <p>The central directory is only parsed to enumerate the entries. Entries are identified by the
+ * offset of their record in the central directory, which stays in the mapped (off-heap) file, so
+ * the only heap state needed to look up an entry is its name and an int. Stored entries are copied
+ * directly from the mapping and deflated entries are inflated directly into an array of the exact
+ * uncompressed size.
+ *
+ * <p>Archives that cannot be handled, e.g., zip64 archives, archives larger than 2GB or archives
+ * with unsupported compression methods, are rejected by {@link #open} returning null, such that
+ * callers can fall back to {@link java.util.zip.ZipFile}.
+ */
+public class MappedZipArchive {
+
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+  private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_HEADER_SIZE = 30;
+  private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+  private static final int METHOD_STORED = 0;
+  private static final int METHOD_DEFLATED = 8;
+  private static final int FLAG_ENCRYPTED = 0x1;
+
+  private final ByteBuffer buffer;
+  private final int centralDirectoryOffset;
+  private final int entryCount;
+
+  private MappedZipArchive(ByteBuffer buffer, int centralDirectoryOffset, int entryCount) {
+    this.buffer = buffer;
+    this.centralDirectoryOffset = centralDirectoryOffset;
+    this.entryCount = entryCount;
+  }
+
+  /** Map the archive at {@param path} or return null if it cannot be read through a mapping. */
+  public static MappedZipArchive open(Path path) throws IOException {
+    MappedByteBuffer mapped;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE || size < END_OF_CENTRAL_DIRECTORY_SIZE) {
+        return null;
+      }
+      // The mapping remains valid after the channel is closed.
+      mapped = channel.map(MapMode.READ_ONLY, 0, size);
+    }
+    ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+    int end = findEndOfCentralDirectory(buffer);
+    if (end < 0) {
+      return null;
+    }
+    int entryCount = Short.toUnsignedInt(buffer.getShort(end + 10));
+    long centralDirectorySize = Integer.toUnsignedLong(buffer.getInt(end + 12));
+    long centralDirectoryOffset = Integer.toUnsignedLong(buffer.getInt(end + 16));
+    if (entryCount == 0xFFFF
+        || centralDirectoryOffset == 0xFFFFFFFFL
+        || centralDirectoryOffset + centralDirectorySize > end) {
+      // Zip64 or malformed.
+      return null;
+    }
+    MappedZipArchive archive =
+        new MappedZipArchive(buffer, (int) centralDirectoryOffset, entryCount);
+    return archive.isSupported() ? archive : null;
+  }
+
+  private static int findEndOfCentralDirectory(ByteBuffer buffer) {
+    int limit = Math.max(0, buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_SIZE);
+    for (int i = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; i >= limit; i--) {
+      if (buffer.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isSupported() {
+    int offset = centralDirectoryOffset;
+    for (int i = 0; i < entryCount; i++) {
+      if (offset + CENTRAL_DIRECTORY_HEADER_SIZE > buffer.limit()
+          || buffer.getInt(offset) != CENTRAL_DIRECTORY_SIGNATURE) {
+        return false;
+      }
+      int method = getMethod(offset);
+      if ((getFlags(offset) & FLAG_ENCRYPTED) != 0
+          || (method != METHOD_STORED && method != METHOD_DEFLATED)
+          || getUncompressedSize(offset) < 0
+          || getCompressedSize(offset) < 0) {
+        return false;
+      }
+      offset = nextEntry(offset);
+    }
+    return true;
+  }
+
+  private int getFlags(int entry) {
+    return Short.toUnsignedInt(buffer.getShort(entry + 8));
+  }
+
+  private int getMethod(int entry) {
+    return Short.toUnsignedInt(buffer.getShort(entry + 10));
+  }
+
+  private int getCompressedSize(int entry) {
+    return buffer.getInt(entry + 20);
+  }
+
+  private int getUncompressedSize(int entry) {
+    return buffer.getInt(entry + 24);
+  }
+
+  private int getNameLength(int entry) {
+    return Short.toUnsignedInt(buffer.getShort(entry + 28));
+  }
+
+  private int nextEntry(int entry) {
+    return entry
+        + CENTRAL_DIRECTORY_HEADER_SIZE
+        + getNameLength(entry)
+        + Short.toUnsignedInt(buffer.getShort(entry + 30))
+        + Short.toUnsignedInt(buffer.getShort(entry + 32));
+  }
+
+  private String getName(int entry) {
+    byte[] name = new byte[getNameLength(entry)];
+    ByteBuffer view = buffer.duplicate();
+    view.position(entry + CENTRAL_DIRECTORY_HEADER_SIZE);
+    view.get(name);
+    return new String(name, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Visit the name and the entry handle of all entries in the archive. The handle can be passed to
+   * {@link #read} to obtain the entry content.
+   */
+  public void forEachEntry(ObjIntConsumer<String> consumer) {
+    int offset = centralDirectoryOffset;
+    for (int i = 0; i < entryCount; i++) {
+      consumer.accept(getName(offset), offset);
+      offset = nextEntry(offset);
+    }
+  }
+
+  /** Read the uncompressed content of the entry with handle {@param entry}. */
+  public byte[] read(int entry) throws IOException {
+    int localHeader = buffer.getInt(entry + 42);
+    if (localHeader < 0
+        || localHeader + LOCAL_HEADER_SIZE > buffer.limit()
+        || buffer.getInt(localHeader) != LOCAL_HEADER_SIGNATURE) {
+      throw new IOException("Invalid local header for zip entry '" + getName(entry) + "'");
+    }
+    int dataOffset =
+        localHeader
+            + LOCAL_HEADER_SIZE
+            + Short.toUnsignedInt(buffer.getShort(localHeader + 26))
+            + Short.toUnsignedInt(buffer.getShort(localHeader + 28));
+    int compressedSize = getCompressedSize(entry);
+    int uncompressedSize = getUncompressedSize(entry);
+    if (dataOffset + compressedSize > buffer.limit()) {
+      throw new IOException("Truncated zip entry '" + getName(entry) + "'");
+    }
+    ByteBuffer view = buffer.duplicate();
+    view.position(dataOffset);
+    byte[] content = new byte[uncompressedSize];
+    if (getMethod(entry) == METHOD_STORED) {
+      view.get(content);
+      return content;
+    }
+    byte[] compressed = new byte[compressedSize];
+    view.get(compressed);
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressed);
+      int read = 0;
+      while (read < uncompressedSize) {
+        int count = inflater.inflate(content, read, uncompressedSize - read);
+        if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+          break;
+        }
+        read += count;
+      }
+      if (read != uncompressedSize) {
+        throw new IOException("Invalid compressed data for zip entry '" + getName(entry) + "'");
+      }
+      return content;
+    } catch (DataFormatException e) {
+      throw new IOException("Invalid compressed data for zip entry '" + getName(entry) + "'", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
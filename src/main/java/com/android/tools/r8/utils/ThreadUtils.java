@@ -36,10 +36,13 @@ public class ThreadUtils {
     }
   }
 
-  static ExecutorService getExecutorServiceForProcessors(int processors) {
+  static int getNumberOfThreadsForProcessors(int processors) {
     // This heuristic is based on measurements on a 32 core (hyper-threaded) machine.
-    int threads = processors <= 2 ? processors : (int) Math.ceil(Integer.min(processors, 16) / 2.0);
-    return Executors.newWorkStealingPool(threads);
+    return processors <= 2 ? processors : (int) Math.ceil(Integer.min(processors, 16) / 2.0);
+  }
+
+  static ExecutorService getExecutorServiceForProcessors(int processors) {
+    return Executors.newWorkStealingPool(getNumberOfThreadsForProcessors(processors));
   }
 
   public static ExecutorService getExecutorService(int threads) {
@@ -52,4 +55,11 @@ public class ThreadUtils {
   public static ExecutorService getExecutorService(InternalOptions options) {
     return getExecutorService(options.numberOfThreads);
   }
+
+  /** The number of threads of the executor service returned for {@param options}. */
+  public static int getNumberOfThreads(InternalOptions options) {
+    return options.numberOfThreads == NOT_SPECIFIED
+        ? getNumberOfThreadsForProcessors(Runtime.getRuntime().availableProcessors())
+        : options.numberOfThreads;
+  }
 }
@@ -12,20 +12,40 @@ package com.android.tools.r8.utils;
 //     t.scope("My task", () -> { ... });
 // Finally a report is printed by:
 //     t.report();
+//
+// The thread that creates the timing owns the timing tree. When begin and end are called on any
+// other thread, e.g., in a task on an executor, the thread records its own subtree, which is
+// attached to the node that is current on the owning thread. The report merges the subtrees of all
+// threads by title and prints for each merged node the wall time from the first start to the last
+// end, the total time of all threads, and the resulting parallelism. The CPU time of the threads is
+// only recorded and printed when requested, as reading it for each node has a cost.
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Timing {
 
+  private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+  private static final boolean cpuTimeSupported =
+      threadBean.isCurrentThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+
+  private final Thread owner = Thread.currentThread();
   private final Stack<Node> stack;
+  // The stacks of the threads other than the owner. The bottom of a non-empty stack is the root of
+  // the subtree of the thread below the node that was current on the owner when it was pushed.
+  private final ThreadLocal<Stack<Node>> workerStacks = ThreadLocal.withInitial(Stack::new);
   private final boolean trackMemory;
+  private final boolean trackCpuTime;
 
   public Timing() {
     this("<no title>");
@@ -36,23 +56,46 @@ public class Timing {
   }
 
   public Timing(String title, boolean trackMemory) {
+    this(title, trackMemory, false);
+  }
+
+  public Timing(String title, boolean trackMemory, boolean trackCpuTime) {
     this.trackMemory = trackMemory;
+    this.trackCpuTime = trackCpuTime && cpuTimeSupported;
     stack = new Stack<>();
-    stack.push(new Node("Recorded timings for " + title));
+    stack.push(new Node("Recorded timings for " + title, trackMemory));
+  }
+
+  private long currentThreadCpuTime() {
+    return trackCpuTime ? threadBean.getCurrentThreadCpuTime() : 0;
   }
 
   class Node {
     final String title;
+    final boolean trackMemory;
 
     final Map<String, Node> children = new LinkedHashMap<>();
+    // The subtrees recorded by other threads than the owner while this node was current, by thread.
+    final Map<Thread, Node> workerRoots = new ConcurrentHashMap<>();
     long duration = 0;
     long start_time;
+    long cpuTime = 0;
+    long cpuStartTime;
+    // The first start and the last end of this node, used for the wall time of merged nodes.
+    long firstStartTime;
+    long lastEndTime;
+    // Time spent by worker threads in work done in parallel during this node, see addParallelWork.
+    long parallelWork = 0;
+    int parallelThreads = 0;
     List<String> startMemory;
     List<String> endMemory;
 
-    Node(String title) {
+    Node(String title, boolean trackMemory) {
       this.title = title;
+      this.trackMemory = trackMemory;
       this.start_time = System.nanoTime();
+      this.cpuStartTime = currentThreadCpuTime();
+      this.firstStartTime = start_time;
       if (trackMemory) {
         startMemory = computeMemoryInformation();
       }
@@ -61,13 +104,16 @@ public class Timing {
     void restart() {
       assert start_time == -1;
       start_time = System.nanoTime();
+      cpuStartTime = currentThreadCpuTime();
       if (trackMemory) {
         startMemory = computeMemoryInformation();
       }
     }
 
     void end() {
-      duration += System.nanoTime() - start_time;
+      lastEndTime = System.nanoTime();
+      duration += lastEndTime - start_time;
+      cpuTime += currentThreadCpuTime() - cpuStartTime;
       start_time = -1;
       assert duration() >= 0;
       if (trackMemory) {
@@ -82,7 +128,12 @@ public class Timing {
 
     @Override
     public String toString() {
-      return title + ": " + (duration() / 1000000) + "ms.";
+      String result = title + ": " + (duration() / 1000000) + "ms.";
+      if (parallelThreads > 0 && duration() > 0) {
+        long utilization = parallelWork * 100 / (duration() * parallelThreads);
+        result += " [" + utilization + "% utilization of " + parallelThreads + " threads]";
+      }
+      return result;
     }
 
     public String toString(Node top) {
@@ -106,6 +157,12 @@ public class Timing {
         System.out.println();
       }
       children.values().forEach(p -> p.report(depth + 1, top));
+      if (!workerRoots.isEmpty()) {
+        MergedNode merged = new MergedNode(null);
+        workerRoots.forEach(
+            (thread, root) -> root.children.values().forEach(child -> merged.add(thread, child)));
+        merged.children.values().forEach(p -> p.report(depth + 1));
+      }
       if (trackMemory) {
         printMemoryEnd(depth);
         System.out.println();
@@ -138,23 +195,113 @@ public class Timing {
     }
   }
 
+  /** The nodes of the same title recorded by one or more threads other than the owner. */
+  private class MergedNode {
+    final String title;
+    final Map<String, MergedNode> children = new LinkedHashMap<>();
+    final Set<Thread> threads = new HashSet<>();
+    long duration = 0;
+    long cpuTime = 0;
+    long firstStartTime = Long.MAX_VALUE;
+    long lastEndTime = Long.MIN_VALUE;
+
+    MergedNode(String title) {
+      this.title = title;
+    }
+
+    void add(Thread thread, Node node) {
+      MergedNode merged = children.computeIfAbsent(node.title, MergedNode::new);
+      merged.threads.add(thread);
+      merged.duration += node.duration;
+      merged.cpuTime += node.cpuTime;
+      merged.firstStartTime = Math.min(merged.firstStartTime, node.firstStartTime);
+      merged.lastEndTime = Math.max(merged.lastEndTime, node.lastEndTime);
+      node.children.values().forEach(child -> merged.add(thread, child));
+    }
+
+    long wallTime() {
+      return Math.max(0, lastEndTime - firstStartTime);
+    }
+
+    @Override
+    public String toString() {
+      String result =
+          title
+              + " [parallel]: "
+              + (wallTime() / 1000000)
+              + "ms wall, "
+              + (duration / 1000000)
+              + "ms total";
+      if (trackCpuTime) {
+        result += ", " + (cpuTime / 1000000) + "ms CPU";
+      }
+      result += " on " + threads.size() + (threads.size() == 1 ? " thread" : " threads");
+      if (wallTime() > 0) {
+        result += String.format(", parallelism %.1f", (double) duration / wallTime());
+      }
+      return result + ".";
+    }
+
+    void report(int depth) {
+      for (int i = 0; i < depth; i++) {
+        System.out.print("  ");
+      }
+      System.out.print("- ");
+      System.out.println(this);
+      System.out.println();
+      children.values().forEach(p -> p.report(depth + 1));
+    }
+  }
+
+  private Stack<Node> currentStack() {
+    return Thread.currentThread() == owner ? stack : workerStacks.get();
+  }
 
   public void begin(String title) {
-    Node parent = stack.peek();
+    Stack<Node> current = currentStack();
+    if (current.isEmpty()) {
+      // The first node on a thread other than the owner. Attach the subtree of the thread to the
+      // node that is current on the owner, which is waiting for the work of this thread.
+      Node root =
+          stack
+              .peek()
+              .workerRoots
+              .computeIfAbsent(
+                  Thread.currentThread(), thread -> new Node(thread.getName(), false));
+      current.push(root);
+    }
+    Node parent = current.peek();
     Node child;
     if (parent.children.containsKey(title)) {
       child = parent.children.get(title);
       child.restart();
     } else {
-      child = new Node(title);
+      // Only the owner tracks memory, which requires a garbage collection at the end of each node.
+      child = new Node(title, trackMemory && current == stack);
       parent.children.put(title, child);
     }
-    stack.push(child);
+    current.push(child);
   }
 
   public void end() {
-    stack.peek().end();  // record time.
-    stack.pop();
+    Stack<Node> current = currentStack();
+    current.peek().end();  // record time.
+    current.pop();
+    if (current != stack && current.size() == 1) {
+      // Drop the root of the subtree, such that the next node on this thread is attached to the
+      // node that is then current on the owner.
+      current.pop();
+    }
+  }
+
+  /**
+   * Record that {@param threads} threads together spent {@param workNanos} working on the task of
+   * the current node. The report then includes the utilization of the threads during the task.
+   */
+  public void addParallelWork(long workNanos, int threads) {
+    Node current = stack.peek();
+    current.parallelWork += workNanos;
+    current.parallelThreads = Math.max(current.parallelThreads, threads);
   }
 
   public void report() {
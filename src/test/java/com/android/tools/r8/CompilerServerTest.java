@@ -0,0 +1,105 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.CompilerServer.SharedLibraryProvider;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import org.junit.Test;
+
+public class CompilerServerTest extends TestBase {
+
+  static class TestClass {
+
+    public static void main(String[] args) {
+      System.out.println("Hello world!");
+    }
+  }
+
+  private static String d8Request(Path output) {
+    return String.join(
+        "\t",
+        "d8",
+        ToolHelper.getClassFileForTestClass(TestClass.class).toString(),
+        "--output",
+        output.toString(),
+        "--lib",
+        ToolHelper.getDefaultAndroidJar().toString());
+  }
+
+  private static String[] serve(CompilerServer server, String... lines) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream output = new PrintStream(bytes);
+    server.serve(new BufferedReader(new StringReader(StringUtils.lines(lines))), output);
+    output.flush();
+    String responses = bytes.toString();
+    return responses.isEmpty() ? new String[0] : responses.split("\n");
+  }
+
+  private static void assertStatus(int expected, String response) {
+    String[] parts = response.split("\t");
+    assertEquals(2, parts.length);
+    assertEquals(expected, Integer.parseInt(parts[0]));
+    assertTrue(Long.parseLong(parts[1]) >= 0);
+  }
+
+  @Test
+  public void testServe() throws Exception {
+    Path first = temp.newFolder().toPath();
+    Path second = temp.newFolder().toPath();
+    Path afterExit = temp.newFolder().toPath();
+    ExecutorService executor = ThreadUtils.getExecutorService(2);
+    CompilerServer server = new CompilerServer(executor);
+    try {
+      String[] responses =
+          serve(
+              server,
+              d8Request(first),
+              "",
+              "unknown-tool",
+              d8Request(second),
+              "exit",
+              d8Request(afterExit));
+      // Empty lines are skipped and no requests are read after 'exit'.
+      assertEquals(3, responses.length);
+      assertStatus(CompilerServer.STATUS_OK, responses[0]);
+      assertStatus(CompilerServer.STATUS_ERROR, responses[1]);
+      assertStatus(CompilerServer.STATUS_OK, responses[2]);
+      assertTrue(Files.exists(first.resolve("classes.dex")));
+      assertTrue(Files.exists(second.resolve("classes.dex")));
+      assertFalse(Files.exists(afterExit.resolve("classes.dex")));
+
+      // Both requests were served from a single provider for the library archive.
+      Map<Path, SharedLibraryProvider> libraries = server.getSharedLibraries();
+      assertEquals(1, libraries.size());
+      SharedLibraryProvider library = libraries.values().iterator().next();
+      assertFalse(library.isClosed());
+
+      // The provider is kept across calls to serve.
+      responses = serve(server, d8Request(afterExit));
+      assertEquals(1, responses.length);
+      assertStatus(CompilerServer.STATUS_OK, responses[0]);
+      assertSame(library, server.getSharedLibraries().values().iterator().next());
+
+      server.shutdown();
+      assertTrue(library.isClosed());
+      assertTrue(server.getSharedLibraries().isEmpty());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,116 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.d8;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexFilePerClassFileConsumer;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsChecker;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.errors.DexingCacheDiagnostic;
+import com.android.tools.r8.origin.Origin;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class DexingCacheTest extends TestBase {
+
+  static class A {
+    public static void main(String[] args) {
+      Runnable r = () -> System.out.println("A");
+      r.run();
+    }
+  }
+
+  static class B {
+    public static void main(String[] args) {
+      System.out.println("B");
+    }
+  }
+
+  private static class CollectingConsumer implements DexFilePerClassFileConsumer {
+    private final Map<String, byte[]> outputs = new TreeMap<>();
+
+    @Override
+    public synchronized void accept(
+        String primaryClassDescriptor,
+        ByteDataView data,
+        Set<String> descriptors,
+        DiagnosticsHandler handler) {
+      outputs.put(primaryClassDescriptor, data.copyByteData());
+    }
+
+    @Override
+    public void finished(DiagnosticsHandler handler) {}
+  }
+
+  private DexingCacheDiagnostic compile(
+      Path cache, CollectingConsumer consumer, Class<?>... classes)
+      throws CompilationFailedException, IOException {
+    DiagnosticsChecker handler = new DiagnosticsChecker();
+    D8Command.Builder builder =
+        D8Command.builder(handler)
+            .setProgramConsumer(consumer)
+            .setDexingCacheDirectory(cache)
+            .addLibraryFiles(ToolHelper.getDefaultAndroidJar());
+    for (Class<?> clazz : classes) {
+      builder.addClassProgramData(ToolHelper.getClassAsBytes(clazz), Origin.unknown());
+    }
+    D8.run(builder.build());
+    assertTrue(handler.errors.isEmpty());
+    assertTrue(handler.warnings.isEmpty());
+    DexingCacheDiagnostic diagnostic = null;
+    for (Object info : handler.infos) {
+      if (info instanceof DexingCacheDiagnostic) {
+        diagnostic = (DexingCacheDiagnostic) info;
+      }
+    }
+    assertTrue(diagnostic != null);
+    return diagnostic;
+  }
+
+  @Test
+  public void testCacheHits() throws Exception {
+    Path cache = temp.newFolder().toPath();
+
+    CollectingConsumer first = new CollectingConsumer();
+    DexingCacheDiagnostic firstDiagnostic = compile(cache, first, A.class, B.class);
+    assertEquals(0, firstDiagnostic.getHitCount());
+    assertEquals(2, firstDiagnostic.getMissCount());
+
+    CollectingConsumer second = new CollectingConsumer();
+    DexingCacheDiagnostic secondDiagnostic = compile(cache, second, A.class, B.class);
+    assertEquals(2, secondDiagnostic.getHitCount());
+    assertEquals(0, secondDiagnostic.getMissCount());
+
+    assertEquals(first.outputs.keySet(), second.outputs.keySet());
+    for (String descriptor : first.outputs.keySet()) {
+      assertArrayEquals(first.outputs.get(descriptor), second.outputs.get(descriptor));
+    }
+  }
+
+  @Test(expected = CompilationFailedException.class)
+  public void testRequiresFilePerClass() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    DiagnosticsChecker.checkErrorsContains(
+        "--dexing-cache requires --file-per-class",
+        handler ->
+            D8Command.builder(handler)
+                .setProgramConsumer(DexIndexedConsumer.emptyConsumer())
+                .setDexingCacheDirectory(cache)
+                .build());
+  }
+}
@@ -0,0 +1,167 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexFilePerClassFileConsumer;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class BoundedDexWritingTest extends TestBase {
+
+  static class A {}
+
+  static class B {}
+
+  static class C {}
+
+  static class D {}
+
+  static class E {}
+
+  private static class TrackingConsumer implements DexFilePerClassFileConsumer {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final List<String> descriptors = new ArrayList<>();
+
+    @Override
+    public void accept(
+        String primaryClassDescriptor,
+        ByteDataView data,
+        Set<String> descriptors,
+        DiagnosticsHandler handler) {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      synchronized (this) {
+        this.descriptors.add(primaryClassDescriptor);
+      }
+      inFlight.decrementAndGet();
+    }
+
+    @Override
+    public void finished(DiagnosticsHandler handler) {}
+  }
+
+  @Test
+  public void testSingleFileInFlight() throws Exception {
+    TrackingConsumer consumer = new TrackingConsumer();
+    D8Command.Builder builder =
+        D8Command.builder()
+            .setProgramConsumer(consumer)
+            .addLibraryFiles(ToolHelper.getDefaultAndroidJar());
+    Class<?>[] classes = {A.class, B.class, C.class, D.class, E.class};
+    for (Class<?> clazz : classes) {
+      builder.addClassProgramData(ToolHelper.getClassAsBytes(clazz), Origin.unknown());
+    }
+    ToolHelper.runD8(
+        builder,
+        options -> {
+          options.numberOfThreads = 4;
+          options.maxDexFilesInFlight = 1;
+        });
+    assertEquals(classes.length, consumer.descriptors.size());
+    assertEquals(1, consumer.maxInFlight.get());
+  }
+
+  // Takes a while to accept each file, and records the files that had been accepted when each file
+  // was passed to the consumer.
+  private static class SlowConsumer extends DexIndexedConsumer.ForwardingConsumer {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final Set<Integer> accepted = new HashSet<>();
+    private final Map<Integer, Set<Integer>> acceptedBefore = new HashMap<>();
+
+    SlowConsumer() {
+      super(null);
+    }
+
+    @Override
+    public void accept(
+        int fileIndex, ByteDataView data, Set<String> descriptors, DiagnosticsHandler handler) {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      synchronized (this) {
+        acceptedBefore.put(fileIndex, new HashSet<>(accepted));
+      }
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      synchronized (this) {
+        accepted.add(fileIndex);
+      }
+      inFlight.decrementAndGet();
+    }
+  }
+
+  // Two of these classes do not fit in a single dex file, so each class is written to its own file.
+  private static byte[] classWithManyMethods(String name) {
+    ClassWriter writer = new ClassWriter(0);
+    writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+    for (int i = 0; i < 33000; i++) {
+      MethodVisitor method =
+          writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "m" + i, "()V", null, null);
+      method.visitCode();
+      method.visitInsn(Opcodes.RETURN);
+      method.visitMaxs(0, 0);
+      method.visitEnd();
+    }
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  @Test
+  public void testWindowWithSlowConsumer() throws Exception {
+    int files = 6;
+    int window = 2;
+    SlowConsumer consumer = new SlowConsumer();
+    D8Command.Builder builder =
+        D8Command.builder()
+            .setProgramConsumer(consumer)
+            .setMinApiLevel(AndroidApiLevel.L.getLevel())
+            .addLibraryFiles(ToolHelper.getDefaultAndroidJar());
+    for (int i = 0; i < files; i++) {
+      builder.addClassProgramData(classWithManyMethods("Large" + i), Origin.unknown());
+    }
+    ToolHelper.runD8(
+        builder,
+        options -> {
+          options.numberOfThreads = 4;
+          options.maxDexFilesInFlight = window;
+        });
+    assertEquals(files, consumer.accepted.size());
+    // More threads than the window are available, but the files waiting to be accepted are
+    // bounded by the window.
+    assertTrue(consumer.maxInFlight.get() <= window);
+    // The files are started in index order, and a file is only started once the files more than
+    // a window before it have been accepted.
+    List<Integer> indices = new ArrayList<>(consumer.accepted);
+    Collections.sort(indices);
+    for (int i = 0; i < indices.size(); i++) {
+      Set<Integer> acceptedBefore = consumer.acceptedBefore.get(indices.get(i));
+      for (int j = 0; j <= i - window; j++) {
+        assertTrue(acceptedBefore.contains(indices.get(j)));
+      }
+    }
+  }
+}
@@ -4,10 +4,18 @@
 
 package com.android.tools.r8.dex;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import com.android.tools.r8.graph.DexItemFactory;
 import com.android.tools.r8.graph.DexString;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.junit.Test;
 
 public class DexStringTest {
@@ -84,8 +92,8 @@ public class DexStringTest {
 
   private void checkEncodedLength(DexString s, int encodedLength) {
     // The terminating zero is not part of the encoding,
-    int length = s.content.length;
-    assertEquals(0, s.content[length - 1]);
+    int length = s.contentLength();
+    assertEquals(0, s.byteAt(length - 1));
     assertEquals(encodedLength, length - 1);
   }
 
@@ -105,4 +113,64 @@ public class DexStringTest {
     assertEquals("\\ud800\\udc00", factory.createString("\ud800\udc00").toASCIIString());
     assertEquals("\\udbff\\udfff", factory.createString("\udbff\udfff").toASCIIString());
   }
+
+  @Test
+  public void testStringPool() {
+    DexItemFactory factory = new DexItemFactory();
+    DexItemFactory pooledFactory = new DexItemFactory();
+    pooledFactory.enableStringPool();
+    String[] values = {"", "\u0000", "a", "Lfoo/Bar;", "[[Lfoo/Bar;", "a\u0800a", "\ud800\udc00"};
+    for (String value : values) {
+      DexString string = factory.createString(value);
+      DexString pooled = pooledFactory.createString(value);
+      assertSame(pooled, pooledFactory.createString(value));
+      assertEquals(string, pooled);
+      assertEquals(string.hashCode(), pooled.hashCode());
+      assertEquals(value, pooled.toString());
+      assertEquals(string.contentLength(), pooled.contentLength());
+      assertEquals(DexString.encodeToMutf8(value).length, pooled.contentLength());
+      assertArrayEquals(string.copyContent(0), pooled.copyContent(0));
+      assertEquals(0, string.slowCompareTo(pooled));
+      assertTrue(pooled.startsWith(string));
+      assertTrue(pooled.endsWith(string));
+    }
+    DexString array = pooledFactory.createString("[[Lfoo/Bar;");
+    assertEquals(2, array.numberOfLeadingSquareBrackets());
+    assertEquals(
+        "Lfoo/Bar;", pooledFactory.createType(array).toBaseType(pooledFactory).toString());
+  }
+
+  @Test
+  public void testConcurrentStringPool() throws Exception {
+    int threads = 8;
+    // Enough strings to fill several slabs.
+    int strings = 20000;
+    DexItemFactory factory = new DexItemFactory();
+    factory.enableStringPool();
+    ExecutorService executor = ThreadUtils.getExecutorService(threads);
+    try {
+      List<Future<DexString[]>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  DexString[] result = new DexString[strings];
+                  for (int j = 0; j < strings; j++) {
+                    result[j] = factory.createString("Lfoo/Class" + j + ";");
+                  }
+                  return result;
+                }));
+      }
+      DexString[] expected = futures.get(0).get();
+      for (Future<DexString[]> future : futures) {
+        DexString[] result = future.get();
+        for (int j = 0; j < strings; j++) {
+          assertSame(expected[j], result[j]);
+          assertEquals("Lfoo/Class" + j + ";", result[j].toString());
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
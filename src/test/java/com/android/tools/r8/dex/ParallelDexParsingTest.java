@@ -0,0 +1,99 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.graph.ClassKind;
+import com.android.tools.r8.graph.DexClass;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class ParallelDexParsingTest extends TestBase {
+
+  private static byte[] compileKotlinStdlibToDex() throws Exception {
+    List<byte[]> files = new ArrayList<>();
+    D8.run(
+        D8Command.builder()
+            .addProgramFiles(ToolHelper.getKotlinStdlibJar())
+            .addLibraryFiles(ToolHelper.getDefaultAndroidJar())
+            .setProgramConsumer(
+                new DexIndexedConsumer.ForwardingConsumer(null) {
+                  @Override
+                  public synchronized void accept(
+                      int fileIndex,
+                      ByteDataView data,
+                      Set<String> descriptors,
+                      DiagnosticsHandler handler) {
+                    files.add(data.copyByteData());
+                  }
+                })
+            .build());
+    assertEquals(1, files.size());
+    return files.get(0);
+  }
+
+  // Describes the classes, their methods and the size of their code, in the order parsed.
+  private static List<String> describe(List<DexClass> classes) {
+    List<String> result = new ArrayList<>();
+    for (DexClass clazz : classes) {
+      result.add(clazz.type.toSourceString());
+      for (DexEncodedMethod method : clazz.methods()) {
+        result.add(
+            "  "
+                + method.method.toSourceString()
+                + (method.getCode() == null
+                    ? ""
+                    : " " + method.getCode().asDexCode().instructions.length));
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testParallelParsingMatchesSequentialParsing() throws Exception {
+    byte[] dex = compileKotlinStdlibToDex();
+
+    DexParser sequentialParser =
+        new DexParser(
+            new DexReader(Origin.unknown(), dex), ClassKind.PROGRAM, new InternalOptions());
+    sequentialParser.populateIndexTables();
+    List<DexClass> sequentialClasses = new ArrayList<>();
+    sequentialParser.addClassDefsTo(sequentialClasses::add);
+
+    ExecutorService executor = ThreadUtils.getExecutorService(4);
+    List<DexClass> parallelClasses = new ArrayList<>();
+    try {
+      DexParser parallelParser =
+          new DexParser(
+              new DexReader(Origin.unknown(), dex), ClassKind.PROGRAM, new InternalOptions());
+      parallelParser.populateIndexTables(executor);
+      List<Future<?>> futures = new ArrayList<>();
+      parallelParser.addClassDefsTo(parallelClasses::add, executor, futures);
+      // The file is large enough to be split in slices.
+      assertTrue(futures.size() > 1);
+      ThreadUtils.awaitFutures(futures);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(describe(sequentialClasses), describe(parallelClasses));
+  }
+}
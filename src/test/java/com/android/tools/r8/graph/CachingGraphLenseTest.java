@@ -0,0 +1,56 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertSame;
+
+import com.android.tools.r8.ir.code.Invoke.Type;
+import org.junit.Test;
+
+public class CachingGraphLenseTest {
+
+  @Test
+  public void testLookupThroughChain() {
+    DexItemFactory factory = new DexItemFactory();
+    DexType a = factory.createType("LA;");
+    DexType b = factory.createType("LB;");
+    DexType c = factory.createType("LC;");
+    DexType aArray = factory.createType("[LA;");
+    DexProto proto = factory.createProto(factory.voidType);
+    DexMethod methodA = factory.createMethod(a, proto, "m");
+    DexMethod methodB = factory.createMethod(b, proto, "m");
+    DexMethod methodC = factory.createMethod(c, proto, "n");
+    DexField fieldA = factory.createField(a, factory.intType, "f");
+    DexField fieldC = factory.createField(c, factory.intType, "g");
+
+    GraphLense.Builder first = GraphLense.builder();
+    first.map(a, b);
+    first.move(methodA, methodB);
+    GraphLense.Builder second = GraphLense.builder();
+    second.map(b, c);
+    second.move(methodB, methodC);
+    second.move(fieldA, fieldC);
+    GraphLense lense = second.build(factory, first.build(factory));
+    GraphLense cachingLense = CachingGraphLense.create(lense);
+
+    // Look up all references twice, such that the second lookup hits the cache.
+    for (int i = 0; i < 2; i++) {
+      assertSame(c, cachingLense.lookupType(a));
+      assertSame(c, cachingLense.lookupType(b));
+      assertSame(factory.createType("[LC;"), cachingLense.lookupType(aArray));
+      assertSame(methodC, cachingLense.lookupMethod(methodA, null, Type.VIRTUAL).getMethod());
+      assertSame(Type.VIRTUAL, cachingLense.lookupMethod(methodA, null, Type.VIRTUAL).getType());
+      assertSame(fieldC, cachingLense.lookupField(fieldA));
+      assertSame(methodA, cachingLense.getOriginalMethodSignature(methodC));
+      assertSame(fieldA, cachingLense.getOriginalFieldSignature(fieldC));
+      assertSame(methodC, cachingLense.getRenamedMethodSignature(methodA));
+    }
+  }
+
+  @Test
+  public void testIdentityLenseIsNotWrapped() {
+    GraphLense identity = GraphLense.getIdentityLense();
+    assertSame(identity, CachingGraphLense.create(identity));
+  }
+}
@@ -0,0 +1,74 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class DexItemFactoryInterningTest {
+
+  private static final int THREADS = 8;
+  private static final int ITEMS = 5000;
+
+  private static DexMethod[] createMethods(DexItemFactory factory) {
+    DexMethod[] result = new DexMethod[ITEMS];
+    for (int i = 0; i < ITEMS; i++) {
+      DexType holder = factory.createType("Lfoo/Class" + (i % 100) + ";");
+      DexProto proto = factory.createProto(factory.voidType, holder, factory.intType);
+      result[i] = factory.createMethod(holder, proto, "method" + i);
+    }
+    return result;
+  }
+
+  @Test
+  public void testConcurrentInterning() throws Exception {
+    DexItemFactory factory = new DexItemFactory();
+    ExecutorService executor = ThreadUtils.getExecutorService(THREADS);
+    try {
+      List<Future<DexMethod[]>> futures = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        futures.add(executor.submit(() -> createMethods(factory)));
+      }
+      DexMethod[] expected = futures.get(0).get();
+      for (Future<DexMethod[]> future : futures) {
+        DexMethod[] methods = future.get();
+        for (int i = 0; i < ITEMS; i++) {
+          assertSame(expected[i], methods[i]);
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testLookupWithoutCreation() {
+    DexItemFactory factory = new DexItemFactory();
+    DexString descriptor = factory.createString("Lfoo/NotCreated;");
+    assertNull(factory.lookupType(descriptor));
+    DexType type = factory.createType(descriptor);
+    assertSame(type, factory.lookupType(descriptor));
+  }
+
+  @Test
+  public void testProtoWithShorty() {
+    DexItemFactory factory = new DexItemFactory();
+    DexProto proto = factory.createProto(factory.intType, factory.longType, factory.objectType);
+    assertEquals("IJL", proto.shorty.toString());
+    DexProto fromDex =
+        factory.createProto(
+            factory.intType,
+            factory.createString("IJL"),
+            new DexTypeList(new DexType[] {factory.longType, factory.objectType}));
+    assertSame(proto, fromDex);
+  }
+}
@@ -5,7 +5,9 @@ package com.android.tools.r8.graph;
 
 import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import com.android.tools.r8.ToolHelper;
 import com.android.tools.r8.dex.ApplicationReader;
@@ -158,4 +160,49 @@ public class DexTypeTest {
     assertThat(interfaces, not(hasItems(functionBase)));
   }
 
+  @Test
+  public void isSubtype_collections_java() {
+    DexType object = factory.objectType;
+    DexType serializable = factory.createType("Ljava/io/Serializable;");
+    DexType iterable = factory.createType("Ljava/lang/Iterable;");
+    DexType collection = factory.createType("Ljava/util/Collection;");
+    DexType list = factory.createType("Ljava/util/List;");
+    DexType queue = factory.createType("Ljava/util/Queue;");
+    // class AbstractCollection implements Collection
+    DexType abstractCollection = factory.createType("Ljava/util/AbstractCollection;");
+    // class AbstractList extends AbstractCollection implements List
+    DexType abstractList = factory.createType("Ljava/util/AbstractList;");
+    // class ArrayList extends AbstractList implements List, Serializable
+    DexType arrayList = factory.createType("Ljava/util/ArrayList;");
+    DexType unknown = factory.createType("Lcom/example/Unknown;");
+
+    assertTrue(appInfo.isSubtype(arrayList, arrayList));
+    assertTrue(appInfo.isSubtype(arrayList, abstractList));
+    assertTrue(appInfo.isSubtype(arrayList, abstractCollection));
+    assertTrue(appInfo.isSubtype(arrayList, object));
+    assertFalse(appInfo.isSubtype(abstractList, arrayList));
+    assertFalse(appInfo.isStrictSubtypeOf(arrayList, arrayList));
+
+    // Interfaces implemented by the class itself, by its superclasses, and by those interfaces.
+    assertTrue(appInfo.isSubtype(arrayList, serializable));
+    assertTrue(appInfo.isSubtype(abstractList, list));
+    assertTrue(appInfo.isSubtype(abstractList, collection));
+    assertTrue(appInfo.isSubtype(arrayList, iterable));
+    assertFalse(appInfo.isSubtype(abstractCollection, list));
+    assertFalse(appInfo.isSubtype(arrayList, queue));
+
+    // Interfaces only extend interfaces.
+    assertTrue(appInfo.isSubtype(list, collection));
+    assertTrue(appInfo.isSubtype(list, iterable));
+    assertTrue(appInfo.isSubtype(list, object));
+    assertFalse(appInfo.isSubtype(collection, list));
+    assertFalse(appInfo.isSubtype(list, queue));
+    assertFalse(appInfo.isSubtype(list, abstractList));
+
+    // Types outside the hierarchy are only subtypes of Object.
+    assertTrue(appInfo.isSubtype(unknown, object));
+    assertFalse(appInfo.isSubtype(unknown, iterable));
+    assertFalse(appInfo.isSubtype(arrayList, unknown));
+    assertTrue(appInfo.isStrictSubtypeOf(arrayList, unknown, true));
+  }
 }
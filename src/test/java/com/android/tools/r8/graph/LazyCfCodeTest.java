@@ -0,0 +1,146 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.jasmin.JasminBuilder;
+import com.android.tools.r8.jasmin.JasminBuilder.ClassBuilder;
+import com.android.tools.r8.jasmin.JasminBuilder.ClassFileVersion;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.Timing;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class LazyCfCodeTest {
+
+  private static final int THREADS = 8;
+  private static final int METHODS = 50;
+
+  private static DexProgramClass readClass(JasminBuilder builder) throws Exception {
+    InternalOptions options = new InternalOptions();
+    options.enableCfFrontend = true;
+    DexApplication application =
+        new ApplicationReader(builder.build(), options, new Timing(LazyCfCodeTest.class.getName()))
+            .read();
+    assertEquals(1, application.classes().size());
+    return application.classes().get(0);
+  }
+
+  private static LazyCfCode getCode(DexProgramClass clazz, String name) {
+    for (DexEncodedMethod method : clazz.directMethods()) {
+      if (method.method.name.toString().equals(name)) {
+        return method.getCode().asLazyCfCode();
+      }
+    }
+    throw new AssertionError("No method " + name);
+  }
+
+  @Test
+  public void testOnlyUsedMethodsAreParsed() throws Exception {
+    JasminBuilder builder = new JasminBuilder(ClassFileVersion.JDK_1_4);
+    ClassBuilder clazz = builder.addClass("Test");
+    clazz.addStaticMethod("first", ImmutableList.of(), "I",
+        ".limit stack 1",
+        ".limit locals 0",
+        "  ldc 1",
+        "  ireturn");
+    // Methods without code are skipped when locating the code of the following methods.
+    clazz.addMethod("public static native", "nativeMethod", ImmutableList.of(), "V");
+    clazz.addStaticMethod("withJsr", ImmutableList.of(), "I",
+        ".limit stack 3",
+        ".limit locals 3",
+        "  ldc 0",
+        "  ldc 1",
+        "  jsr LabelSub",
+        "  ldc 2",
+        "  jsr LabelSub",
+        "  ireturn",
+        "LabelSub:",
+        "  astore 1",
+        "  iadd",
+        "  ret 1");
+    clazz.addStaticMethod("last", ImmutableList.of(), "I",
+        ".limit stack 1",
+        ".limit locals 0",
+        "  ldc 3",
+        "  ireturn");
+
+    DexProgramClass programClass = readClass(builder);
+    LazyCfCode first = getCode(programClass, "first");
+    LazyCfCode withJsr = getCode(programClass, "withJsr");
+    LazyCfCode last = getCode(programClass, "last");
+
+    CfCode lastCode = last.asCfCode();
+    assertTrue(last.isParsed());
+    assertFalse(first.isParsed());
+    assertFalse(withJsr.isParsed());
+
+    // Only the method with JSR is parsed again with the JSR inliner.
+    CfCode withJsrCode = withJsr.asCfCode();
+    assertTrue(withJsr.isParsed());
+    assertFalse(first.isParsed());
+    assertSame(lastCode, last.asCfCode());
+    assertTrue(withJsrCode.getInstructions().size() > lastCode.getInstructions().size());
+
+    first.asCfCode();
+    assertTrue(first.isParsed());
+    assertSame(withJsrCode, withJsr.asCfCode());
+  }
+
+  @Test
+  public void testConcurrentParsing() throws Exception {
+    JasminBuilder builder = new JasminBuilder(ClassFileVersion.JDK_1_4);
+    ClassBuilder clazz = builder.addClass("Test");
+    for (int i = 0; i < METHODS; i++) {
+      clazz.addStaticMethod("method" + i, ImmutableList.of(), "I",
+          ".limit stack 1",
+          ".limit locals 0",
+          "  ldc " + i,
+          "  ireturn");
+    }
+
+    DexProgramClass programClass = readClass(builder);
+    List<LazyCfCode> codes = new ArrayList<>();
+    for (int i = 0; i < METHODS; i++) {
+      codes.add(getCode(programClass, "method" + i));
+    }
+    ExecutorService executor = ThreadUtils.getExecutorService(THREADS);
+    try {
+      List<Future<List<CfCode>>> futures = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  List<CfCode> result = new ArrayList<>();
+                  for (LazyCfCode code : codes) {
+                    result.add(code.asCfCode());
+                  }
+                  return result;
+                }));
+      }
+      List<CfCode> expected = futures.get(0).get();
+      for (Future<List<CfCode>> future : futures) {
+        List<CfCode> result = future.get();
+        for (int i = 0; i < METHODS; i++) {
+          assertSame(expected.get(i), result.get(i));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+    for (LazyCfCode code : codes) {
+      assertTrue(code.isParsed());
+    }
+  }
+}
@@ -0,0 +1,47 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.CompilationMode;
+import com.android.tools.r8.utils.AndroidApp;
+import org.junit.Test;
+
+public class R8GMSCoreV10ParallelEnqueuerTracingTest
+    extends R8GMSCoreTreeShakeJarVerificationTest {
+
+  private String proguardMapSerial = null;
+  private String proguardMapParallel = null;
+
+  @Test
+  public void buildAndTreeShakeFromDeployJar() throws Exception {
+    AndroidApp serial =
+        buildAndTreeShakeFromDeployJar(
+            CompilationMode.RELEASE,
+            GMSCORE_V10_DIR,
+            false,
+            GMSCORE_V10_MAX_SIZE,
+            options -> {
+              options.enableParallelEnqueuerTracing = false;
+              options.proguardMapConsumer =
+                  (proguardMap, handler) -> this.proguardMapSerial = proguardMap;
+            });
+    AndroidApp parallel =
+        buildAndTreeShakeFromDeployJar(
+            CompilationMode.RELEASE,
+            GMSCORE_V10_DIR,
+            false,
+            GMSCORE_V10_MAX_SIZE,
+            options -> {
+              options.enableParallelEnqueuerTracing = true;
+              options.proguardMapConsumer =
+                  (proguardMap, handler) -> this.proguardMapParallel = proguardMap;
+            });
+
+    // Verify that scanning the code concurrently does not change the result of tree shaking.
+    assertIdenticalApplications(serial, parallel);
+    assertEquals(proguardMapSerial, proguardMapParallel);
+  }
+}
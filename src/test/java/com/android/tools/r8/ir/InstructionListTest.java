@@ -0,0 +1,105 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.ir.code.Goto;
+import com.android.tools.r8.ir.code.Instruction;
+import com.android.tools.r8.ir.code.InstructionList;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+import org.junit.Test;
+
+public class InstructionListTest extends TestBase {
+
+  @Test
+  public void testLinkedListOperations() {
+    InstructionList list = new InstructionList();
+    Instruction a = new Goto();
+    Instruction b = new Goto();
+    Instruction c = new Goto();
+    list.addLast(b);
+    list.addFirst(a);
+    list.addLast(c);
+    assertEquals(3, list.size());
+    assertSame(a, list.getFirst());
+    assertSame(c, list.getLast());
+    assertSame(b, list.get(1));
+    assertEquals(1, list.indexOf(b));
+    assertSame(a, list.removeFirst());
+    assertSame(c, list.removeLast());
+    assertSame(b, list.getFirst());
+    list.clear();
+    assertEquals(0, list.size());
+  }
+
+  @Test(expected = ConcurrentModificationException.class)
+  public void testIteratorIsFailFast() {
+    InstructionList list = new InstructionList();
+    list.add(new Goto());
+    list.add(new Goto());
+    ListIterator<Instruction> iterator = list.listIterator();
+    iterator.next();
+    list.removeLast();
+    iterator.next();
+  }
+
+  @Test
+  public void testRandomEditsThroughIterators() {
+    Random random = new Random(42);
+    InstructionList list = new InstructionList();
+    List<Instruction> expected = new ArrayList<>();
+    for (int round = 0; round < 100; round++) {
+      // Walk the list from a random position, inserting, replacing and removing instructions.
+      int start = random.nextInt(list.size() + 1);
+      ListIterator<Instruction> iterator = list.listIterator(start);
+      ListIterator<Instruction> expectedIterator = expected.listIterator(start);
+      for (int step = 0; step < 50; step++) {
+        switch (random.nextInt(5)) {
+          case 0:
+            Instruction instruction = new Goto();
+            iterator.add(instruction);
+            expectedIterator.add(instruction);
+            break;
+          case 1:
+            if (iterator.hasNext()) {
+              assertSame(expectedIterator.next(), iterator.next());
+              if (random.nextBoolean()) {
+                iterator.remove();
+                expectedIterator.remove();
+              }
+            }
+            break;
+          case 2:
+            if (iterator.hasPrevious()) {
+              assertSame(expectedIterator.previous(), iterator.previous());
+              if (random.nextBoolean()) {
+                Instruction replacement = new Goto();
+                iterator.set(replacement);
+                expectedIterator.set(replacement);
+              }
+            }
+            break;
+          case 3:
+            if (!expected.isEmpty()) {
+              int index = random.nextInt(expected.size());
+              assertSame(expected.get(index), list.get(index));
+            }
+            break;
+          default:
+            assertEquals(expectedIterator.nextIndex(), iterator.nextIndex());
+            break;
+        }
+      }
+      assertEquals(expected, list);
+    }
+  }
+}
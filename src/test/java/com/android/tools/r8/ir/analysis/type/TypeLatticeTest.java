@@ -9,6 +9,7 @@ import static com.android.tools.r8.ir.analysis.type.TypeLatticeElement.TOP;
 import static com.android.tools.r8.ir.analysis.type.TypeLatticeElement.fromDexType;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import com.android.tools.r8.D8Command;
@@ -191,6 +192,22 @@ public class TypeLatticeTest extends TestBase {
             element(factory.createType(INTERRUPT))));
   }
 
+  @Test
+  public void joinIsCanonical() {
+    TypeLatticeElement notFound = element(factory.createType(NOT_FOUND));
+    TypeLatticeElement interrupt =
+        element(factory.createType(INTERRUPT), Nullability.definitelyNotNull());
+    TypeLatticeElement lub = join(notFound, interrupt);
+    assertSame(lub, join(notFound, interrupt));
+    assertSame(lub, join(interrupt, notFound));
+    // Equal elements that are created from the same type and interfaces are shared.
+    TypeLatticeElement other =
+        join(
+            element(factory.createType(NOT_FOUND), Nullability.definitelyNotNull()),
+            element(factory.createType(INTERRUPT)));
+    assertSame(lub, other);
+  }
+
   @Test
   public void joinInterfaceWithSuperInterface() {
     DexType queue = factory.createType("Ljava/util/Queue;");
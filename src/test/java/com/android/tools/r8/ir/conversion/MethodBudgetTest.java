@@ -0,0 +1,91 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.conversion;
+
+import static com.android.tools.r8.utils.codeinspector.Matchers.isPresent;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.InstructionSubject;
+import com.android.tools.r8.utils.codeinspector.MethodSubject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class MethodBudgetTest extends TestBase {
+
+  private static final String EXPECTED = StringUtils.lines("Hello world!");
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withAllRuntimes().build();
+  }
+
+  private final TestParameters parameters;
+
+  public MethodBudgetTest(TestParameters parameters) {
+    this.parameters = parameters;
+  }
+
+  @Test
+  public void testWithinBudget() throws Exception {
+    testForR8(parameters.getBackend())
+        .addInnerClasses(MethodBudgetTest.class)
+        .addKeepMainRule(TestClass.class)
+        .setMinApi(parameters.getRuntime())
+        .compile()
+        .inspect(inspector -> assertEquals(0, countInvokesOfGreet(inspector)))
+        .run(parameters.getRuntime(), TestClass.class)
+        .assertSuccessWithOutput(EXPECTED);
+  }
+
+  @Test
+  public void testOverInstructionLimit() throws Exception {
+    testForR8(parameters.getBackend())
+        .addInnerClasses(MethodBudgetTest.class)
+        .addKeepMainRule(TestClass.class)
+        .addOptionsModification(options -> options.methodBudget.instructionLimit = 0)
+        .setMinApi(parameters.getRuntime())
+        .compile()
+        .assertInfoMessageThatMatches(
+            containsString("void " + TestClass.class.getTypeName() + ".main(java.lang.String[])"))
+        .assertInfoMessageThatMatches(containsString("exceeds the limit of 0"))
+        .inspect(inspector -> assertEquals(1, countInvokesOfGreet(inspector)))
+        .run(parameters.getRuntime(), TestClass.class)
+        .assertSuccessWithOutput(EXPECTED);
+  }
+
+  private static long countInvokesOfGreet(CodeInspector inspector) {
+    ClassSubject classSubject = inspector.clazz(TestClass.class);
+    assertThat(classSubject, isPresent());
+    MethodSubject mainMethod = classSubject.mainMethod();
+    assertThat(mainMethod, isPresent());
+    // Without the budget greet() is inlined into main(). With an instruction limit of 0, main() is
+    // degraded and greet() is not inlined.
+    return mainMethod
+        .streamInstructions()
+        .filter(InstructionSubject::isInvoke)
+        .filter(instruction -> instruction.getMethod().name.toString().equals("greet"))
+        .count();
+  }
+
+  static class TestClass {
+
+    public static void main(String[] args) {
+      greet();
+    }
+
+    static void greet() {
+      System.out.println("Hello world!");
+    }
+  }
+}
@@ -0,0 +1,73 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.conversion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.utils.StringUtils;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+
+public class MethodProcessingProfilerTest extends TestBase {
+
+  @Test
+  public void test() throws Exception {
+    Path profileDirectory = temp.newFolder().toPath();
+    testForD8()
+        .addInnerClasses(MethodProcessingProfilerTest.class)
+        .release()
+        .addOptionsModification(
+            options -> {
+              options.methodProfileDirectory = profileDirectory.toString();
+              options.methodProfileTopN = 1;
+            })
+        .run(TestClass.class)
+        .assertSuccessWithOutput(StringUtils.lines("Hello world!"));
+
+    JsonObject report = parse(profileDirectory.resolve(MethodProcessingProfiler.REPORT_FILE_NAME));
+    JsonArray passes = report.getAsJsonArray("passes");
+    assertTrue(contains(passes, "IR building"));
+    assertTrue(contains(passes, "Register allocation"));
+    assertTrue(contains(passes, "DexBuilder"));
+    // Only the most expensive method is listed.
+    assertEquals(1, report.getAsJsonArray("methods").size());
+
+    JsonObject trace =
+        parse(profileDirectory.resolve(MethodProcessingProfiler.TRACE_FILE_NAME));
+    JsonArray traceEvents = trace.getAsJsonArray("traceEvents");
+    assertTrue(traceEvents.size() > 0);
+    for (int i = 0; i < traceEvents.size(); i++) {
+      assertEquals("X", traceEvents.get(i).getAsJsonObject().get("ph").getAsString());
+    }
+  }
+
+  private static JsonObject parse(Path file) throws Exception {
+    return new JsonParser()
+        .parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+        .getAsJsonObject();
+  }
+
+  private static boolean contains(JsonArray summaries, String name) {
+    for (int i = 0; i < summaries.size(); i++) {
+      if (summaries.get(i).getAsJsonObject().get("name").getAsString().equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static class TestClass {
+
+    public static void main(String[] args) {
+      System.out.println("Hello world!");
+    }
+  }
+}
@@ -0,0 +1,93 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ChunkedStringConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.StringConsumer.FileConsumer;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.StringUtils;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class ProguardMapChunkedConsumerTest extends TestBase {
+
+  private final TestParameters parameters;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withAllRuntimes().build();
+  }
+
+  public ProguardMapChunkedConsumerTest(TestParameters parameters) {
+    this.parameters = parameters;
+  }
+
+  private static class CollectingConsumer implements ChunkedStringConsumer {
+
+    private final StringBuilder content = new StringBuilder();
+    private int finished = 0;
+
+    @Override
+    public void acceptChunk(String chunk, DiagnosticsHandler handler) {
+      assertEquals(0, finished);
+      content.append(chunk);
+    }
+
+    @Override
+    public void finished(DiagnosticsHandler handler) {
+      finished++;
+    }
+  }
+
+  @Test
+  public void test() throws Exception {
+    Path mapFile = temp.newFolder().toPath().resolve("mapping.txt");
+    CollectingConsumer collectingConsumer = new CollectingConsumer();
+    testForR8(parameters.getBackend())
+        .addInnerClasses(ProguardMapChunkedConsumerTest.class)
+        .addKeepMainRule(TestClass.class)
+        .enableInliningAnnotations()
+        .setMinApi(parameters.getRuntime())
+        .addOptionsModification(
+            options -> options.proguardMapConsumer = new FileConsumer(mapFile, collectingConsumer))
+        .run(parameters.getRuntime(), TestClass.class)
+        .assertSuccessWithOutput(StringUtils.lines("Hello world!"));
+
+    assertEquals(1, collectingConsumer.finished);
+    String map = collectingConsumer.content.toString();
+    assertEquals(map, new String(Files.readAllBytes(mapFile), StandardCharsets.UTF_8));
+    assertTrue(map.startsWith("# " + ProguardMapSupplier.MARKER_KEY_COMPILER + ": "));
+    assertThat(map, containsString("# " + ProguardMapSupplier.MARKER_KEY_PG_MAP_ID + ": "));
+    assertThat(map, containsString(Greeter.class.getTypeName() + " -> "));
+  }
+
+  static class Greeter {
+
+    @NeverInline
+    static void greet() {
+      System.out.println("Hello world!");
+    }
+  }
+
+  static class TestClass {
+
+    public static void main(String[] args) {
+      Greeter.greet();
+    }
+  }
+}
@@ -196,4 +196,35 @@ public class ProguardMapReaderTest extends TestBase {
       Assert.assertEquals(s, result);
     }
   }
+
+  @Test
+  public void indexedMapTest() throws IOException {
+    Path mapPath = temp.newFile("mapping.txt").toPath();
+    Files.write(
+        mapPath,
+        StringUtils.lines(
+                "# compiler: R8",
+                EXAMPLE_MAP_WITH_PACKAGE_INFO.trim(),
+                "a.b.C -> d.e.F:",
+                "    int f -> a",
+                "    1:1:void a(int):11:11 -> b",
+                "",
+                "g.h.I->j.k.L:",
+                "    void m() -> c")
+            .getBytes());
+    Path indexPath = mapPath.resolveSibling("mapping.txt.index");
+    ClassNameMapper expected = ClassNameMapper.mapperFromFile(mapPath);
+    ClassNameMapper indexed = ClassNameMapper.mapperFromFileWithIndex(mapPath, indexPath);
+    assertTrue(Files.exists(indexPath));
+    assertEquals("a.b.C", indexed.deobfuscateClassName("d.e.F"));
+    assertEquals("g.h.I", indexed.deobfuscateClassName("j.k.L"));
+    assertEquals("x.y.Z", indexed.deobfuscateClassName("x.y.Z"));
+    assertEquals(
+        expected.getClassNaming("d.e.F").toString(), indexed.getClassNaming("d.e.F").toString());
+    assertEquals(expected, indexed);
+    assertEquals(expected.toString(), indexed.toString());
+    // The second mapper uses the saved index.
+    ClassNameMapper reindexed = ClassNameMapper.mapperFromFileWithIndex(mapPath, indexPath);
+    assertEquals(expected, reindexed);
+  }
 }
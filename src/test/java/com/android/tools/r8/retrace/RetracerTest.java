@@ -0,0 +1,114 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.retrace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.retrace.Retracer.RetracedFrame;
+import com.android.tools.r8.retrace.Retracer.StackFrame;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import org.junit.Test;
+
+public class RetracerTest {
+
+  private static final String MAP =
+      StringUtils.lines(
+          "com.example.Main -> a:",
+          "    void foo() -> b",
+          "    void bar(int) -> b",
+          "    1:3:void main(java.lang.String[]):5:7 -> main",
+          "    4:4:void com.example.Util.helper():42:42 -> main",
+          "    4:4:void main(java.lang.String[]):8 -> main");
+
+  private static Retracer retracer() throws Exception {
+    return new Retracer(ClassNameMapper.mapperFromString(MAP));
+  }
+
+  private static void assertFrame(
+      String className, String methodName, int lineNumber, RetracedFrame frame) {
+    assertEquals(className, frame.className);
+    assertEquals(methodName, frame.methodName);
+    assertEquals(lineNumber, frame.lineNumber);
+  }
+
+  @Test
+  public void testLineInRange() throws Exception {
+    List<RetracedFrame> frames = retracer().retrace(new StackFrame("a", "main", 2));
+    assertEquals(1, frames.size());
+    assertFrame("com.example.Main", "main", 6, frames.get(0));
+    assertFalse(frames.get(0).ambiguous);
+  }
+
+  @Test
+  public void testInlinedFrames() throws Exception {
+    List<RetracedFrame> frames = retracer().retrace(new StackFrame("a", "main", 4));
+    assertEquals(2, frames.size());
+    assertFrame("com.example.Util", "helper", 42, frames.get(0));
+    assertEquals("helper", frames.get(0).signature.name);
+    assertFrame("com.example.Main", "main", 8, frames.get(1));
+  }
+
+  @Test
+  public void testAmbiguousMethod() throws Exception {
+    List<RetracedFrame> frames = retracer().retrace(new StackFrame("a", "b", -1));
+    assertEquals(2, frames.size());
+    assertFrame("com.example.Main", "foo", -1, frames.get(0));
+    assertFrame("com.example.Main", "bar", -1, frames.get(1));
+    assertTrue(frames.get(0).ambiguous);
+    assertTrue(frames.get(1).ambiguous);
+  }
+
+  @Test
+  public void testLineOutsideRanges() throws Exception {
+    List<RetracedFrame> frames = retracer().retrace(new StackFrame("a", "main", 10));
+    assertEquals(1, frames.size());
+    assertFrame("com.example.Main", "main", -1, frames.get(0));
+    assertFalse(frames.get(0).ambiguous);
+  }
+
+  @Test
+  public void testUnknownClass() throws Exception {
+    List<RetracedFrame> frames = retracer().retrace(new StackFrame("x", "y", 3));
+    assertEquals(1, frames.size());
+    assertFrame("x", "y", 3, frames.get(0));
+  }
+
+  @Test
+  public void testBatch() throws Exception {
+    Retracer retracer = retracer();
+    List<StackFrame> frames = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      switch (i % 4) {
+        case 0:
+          frames.add(new StackFrame("a", "main", i % 6));
+          break;
+        case 1:
+          frames.add(new StackFrame("a", "b", -1));
+          break;
+        case 2:
+          frames.add(new StackFrame("a", "c", i));
+          break;
+        default:
+          frames.add(new StackFrame("x", "y", i));
+      }
+    }
+    ExecutorService executor = ThreadUtils.getExecutorService(4);
+    try {
+      List<List<RetracedFrame>> results = retracer.retrace(frames, executor);
+      assertEquals(frames.size(), results.size());
+      for (int i = 0; i < frames.size(); i++) {
+        assertEquals(retracer.retrace(frames.get(i)), results.get(i));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
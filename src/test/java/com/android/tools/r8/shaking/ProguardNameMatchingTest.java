@@ -3,7 +3,9 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.shaking;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import com.android.tools.r8.graph.DexItemFactory;
@@ -178,6 +180,172 @@ public class ProguardNameMatchingTest {
     assertFalse(matchMemberName("*foo<1>", "barfoobaz"));
   }
 
+  private static ProguardTypeMatcher createTypeMatcher(String pattern, ClassOrType kind) {
+    return ProguardTypeMatcher.create(
+        toIdentifierPatternWithWildCards(pattern, false), kind, dexItemFactory);
+  }
+
+  private static boolean matches(ProguardTypeMatcher matcher, String typeName) {
+    return matcher.matches(
+        dexItemFactory.createType(DescriptorUtils.javaTypeToDescriptor(typeName)));
+  }
+
+  private static List<String> captures(Iterable<ProguardWildcard> wildcards) {
+    List<String> result = new ArrayList<>();
+    for (ProguardWildcard wildcard : wildcards) {
+      result.add(wildcard.getCaptured());
+    }
+    return result;
+  }
+
+  @Test
+  public void patternLiterals() {
+    ProguardPatternLiterals literals = new ProguardPatternLiterals("com.*.Foo?<1>Bar");
+    assertEquals("com.", literals.prefix);
+    assertEquals("Bar", literals.suffix);
+    assertEquals(12, literals.minimumLength);
+    assertTrue(literals.mayMatch("com.a.FooxaBar"));
+    assertFalse(literals.mayMatch("org.a.FooxaBar"));
+    assertFalse(literals.mayMatch("com.a.FooxaBaz"));
+    assertFalse(literals.mayMatch("com.FooBar"));
+
+    literals = new ProguardPatternLiterals("Foo");
+    assertEquals("Foo", literals.prefix);
+    assertEquals("Foo", literals.suffix);
+    assertEquals(3, literals.minimumLength);
+
+    literals = new ProguardPatternLiterals("*");
+    assertEquals("", literals.prefix);
+    assertEquals("", literals.suffix);
+    assertEquals(0, literals.minimumLength);
+    assertTrue(literals.mayMatch(""));
+  }
+
+  @Test
+  public void rejectedNamesClearCaptures() {
+    ProguardTypeMatcher matcher = createTypeMatcher("com.*.Foo?<1>Bar", ClassOrType.CLASS);
+    assertTrue(matches(matcher, "com.a.FooxaBar"));
+    assertEquals(Arrays.asList("a", "x", "a"), captures(matcher.getWildcards()));
+    // Rejected by the prefix, the suffix and the minimum length of the pattern.
+    assertFalse(matches(matcher, "org.a.FooxaBar"));
+    assertEquals(Arrays.asList(null, null, null), captures(matcher.getWildcards()));
+    assertTrue(matches(matcher, "com.a.FooxaBar"));
+    assertFalse(matches(matcher, "com.a.FooxaBaz"));
+    assertEquals(Arrays.asList(null, null, null), captures(matcher.getWildcards()));
+    assertTrue(matches(matcher, "com.a.FooxaBar"));
+    assertFalse(matches(matcher, "com.FooBar"));
+    assertEquals(Arrays.asList(null, null, null), captures(matcher.getWildcards()));
+    // Not rejected by the literals of the pattern, but by the back reference.
+    assertFalse(matches(matcher, "com.a.FooxbBar"));
+    assertEquals(Arrays.asList(null, null, null), captures(matcher.getWildcards()));
+
+    // A back reference does not add to the minimum length, as the captured string can be empty.
+    assertTrue(matchMemberName("get*<1>", "get"));
+  }
+
+  @Test
+  public void backReferencesToCapturedRegions() {
+    assertTrue(matchMemberName("*_<1>", "foo_foo"));
+    assertFalse(matchMemberName("*_<1>", "foo_fo"));
+    assertFalse(matchMemberName("*_<1>", "foo_fooo"));
+    assertTrue(matchMemberName("*<1>", "abab"));
+    assertFalse(matchMemberName("*<1>", "aba"));
+    // The captured region extends beyond the end of the name.
+    assertFalse(matchMemberName("*x<1>", "abxa"));
+
+    assertTrue(matchClassName("com.foo.foo", "com.*.<1>"));
+    assertFalse(matchClassName("com.foo.Foo", "com.*.<1>"));
+    assertTrue(matchClassName("a.b.X.a.b", "**.X.<1>"));
+    assertFalse(matchClassName("a.b.X.a.c", "**.X.<1>"));
+
+    ProguardTypeMatcher matcher = createTypeMatcher("**.X.<1>", ClassOrType.CLASS);
+    assertTrue(matches(matcher, "a.b.X.a.b"));
+    assertEquals(Arrays.asList("a.b", "a.b"), captures(matcher.getWildcards()));
+
+    ProguardNameMatcher nameMatcher =
+        ProguardNameMatcher.create(toIdentifierPatternWithWildCards("g?*_<2>", true));
+    assertTrue(nameMatcher.matches("get_t"));
+    assertEquals(Arrays.asList("e", "t", "t"), captures(nameMatcher.getWildcards()));
+  }
+
+  @Test
+  public void materializeCapturedRegions() {
+    ProguardTypeMatcher matcher = createTypeMatcher("com.*.Foo<1>", ClassOrType.CLASS);
+    assertTrue(matches(matcher, "com.bar.Foobar"));
+    ProguardTypeMatcher materialized = matcher.materialize();
+    assertEquals(Arrays.asList("bar", "bar"), captures(materialized.getWildcards()));
+    // Matching another name replaces the captures of the matcher, not those of the copy.
+    assertTrue(matches(matcher, "com.baz.Foobaz"));
+    assertEquals(Arrays.asList("baz", "baz"), captures(matcher.getWildcards()));
+    assertEquals(Arrays.asList("bar", "bar"), captures(materialized.getWildcards()));
+    // Nothing is captured after a name is rejected.
+    assertFalse(matches(matcher, "com.baz.Foobar"));
+    assertEquals(
+        Arrays.asList(null, null), captures(matcher.materialize().getWildcards()));
+
+    ProguardNameMatcher nameMatcher =
+        ProguardNameMatcher.create(toIdentifierPatternWithWildCards("*_<1>", true));
+    assertTrue(nameMatcher.matches("foo_foo"));
+    ProguardNameMatcher materializedNameMatcher = nameMatcher.materialize();
+    assertTrue(nameMatcher.matches("bar_bar"));
+    assertEquals(Arrays.asList("bar", "bar"), captures(nameMatcher.getWildcards()));
+    assertEquals(
+        Arrays.asList("foo", "foo"), captures(materializedNameMatcher.getWildcards()));
+  }
+
+  @Test
+  public void matchArrayTypeNames() {
+    assertTrue(matchTypeName("java.lang.Object[]", "java.**[]"));
+    assertFalse(matchTypeName("java.lang.Object[]", "java.**"));
+    assertTrue(matchTypeName("java.lang.Object[]", "java.***"));
+    assertTrue(matchTypeName("java.lang.Object[][]", "java.***"));
+    assertFalse(matchTypeName("java.lang.Object[]", "java.lang.*"));
+    assertTrue(matchTypeName("java.lang.Object[]", "java.lang.*[]"));
+    assertFalse(matchTypeName("java.lang.Object[]", "**[][]"));
+    assertTrue(matchTypeName("java.lang.Object[][]", "**[][]"));
+
+    ProguardTypeMatcher matcher = createTypeMatcher("java.**[]", ClassOrType.TYPE);
+    assertTrue(matches(matcher, "java.lang.Object[]"));
+    assertEquals(Arrays.asList("lang.Object"), captures(matcher.getWildcards()));
+
+    matcher = createTypeMatcher("java.***", ClassOrType.TYPE);
+    assertTrue(matches(matcher, "java.lang.Object[][]"));
+    assertEquals(Arrays.asList("lang.Object[][]"), captures(matcher.getWildcards()));
+  }
+
+  private static List<String> classNamePrefixes(String... patterns) {
+    ProguardClassNameList.Builder listBuilder = ProguardClassNameList.builder();
+    for (String pattern : patterns) {
+      boolean isNegated = pattern.startsWith("!");
+      String actualPattern = isNegated ? pattern.substring(1) : pattern;
+      listBuilder.addClassName(
+          isNegated,
+          ProguardTypeMatcher.create(
+              toIdentifierPatternWithWildCards(actualPattern, false),
+              ClassOrType.CLASS,
+              dexItemFactory));
+    }
+    return listBuilder.build().getClassNamePrefixes();
+  }
+
+  @Test
+  public void classNamePrefixes() {
+    assertNull(classNamePrefixes("**"));
+    assertNull(classNamePrefixes("*"));
+    assertNull(classNamePrefixes("?oo.Bar"));
+    assertNull(classNamePrefixes("com.foo.**", "*Bar"));
+    assertEquals(ImmutableList.of("com.foo.Bar"), classNamePrefixes("com.foo.Bar"));
+    assertEquals(ImmutableList.of("com.foo."), classNamePrefixes("com.foo.**"));
+    assertEquals(ImmutableList.of("com.foo.Ba"), classNamePrefixes("com.foo.Ba?"));
+    assertEquals(ImmutableList.of("com.foo.Bar$"), classNamePrefixes("com.foo.Bar$*"));
+    assertEquals(
+        ImmutableList.of("com.foo.", "com.bar."), classNamePrefixes("com.foo.**", "com.bar.*"));
+    // Negated patterns do not contribute any class names.
+    assertEquals(
+        ImmutableList.of("com.foo."), classNamePrefixes("!com.foo.internal.**", "com.foo.**"));
+    assertEquals(ImmutableList.of(), classNamePrefixes("!com.foo.**"));
+  }
+
   private static IdentifierPatternWithWildcards toIdentifierPatternWithWildCards(
       String pattern, boolean isForNameMatcher) {
     ImmutableList.Builder<ProguardWildcard> builder = ImmutableList.builder();
@@ -0,0 +1,82 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.FoundClassSubject;
+import com.android.tools.r8.utils.codeinspector.FoundMethodSubject;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.Test;
+
+public class TracingCacheTest extends TestBase {
+
+  static class Main {
+    public static void main(String[] args) {
+      new A().foo();
+    }
+  }
+
+  static class A {
+    void foo() {
+      System.out.println("A");
+    }
+  }
+
+  static class B {
+    void bar() {
+      System.out.println("B");
+    }
+  }
+
+  private static class Result {
+    TracingCache cache;
+    Set<String> methods = new TreeSet<>();
+  }
+
+  private Result compile(Path directory, boolean verify) throws Exception {
+    Result result = new Result();
+    CodeInspector inspector =
+        testForR8(Backend.DEX)
+            .addProgramClasses(Main.class, A.class, B.class)
+            .addKeepMainRule(Main.class)
+            .noMinification()
+            .addOptionsModification(
+                options -> {
+                  options.tracingCache = result.cache = new TracingCache(directory, options);
+                  options.verifyTracingCache = verify;
+                })
+            .compile()
+            .inspector();
+    for (FoundClassSubject clazz : inspector.allClasses()) {
+      for (FoundMethodSubject method : clazz.allMethods()) {
+        result.methods.add(method.getMethod().method.toSourceString());
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testCacheHits() throws Exception {
+    Path directory = temp.newFolder().toPath();
+
+    Result first = compile(directory, false);
+    assertEquals(0, first.cache.getHitCount());
+    assertEquals(3, first.cache.getMissCount());
+
+    Result second = compile(directory, false);
+    assertEquals(3, second.cache.getHitCount());
+    assertEquals(0, second.cache.getMissCount());
+    assertEquals(first.methods, second.methods);
+
+    // Check that the cached references are the ones found in the code.
+    Result verified = compile(directory, true);
+    assertEquals(3, verified.cache.getHitCount());
+    assertEquals(first.methods, verified.methods);
+  }
+}
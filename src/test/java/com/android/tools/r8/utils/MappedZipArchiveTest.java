@@ -0,0 +1,81 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedZipArchiveTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static byte[] content(String name, int repetitions) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < repetitions; i++) {
+      builder.append(name).append(i);
+    }
+    return builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void putEntry(ZipOutputStream output, String name, byte[] data, boolean stored)
+      throws IOException {
+    ZipEntry entry = new ZipEntry(name);
+    if (stored) {
+      CRC32 crc = new CRC32();
+      crc.update(data);
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(data.length);
+      entry.setCompressedSize(data.length);
+      entry.setCrc(crc.getValue());
+    }
+    output.putNextEntry(entry);
+    output.write(data);
+    output.closeEntry();
+  }
+
+  @Test
+  public void testStoredAndDeflatedEntries() throws IOException {
+    Path zip = temporaryFolder.getRoot().toPath().resolve("archive.jar");
+    Map<String, byte[]> expected = new HashMap<>();
+    expected.put("a/Stored.class", content("stored", 100));
+    expected.put("a/Deflated.class", content("deflated", 10000));
+    expected.put("a/Empty.class", new byte[0]);
+    try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(zip))) {
+      output.setComment("archive comment");
+      putEntry(output, "a/Stored.class", expected.get("a/Stored.class"), true);
+      putEntry(output, "a/Deflated.class", expected.get("a/Deflated.class"), false);
+      putEntry(output, "a/Empty.class", expected.get("a/Empty.class"), false);
+    }
+    MappedZipArchive archive = MappedZipArchive.open(zip);
+    assertNotNull(archive);
+    Map<String, byte[]> actual = new HashMap<>();
+    archive.forEachEntry(
+        (name, entry) -> {
+          try {
+            actual.put(name, archive.read(entry));
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        });
+    assertEquals(expected.keySet(), actual.keySet());
+    for (String name : expected.keySet()) {
+      assertArrayEquals(expected.get(name), actual.get(name));
+    }
+  }
+}
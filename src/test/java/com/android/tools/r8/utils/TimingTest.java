@@ -0,0 +1,65 @@
+// Copyright (c) 2019, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class TimingTest {
+
+  @Test
+  public void testWorkerSubtreesAreMerged() throws Exception {
+    Timing timing = new Timing("test");
+    ExecutorService executor = ThreadUtils.getExecutorService(4);
+    try {
+      timing.begin("Parallel phase");
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        futures.add(
+            executor.submit(
+                () -> timing.scope("Task", () -> timing.scope("Subtask", () -> {}))));
+      }
+      ThreadUtils.awaitFutures(futures);
+      timing.end();
+      timing.begin("Sequential phase");
+      timing.end();
+    } finally {
+      executor.shutdown();
+    }
+
+    String report = report(timing);
+    int phase = report.indexOf("- Parallel phase: ");
+    int task = report.indexOf("- Task [parallel]: ");
+    int subtask = report.indexOf("- Subtask [parallel]: ");
+    int sequential = report.indexOf("- Sequential phase: ");
+    // The merged subtrees of the workers are reported once, below the node that was current on the
+    // owner when the tasks were run.
+    assertTrue(0 <= phase && phase < task && task < subtask && subtask < sequential);
+    assertTrue(report.indexOf("- Task [parallel]: ", task + 1) < 0);
+    assertThat(report, containsString("ms wall, "));
+    assertThat(report, not(containsString("Sequential phase [parallel]")));
+  }
+
+  private static String report(Timing timing) {
+    PrintStream out = System.out;
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(bytes));
+    try {
+      timing.report();
+    } finally {
+      System.setOut(out);
+    }
+    return bytes.toString();
+  }
+}